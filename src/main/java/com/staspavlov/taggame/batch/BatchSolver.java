@@ -0,0 +1,203 @@
+package com.staspavlov.taggame.batch;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameImpl;
+import com.staspavlov.taggame.game.GameSnapshot;
+import com.staspavlov.taggame.solver.Boards;
+import com.staspavlov.taggame.solver.IdaStarSolver;
+import com.staspavlov.taggame.solver.PositionSolver;
+import com.staspavlov.taggame.solver.Solution;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BatchSolver solves streams of puzzles in parallel.
+ * Puzzles are read by the calling thread, solved by a work-stealing pool
+ * and written by a writer thread in input order. Number of puzzles in
+ * flight is limited by a reorder buffer, so memory does not depend on the
+ * size of the input. Output has one tab separated line per puzzle: line
+ * number, status (ok, unsolvable, limit or error), number of moves (lower
+ * bound if limit is reached), expanded nodes, milliseconds and moves.
+ * Puzzles are solved by IDA* or by a given position solver, such as a
+ * SolutionCache, so repeated positions are solved once.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class BatchSolver {
+
+    /**
+     * Header of the output.
+     */
+    public static final String HEADER = "# line\tstatus\tlength\tnodes\tmillis\tmoves";
+
+    /**
+     * Puzzles in flight per thread.
+     */
+    private static final int PUZZLES_PER_THREAD = 8;
+
+    /**
+     * Marks the end of results, compared by identity.
+     */
+    private static final String END = new String();
+
+    /**
+     * Number of solver threads.
+     */
+    private final int threads;
+
+    /**
+     * Solver of puzzles, called by several threads.
+     */
+    private final PositionSolver solver;
+
+    /**
+     * Creates batch solver instance with IDA* search.
+     * @param threads number of solver threads
+     * @param nodeLimit limit of expanded nodes per puzzle
+     */
+    public BatchSolver(int threads, long nodeLimit) {
+        this(threads, IdaStarSolver.positionSolver(nodeLimit));
+    }
+
+    /**
+     * Creates batch solver instance.
+     * @param threads number of solver threads
+     * @param solver thread-safe solver of puzzles, for example a
+     * SolutionCache in front of IDA* search
+     */
+    public BatchSolver(int threads, PositionSolver solver) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Wrong batch settings");
+        }
+        this.threads = threads;
+        this.solver = solver;
+    }
+
+    /**
+     * Solves all puzzles of the reader.
+     * @param reader puzzles
+     * @param output results
+     * @return count of puzzles
+     * @throws IOException if input can't be read or output can't be written
+     * @throws InterruptedException
+     */
+    public long run(PuzzleReader reader, final Writer output) throws IOException, InterruptedException {
+        final ReorderBuffer<String> buffer = new ReorderBuffer<>(threads * PUZZLES_PER_THREAD);
+        final IOException[] writeError = new IOException[1];
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    output.write(HEADER);
+                    output.write('\n');
+                } catch (IOException ex) {
+                    writeError[0] = ex;
+                }
+                try {
+                    for (String line = buffer.take(); line != END; line = buffer.take()) {
+                        // Keep taking after an error, so the reader is not blocked
+                        if (writeError[0] == null) {
+                            try {
+                                output.write(line);
+                            } catch (IOException ex) {
+                                writeError[0] = ex;
+                            }
+                        }
+                    }
+                    output.flush();
+                } catch (IOException ex) {
+                    writeError[0] = ex;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "batch-writer");
+        writer.start();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long count = 0;
+        try {
+            while (true) {
+                GameSnapshot puzzle;
+                try {
+                    puzzle = reader.next();
+                } catch (IllegalArgumentException ex) {
+                    buffer.put(buffer.reserve(), format(reader.getLine(), "error", ex.getMessage()));
+                    count++;
+                    continue;
+                }
+                if (puzzle == null) {
+                    break;
+                }
+                final long index = buffer.reserve();
+                final long line = reader.getLine();
+                final GameSnapshot snapshot = puzzle;
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        String output = null;
+                        try {
+                            output = solve(line, snapshot);
+                        } finally {
+                            // The writer waits for every reserved slot, even after an Error
+                            buffer.put(index, output != null ? output : format(line, "error", "Solver failed"));
+                        }
+                    }
+                });
+                count++;
+            }
+        } finally {
+            buffer.put(buffer.reserve(), END);
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            writer.join();
+        }
+        if (writeError[0] != null) {
+            throw writeError[0];
+        }
+        return count;
+    }
+
+    /**
+     * Solves one puzzle.
+     * @param line line number
+     * @param puzzle puzzle
+     * @return output line
+     */
+    private String solve(long line, GameSnapshot puzzle) {
+        try {
+            Game game = new GameImpl(puzzle);
+            long started = System.nanoTime();
+            Solution solution = solver.solve(game.getRows(), game.getCols(), Boards.toArray(game));
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            if (solution.getLowerBound() == Integer.MAX_VALUE) {
+                return format(line, "unsolvable", "");
+            }
+            String status = solution.isFound() ? "ok" : "limit";
+            int length = solution.isFound() ? solution.getLength() : solution.getLowerBound();
+            StringBuilder moves = new StringBuilder();
+            for (int element : solution.getMoves()) {
+                if (moves.length() > 0) {
+                    moves.append(' ');
+                }
+                moves.append(element);
+            }
+            return line + "\t" + status + "\t" + length + "\t" + solution.getNodes()
+                    + "\t" + millis + "\t" + moves + "\n";
+        } catch (RuntimeException ex) {
+            return format(line, "error", ex.getMessage());
+        }
+    }
+
+    /**
+     * Formats output line without solution.
+     * @param line line number
+     * @param status status
+     * @param message message
+     * @return output line
+     */
+    private static String format(long line, String status, String message) {
+        return line + "\t" + status + "\t\t\t\t" + message + "\n";
+    }
+
+}
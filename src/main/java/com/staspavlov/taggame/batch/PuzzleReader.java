@@ -0,0 +1,221 @@
+package com.staspavlov.taggame.batch;
+
+import com.staspavlov.taggame.game.GameSnapshot;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * PuzzleReader streams puzzles from a file through a fixed direct buffer.
+ * Text format has one puzzle per line: number of rows, number of columns
+ * and elements row by row, separated by spaces. Empty lines and lines
+ * starting with # are skipped. Binary format has records of one byte for
+ * rows, one byte for columns and one unsigned byte per element.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class PuzzleReader implements Closeable {
+
+    /**
+     * Size of the read buffer.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Input channel.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Read buffer.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Records are binary.
+     */
+    private final boolean binary;
+
+    /**
+     * Numbers of the current line.
+     */
+    private int[] numbers = new int[64];
+
+    /**
+     * Number of the current line or record.
+     */
+    private long line;
+
+    /**
+     * End of file is reached.
+     */
+    private boolean eof;
+
+    /**
+     * Opens reader.
+     * @param path file path
+     * @param binary true for binary format
+     * @throws IOException
+     */
+    public PuzzleReader(Path path, boolean binary) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.binary = binary;
+        buffer.flip();
+    }
+
+    /**
+     * Reads next puzzle.
+     * @return puzzle, null at the end of file
+     * @throws IOException if file can't be read
+     * @throws IllegalArgumentException if the puzzle is malformed, the
+     * reader is positioned at the next puzzle
+     */
+    public GameSnapshot next() throws IOException {
+        return binary ? nextRecord() : nextLine();
+    }
+
+    /**
+     * Returns number of the last read line or record, starting from one.
+     * @return number
+     */
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * Closes the file.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads next text puzzle.
+     * @return puzzle, null at the end of file
+     * @throws IOException
+     */
+    private GameSnapshot nextLine() throws IOException {
+        while (true) {
+            int count = readLine();
+            if (count < 0) {
+                return null;
+            }
+            if (count == 0) {
+                continue;
+            }
+            if (count < 2 || count != 2 + numbers[0] * numbers[1]) {
+                throw new IllegalArgumentException("Line " + line + ": wrong number of elements");
+            }
+            return new GameSnapshot(numbers[0], numbers[1], Arrays.copyOfRange(numbers, 2, count));
+        }
+    }
+
+    /**
+     * Reads numbers of the next line.
+     * @return count of numbers, zero for skipped line, -1 at the end of file
+     * @throws IOException
+     */
+    private int readLine() throws IOException {
+        int b = read();
+        if (b < 0) {
+            return -1;
+        }
+        line++;
+        int count = 0;
+        boolean comment = b == '#';
+        boolean malformed = false;
+        long value = -1;
+        while (b >= 0 && b != '\n') {
+            if (!comment) {
+                if (b >= '0' && b <= '9') {
+                    value = Math.min((value < 0 ? 0 : value * 10) + (b - '0'), Integer.MAX_VALUE + 1L);
+                    malformed |= value > Integer.MAX_VALUE;
+                } else if (b == ' ' || b == '\t' || b == '\r' || b == ',') {
+                    count = store(count, value);
+                    value = -1;
+                } else {
+                    malformed = true;
+                }
+            }
+            b = read();
+        }
+        count = store(count, value);
+        if (malformed) {
+            throw new IllegalArgumentException("Line " + line + ": wrong number format");
+        }
+        return comment ? 0 : count;
+    }
+
+    /**
+     * Stores parsed number.
+     * @param count count of stored numbers
+     * @param value parsed number, -1 if none
+     * @return new count of numbers
+     */
+    private int store(int count, long value) {
+        if (value < 0) {
+            return count;
+        }
+        if (count == numbers.length) {
+            numbers = Arrays.copyOf(numbers, count * 2);
+        }
+        numbers[count] = (int) value;
+        return count + 1;
+    }
+
+    /**
+     * Reads next binary puzzle.
+     * @return puzzle, null at the end of file
+     * @throws IOException
+     */
+    private GameSnapshot nextRecord() throws IOException {
+        int rows = read();
+        if (rows < 0) {
+            return null;
+        }
+        line++;
+        int cols = read();
+        if (cols < 0) {
+            throw new EOFException("Record " + line + " is truncated");
+        }
+        int[] tiles = new int[rows * cols];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = read();
+            if (tiles[i] < 0) {
+                throw new EOFException("Record " + line + " is truncated");
+            }
+        }
+        return new GameSnapshot(rows, cols, tiles);
+    }
+
+    /**
+     * Reads next byte.
+     * @return unsigned byte, -1 at the end of file
+     * @throws IOException
+     */
+    private int read() throws IOException {
+        if (!buffer.hasRemaining()) {
+            if (eof) {
+                return -1;
+            }
+            buffer.clear();
+            int n = 0;
+            while (n == 0) {
+                n = channel.read(buffer);
+            }
+            buffer.flip();
+            if (n < 0) {
+                eof = true;
+                return -1;
+            }
+        }
+        return buffer.get() & 0xFF;
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.staspavlov.taggame.batch;
+
+/**
+ * ReorderBuffer returns results in order of their indexes.
+ * Indexes are reserved by the producer before the work is submitted, the
+ * producer waits while the buffer is full, so memory stays bounded.
+ * @param <T> type of results
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class ReorderBuffer<T> {
+
+    /**
+     * Results by index modulo capacity.
+     */
+    private final Object[] slots;
+
+    /**
+     * Next index to reserve.
+     */
+    private long reserved;
+
+    /**
+     * Next index to take.
+     */
+    private long taken;
+
+    /**
+     * Creates buffer instance.
+     * @param capacity maximal number of reserved and not taken results
+     */
+    public ReorderBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        slots = new Object[capacity];
+    }
+
+    /**
+     * Reserves index for the next result, waits while the buffer is full.
+     * @return index
+     * @throws InterruptedException
+     */
+    public synchronized long reserve() throws InterruptedException {
+        while (reserved - taken >= slots.length) {
+            wait();
+        }
+        return reserved++;
+    }
+
+    /**
+     * Puts result with reserved index.
+     * @param index reserved index
+     * @param result result, not null
+     */
+    public synchronized void put(long index, T result) {
+        if (index < taken || index >= reserved) {
+            throw new IllegalArgumentException("Index is not reserved");
+        }
+        slots[(int) (index % slots.length)] = result;
+        notifyAll();
+    }
+
+    /**
+     * Takes next result in order, waits while it is not ready.
+     * @return result
+     * @throws InterruptedException
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized T take() throws InterruptedException {
+        int slot = (int) (taken % slots.length);
+        while (slots[slot] == null) {
+            wait();
+        }
+        T result = (T) slots[slot];
+        slots[slot] = null;
+        taken++;
+        notifyAll();
+        return result;
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.staspavlov.taggame.bfs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads distance file written by ExternalBfs.
+ * The file keeps distances modulo 15. Distances of neighbours differ by
+ * one, so the exact distance is the length of the path to the goal along
+ * neighbours with the value decreased by one. Not thread-safe.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class DistanceTable implements Closeable {
+
+    private final StateSpace space;
+
+    private final FileChannel channel;
+
+    /**
+     * Buffer of one byte of the file.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate(1);
+
+    /**
+     * Buffer of neighbours.
+     */
+    private final long[] neighbors;
+
+    /**
+     * Opens distance file.
+     * @param space state space of the file
+     * @param file distance file
+     * @throws IOException
+     */
+    public DistanceTable(StateSpace space, Path file) throws IOException {
+        this.space = space;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        if (channel.size() != (space.getSize() + 1) / 2) {
+            channel.close();
+            throw new IllegalArgumentException("Wrong size of the distance file");
+        }
+        this.neighbors = new long[space.getDegree()];
+    }
+
+    /**
+     * Returns distance modulo 15 stored for the state.
+     * @param state rank of the state
+     * @return value, ExternalBfs.UNREACHED for unreachable states
+     * @throws IOException
+     */
+    public int getValue(long state) throws IOException {
+        buffer.clear();
+        if (channel.read(buffer, state >>> 1) != 1) {
+            throw new IOException("Unexpected end of file");
+        }
+        int b = buffer.get(0);
+        return (state & 1) == 0 ? b & 0x0F : (b >>> 4) & 0x0F;
+    }
+
+    /**
+     * Returns distance of the state to the goal.
+     * @param state rank of the state
+     * @return distance, -1 for unreachable states
+     * @throws IOException
+     */
+    public int getDistance(long state) throws IOException {
+        int value = getValue(state);
+        if (value == ExternalBfs.UNREACHED) {
+            return -1;
+        }
+        int distance = 0;
+        long goal = space.getGoal();
+        while (state != goal) {
+            int previous = (value + ExternalBfs.UNREACHED - 1) % ExternalBfs.UNREACHED;
+            int n = space.getNeighbors(state, neighbors);
+            int i = 0;
+            while (i < n && getValue(neighbors[i]) != previous) {
+                i++;
+            }
+            if (i == n) {
+                throw new IllegalStateException("Distance file is corrupted");
+            }
+            state = neighbors[i];
+            value = previous;
+            distance++;
+        }
+        return distance;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
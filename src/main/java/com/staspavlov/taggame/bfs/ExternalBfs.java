@@ -0,0 +1,522 @@
+package com.staspavlov.taggame.bfs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * ExternalBfs finds distances of all states from the goal by breadth-first
+ * search on disk.
+ * Every layer is a sorted run file of ranks. Neighbours of a layer are
+ * sorted in memory chunks and spilled to run files, then the runs are
+ * merged with the two previous layers: in an undirected graph a neighbour
+ * is either new or belongs to one of them. Finally all layers are merged
+ * into the distance file: four bits per rank holding the distance modulo
+ * 15, value 15 marks unreachable ranks. Neighbours of a state differ by
+ * one move, so DistanceTable restores the exact distance from it.
+ * Memory is bounded by the budget: half of it sorts ranks, the other half
+ * is a fixed pool of direct buffers for file streams. Progress is saved
+ * in a checkpoint after every layer, a new instance resumes from it.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class ExternalBfs {
+
+    /**
+     * Minimal memory budget in bytes.
+     */
+    public static final long MIN_MEMORY = 64 * 1024;
+
+    /**
+     * Name of the distance file.
+     */
+    public static final String DISTANCES = "distances.bin";
+
+    /**
+     * Distance value of unreachable ranks.
+     */
+    public static final int UNREACHED = 15;
+
+    /**
+     * Minimal size of a stream buffer.
+     */
+    private static final int MIN_BUFFER = 4096;
+
+    /**
+     * Maximal size of a stream buffer.
+     */
+    private static final int MAX_BUFFER = 4 * 1024 * 1024;
+
+    /**
+     * Name of the checkpoint file.
+     */
+    private static final String CHECKPOINT = "checkpoint.properties";
+
+    /**
+     * Suffix of files of unfinished steps.
+     */
+    private static final String TEMPORARY = ".tmp";
+
+    private final StateSpace space;
+
+    /**
+     * Directory of the files.
+     */
+    private final Path directory;
+
+    /**
+     * Buffer of ranks sorted in memory.
+     */
+    private final long[] ranks;
+
+    /**
+     * Pool of stream buffers.
+     */
+    private final ByteBuffer[] buffers;
+
+    /**
+     * Maximal number of runs merged at once.
+     */
+    private final int fanIn;
+
+    /**
+     * Buffer of neighbours.
+     */
+    private final long[] neighbors;
+
+    /**
+     * Numbers of states by layers.
+     */
+    private final List<Long> layers = new ArrayList<>();
+
+    /**
+     * The last layer is empty.
+     */
+    private boolean finished;
+
+    /**
+     * Distance file is written.
+     */
+    private boolean written;
+
+    /**
+     * Counter of temporary file names.
+     */
+    private int runCounter;
+
+    /**
+     * Search is cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Creates search instance.
+     * @param space state space
+     * @param directory directory of the files
+     * @param memory memory budget in bytes
+     */
+    public ExternalBfs(StateSpace space, Path directory, long memory) {
+        if (memory < MIN_MEMORY || memory / 2 / 8 > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Wrong memory budget");
+        }
+        this.space = space;
+        this.directory = directory;
+        this.ranks = new long[(int) (memory / 2 / 8)];
+        long streams = memory - memory / 2;
+        int bufferSize = (int) Math.max(MIN_BUFFER, Math.min(MAX_BUFFER, streams / 16));
+        // Merge of runs reads two previous layers and writes the next one
+        this.fanIn = (int) Math.max(2, streams / bufferSize - 3);
+        this.buffers = new ByteBuffer[fanIn + 3];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(bufferSize);
+        }
+        this.neighbors = new long[space.getDegree()];
+    }
+
+    /**
+     * Runs or resumes the search until the distance file is written.
+     * @return true if finished, false if cancelled
+     * @throws IOException
+     */
+    public boolean run() throws IOException {
+        return run(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Runs or resumes the search for a limited number of layers.
+     * @param maxLayers maximal number of layers to expand
+     * @return true if the distance file is written
+     * @throws IOException
+     * @throws IllegalStateException if the checkpoint belongs to other space
+     */
+    public boolean run(int maxLayers) throws IOException {
+        Files.createDirectories(directory);
+        deleteTemporary();
+        loadCheckpoint();
+        int expanded = 0;
+        while (!finished) {
+            if (expanded == maxLayers || cancelled) {
+                return false;
+            }
+            long count = expand(layers.size() - 1);
+            if (count < 0) {
+                return false;
+            }
+            layers.add(count);
+            finished = count == 0;
+            saveCheckpoint();
+            expanded++;
+        }
+        if (!written) {
+            if (cancelled) {
+                return false;
+            }
+            writeDistances();
+            written = true;
+            saveCheckpoint();
+        }
+        return true;
+    }
+
+    /**
+     * Cancels the running and all further searches of the instance,
+     * completed layers are kept.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns numbers of states by distances found so far.
+     * @return numbers of states
+     */
+    public long[] getLayerSizes() {
+        long[] sizes = new long[finished ? layers.size() - 1 : layers.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = layers.get(i);
+        }
+        return sizes;
+    }
+
+    /**
+     * Returns path of the distance file.
+     * @return path
+     */
+    public Path getDistanceFile() {
+        return directory.resolve(DISTANCES);
+    }
+
+    /**
+     * Finds the next layer.
+     * @param layer the last found layer
+     * @return number of states, -1 if cancelled
+     * @throws IOException
+     */
+    private long expand(int layer) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        int count = 0;
+        try (RunReader reader = new RunReader(layerFile(layer), buffers[0])) {
+            long state;
+            while ((state = reader.next()) >= 0) {
+                if (cancelled) {
+                    return -1;
+                }
+                int n = space.getNeighbors(state, neighbors);
+                for (int i = 0; i < n; i++) {
+                    if (count == ranks.length) {
+                        runs.add(writeRun(count));
+                        count = 0;
+                    }
+                    ranks[count++] = neighbors[i];
+                }
+            }
+        }
+        if (count > 0 || runs.isEmpty()) {
+            runs.add(writeRun(count));
+        }
+        while (runs.size() > fanIn) {
+            if (cancelled) {
+                return -1;
+            }
+            runs = mergeRuns(runs);
+        }
+        Path temporary = directory.resolve("layer-" + (layer + 1) + TEMPORARY);
+        RunReader[] readers = new RunReader[runs.size()];
+        long written;
+        try (RunReader current = new RunReader(layerFile(layer), buffers[fanIn]);
+                RunReader previous = new RunReader(layerFile(layer > 0 ? layer - 1 : layer), buffers[fanIn + 1]);
+                RunWriter writer = new RunWriter(temporary, buffers[fanIn + 2])) {
+            RunMerger merger = new RunMerger(open(runs, readers));
+            long currentRank = current.next();
+            long previousRank = previous.next();
+            long last = -1;
+            long rank;
+            while ((rank = merger.next()) >= 0) {
+                if (rank == last) {
+                    continue;
+                }
+                last = rank;
+                while (currentRank >= 0 && currentRank < rank) {
+                    currentRank = current.next();
+                }
+                while (previousRank >= 0 && previousRank < rank) {
+                    previousRank = previous.next();
+                }
+                if (rank != currentRank && rank != previousRank) {
+                    writer.write(rank);
+                }
+            }
+            written = writer.getCount();
+        } finally {
+            close(readers);
+        }
+        delete(runs);
+        Files.move(temporary, layerFile(layer + 1), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        return written;
+    }
+
+    /**
+     * Sorts buffered ranks, drops duplicates and writes them to a run.
+     * @param count number of ranks
+     * @return run file
+     * @throws IOException
+     */
+    private Path writeRun(int count) throws IOException {
+        Arrays.sort(ranks, 0, count);
+        Path run = directory.resolve("run-" + runCounter++ + TEMPORARY);
+        try (RunWriter writer = new RunWriter(run, buffers[1])) {
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || ranks[i] != ranks[i - 1]) {
+                    writer.write(ranks[i]);
+                }
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Merges groups of runs into larger ones.
+     * @param runs runs
+     * @return merged runs
+     * @throws IOException
+     */
+    private List<Path> mergeRuns(List<Path> runs) throws IOException {
+        List<Path> merged = new ArrayList<>();
+        for (int from = 0; from < runs.size(); from += fanIn) {
+            List<Path> group = runs.subList(from, Math.min(runs.size(), from + fanIn));
+            Path run = directory.resolve("run-" + runCounter++ + TEMPORARY);
+            RunReader[] readers = new RunReader[group.size()];
+            try (RunWriter writer = new RunWriter(run, buffers[fanIn])) {
+                RunMerger merger = new RunMerger(open(group, readers));
+                long last = -1;
+                long rank;
+                while ((rank = merger.next()) >= 0) {
+                    if (rank != last) {
+                        writer.write(rank);
+                        last = rank;
+                    }
+                }
+            } finally {
+                close(readers);
+            }
+            delete(group);
+            merged.add(run);
+        }
+        return merged;
+    }
+
+    /**
+     * Writes distance file: fills it with unreached values, then sets
+     * distances of layers merged by groups.
+     * @throws IOException
+     */
+    private void writeDistances() throws IOException {
+        Path temporary = directory.resolve(DISTANCES + TEMPORARY);
+        long length = (space.getSize() + 1) / 2;
+        ByteBuffer window = buffers[fanIn];
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            window.clear();
+            while (window.hasRemaining()) {
+                window.put((byte) 0xFF);
+            }
+            for (long position = 0; position < length; position += window.capacity()) {
+                window.clear();
+                window.limit((int) Math.min(window.capacity(), length - position));
+                write(channel, window, position);
+            }
+            int count = layers.size() - 1;
+            for (int from = 0; from < count; from += fanIn) {
+                int to = Math.min(count, from + fanIn);
+                List<Path> group = new ArrayList<>();
+                for (int layer = from; layer < to; layer++) {
+                    group.add(layerFile(layer));
+                }
+                RunReader[] readers = new RunReader[group.size()];
+                try {
+                    RunMerger merger = new RunMerger(open(group, readers));
+                    long windowStart = -1;
+                    long rank;
+                    while ((rank = merger.next()) >= 0) {
+                        long index = rank >>> 1;
+                        if (windowStart < 0 || index >= windowStart + window.limit()) {
+                            if (windowStart >= 0) {
+                                write(channel, window, windowStart);
+                            }
+                            windowStart = index - index % window.capacity();
+                            window.clear();
+                            window.limit((int) Math.min(window.capacity(), length - windowStart));
+                            read(channel, window, windowStart);
+                        }
+                        int offset = (int) (index - windowStart);
+                        int value = (from + merger.getSource()) % UNREACHED;
+                        int b = window.get(offset);
+                        b = (rank & 1) == 0 ? (b & 0xF0) | value : (b & 0x0F) | value << 4;
+                        window.put(offset, (byte) b);
+                    }
+                    if (windowStart >= 0) {
+                        write(channel, window, windowStart);
+                    }
+                } finally {
+                    close(readers);
+                }
+            }
+            channel.force(false);
+        }
+        Files.move(temporary, getDistanceFile(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Loads the checkpoint or starts a new search from the goal.
+     * @throws IOException
+     */
+    private void loadCheckpoint() throws IOException {
+        layers.clear();
+        Path file = directory.resolve(CHECKPOINT);
+        if (!Files.exists(file)) {
+            try (RunWriter writer = new RunWriter(layerFile(0), buffers[0])) {
+                writer.write(space.getGoal());
+            }
+            layers.add(1L);
+            finished = false;
+            written = false;
+            saveCheckpoint();
+            return;
+        }
+        Properties checkpoint = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            checkpoint.load(in);
+        }
+        if (!String.valueOf(space.getSize()).equals(checkpoint.getProperty("size"))
+                || !String.valueOf(space.getGoal()).equals(checkpoint.getProperty("goal"))) {
+            throw new IllegalStateException("Checkpoint belongs to other state space");
+        }
+        int count = Integer.parseInt(checkpoint.getProperty("layers"));
+        for (int layer = 0; layer < count; layer++) {
+            layers.add(Long.parseLong(checkpoint.getProperty("layer." + layer)));
+        }
+        finished = Boolean.parseBoolean(checkpoint.getProperty("finished"));
+        written = Boolean.parseBoolean(checkpoint.getProperty("written"));
+        // Layers after the checkpoint are left by an interrupted search
+        int stale = count;
+        while (Files.deleteIfExists(layerFile(stale))) {
+            stale++;
+        }
+    }
+
+    /**
+     * Saves the checkpoint atomically.
+     * @throws IOException
+     */
+    private void saveCheckpoint() throws IOException {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("size", String.valueOf(space.getSize()));
+        checkpoint.setProperty("goal", String.valueOf(space.getGoal()));
+        checkpoint.setProperty("layers", String.valueOf(layers.size()));
+        for (int layer = 0; layer < layers.size(); layer++) {
+            checkpoint.setProperty("layer." + layer, String.valueOf(layers.get(layer)));
+        }
+        checkpoint.setProperty("finished", String.valueOf(finished));
+        checkpoint.setProperty("written", String.valueOf(written));
+        Path temporary = directory.resolve(CHECKPOINT + TEMPORARY);
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            checkpoint.store(out, "External BFS checkpoint");
+        }
+        Files.move(temporary, directory.resolve(CHECKPOINT), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Deletes files of unfinished steps.
+     * @throws IOException
+     */
+    private void deleteTemporary() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + TEMPORARY)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private Path layerFile(int layer) {
+        return directory.resolve("layer-" + layer + ".bin");
+    }
+
+    /**
+     * Opens readers of the runs with buffers from the start of the pool.
+     * @param runs runs
+     * @param readers array to store readers
+     * @return readers
+     * @throws IOException
+     */
+    private RunReader[] open(List<Path> runs, RunReader[] readers) throws IOException {
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new RunReader(runs.get(i), buffers[i]);
+        }
+        return readers;
+    }
+
+    private static void close(RunReader[] readers) throws IOException {
+        for (int i = 0; i < readers.length; i++) {
+            if (readers[i] != null) {
+                readers[i].close();
+                readers[i] = null;
+            }
+        }
+    }
+
+    private static void delete(List<Path> files) throws IOException {
+        for (Path file : files) {
+            Files.delete(file);
+        }
+    }
+
+    private static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.staspavlov.taggame.bfs;
+
+import com.staspavlov.taggame.game.GameShape;
+import java.util.Arrays;
+
+/**
+ * States of the game area ranked by lexicographic order of permutations.
+ * Ranks of unsolvable permutations are never reached from the goal.
+ * Not thread-safe.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class PuzzleSpace implements StateSpace {
+
+    /**
+     * Maximal number of cells, factorial must fit into long.
+     */
+    public static final int MAX_SIZE = 20;
+
+    /**
+     * Lookup tables of the game area shape.
+     */
+    private final GameShape shape;
+
+    /**
+     * Number of cells.
+     */
+    private final int size;
+
+    /**
+     * Factorials by numbers of cells.
+     */
+    private final long[] factorials;
+
+    /**
+     * Cells next to the cells.
+     */
+    private final int[][] neighborCells;
+
+    /**
+     * Buffer of elements by cells.
+     */
+    private final int[] tiles;
+
+    /**
+     * Rank of the goal state.
+     */
+    private final long goal;
+
+    /**
+     * Creates state space of the game area.
+     * @param rows number of rows
+     * @param cols number of columns
+     */
+    public PuzzleSpace(int rows, int cols) {
+        if (rows < 2 || cols < 2 || rows * cols > MAX_SIZE) {
+            throw new IllegalArgumentException("Wrong game area size");
+        }
+        this.shape = GameShape.of(rows, cols);
+        this.size = rows * cols;
+        this.factorials = new long[size + 1];
+        factorials[0] = 1;
+        for (int i = 1; i <= size; i++) {
+            factorials[i] = factorials[i - 1] * i;
+        }
+        this.neighborCells = new int[size][];
+        for (int cell = 0; cell < size; cell++) {
+            int count = 0;
+            int[] cells = new int[4];
+            for (int other = 0; other < size; other++) {
+                if (shape.isAdjacent(cell, other)) {
+                    cells[count++] = other;
+                }
+            }
+            neighborCells[cell] = Arrays.copyOf(cells, count);
+        }
+        this.tiles = new int[size];
+        for (int cell = 0; cell < size; cell++) {
+            tiles[cell] = shape.goalElement(cell);
+        }
+        this.goal = rank(tiles);
+    }
+
+    @Override
+    public long getSize() {
+        return factorials[size];
+    }
+
+    @Override
+    public long getGoal() {
+        return goal;
+    }
+
+    @Override
+    public int getDegree() {
+        return 4;
+    }
+
+    @Override
+    public int getNeighbors(long state, long[] neighbors) {
+        int blank = unrank(state, tiles);
+        int[] cells = neighborCells[blank];
+        for (int i = 0; i < cells.length; i++) {
+            int cell = cells[i];
+            tiles[blank] = tiles[cell];
+            tiles[cell] = 0;
+            neighbors[i] = rank(tiles);
+            tiles[cell] = tiles[blank];
+            tiles[blank] = 0;
+        }
+        return cells.length;
+    }
+
+    /**
+     * Returns lexicographic rank of the permutation.
+     * @param elements elements by cells
+     * @return rank
+     */
+    public long rank(int[] elements) {
+        if (elements.length != size) {
+            throw new IllegalArgumentException("Wrong number of elements");
+        }
+        long rank = 0;
+        int used = 0;
+        for (int cell = 0; cell < size; cell++) {
+            int element = elements[cell];
+            // Number of smaller elements left for the next cells
+            int digit = element - Integer.bitCount(used & ((1 << element) - 1));
+            rank += digit * factorials[size - 1 - cell];
+            used |= 1 << element;
+        }
+        return rank;
+    }
+
+    /**
+     * Restores permutation by its rank.
+     * @param rank rank
+     * @param elements array to store elements by cells
+     * @return empty cell
+     */
+    public int unrank(long rank, int[] elements) {
+        if (rank < 0 || rank >= factorials[size]) {
+            throw new IllegalArgumentException("Wrong rank");
+        }
+        int used = 0;
+        int blank = 0;
+        for (int cell = 0; cell < size; cell++) {
+            long factorial = factorials[size - 1 - cell];
+            int digit = (int) (rank / factorial);
+            rank -= digit * factorial;
+            int element = 0;
+            while ((used & (1 << element)) != 0 || digit-- > 0) {
+                element++;
+            }
+            used |= 1 << element;
+            elements[cell] = element;
+            if (element == 0) {
+                blank = cell;
+            }
+        }
+        return blank;
+    }
+
+}
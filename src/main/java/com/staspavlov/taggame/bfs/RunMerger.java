@@ -0,0 +1,98 @@
+package com.staspavlov.taggame.bfs;
+
+import java.io.IOException;
+
+/**
+ * Merges ascending runs by a binary heap of their heads.
+ * Equal ranks of different runs are returned one by one.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+final class RunMerger {
+
+    private final RunReader[] readers;
+
+    /**
+     * Current ranks by runs.
+     */
+    private final long[] heads;
+
+    /**
+     * Heap of runs ordered by their heads.
+     */
+    private final int[] heap;
+
+    /**
+     * Number of runs in the heap.
+     */
+    private int count;
+
+    /**
+     * Run of the last returned rank.
+     */
+    private int source;
+
+    RunMerger(RunReader[] readers) throws IOException {
+        this.readers = readers;
+        this.heads = new long[readers.length];
+        this.heap = new int[readers.length];
+        for (int i = 0; i < readers.length; i++) {
+            heads[i] = readers[i].next();
+            if (heads[i] >= 0) {
+                heap[count++] = i;
+            }
+        }
+        for (int i = count / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Returns the least rank of all runs.
+     * @return rank, -1 after the last one
+     * @throws IOException
+     */
+    long next() throws IOException {
+        if (count == 0) {
+            return -1;
+        }
+        int run = heap[0];
+        long rank = heads[run];
+        source = run;
+        heads[run] = readers[run].next();
+        if (heads[run] < 0) {
+            heap[0] = heap[--count];
+        }
+        siftDown(0);
+        return rank;
+    }
+
+    /**
+     * Returns index of the run of the last returned rank.
+     * @return index of the run
+     */
+    int getSource() {
+        return source;
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int least = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < count && heads[heap[left]] < heads[heap[least]]) {
+                least = left;
+            }
+            if (right < count && heads[heap[right]] < heads[heap[least]]) {
+                least = right;
+            }
+            if (least == i) {
+                return;
+            }
+            int run = heap[i];
+            heap[i] = heap[least];
+            heap[least] = run;
+            i = least;
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.staspavlov.taggame.bfs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads ascending ranks of a run file written by RunWriter.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+final class RunReader implements Closeable {
+
+    /**
+     * Maximal length of an encoded delta.
+     */
+    private static final int MAX_VARINT = 10;
+
+    private final FileChannel channel;
+
+    /**
+     * Buffer of the file, owned by the reader until it is closed.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The last read rank.
+     */
+    private long value;
+
+    /**
+     * End of the file is reached.
+     */
+    private boolean eof;
+
+    RunReader(Path file, ByteBuffer buffer) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.buffer = buffer;
+        buffer.clear();
+        buffer.limit(0);
+    }
+
+    /**
+     * Returns the next rank.
+     * @return rank, -1 after the last one
+     * @throws IOException
+     */
+    long next() throws IOException {
+        if (buffer.remaining() < MAX_VARINT && !eof) {
+            fill();
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        long delta = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            delta |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        value += delta;
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void fill() throws IOException {
+        buffer.compact();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                eof = true;
+                break;
+            }
+        }
+        buffer.flip();
+    }
+
+}
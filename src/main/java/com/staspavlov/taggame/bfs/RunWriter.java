@@ -0,0 +1,97 @@
+package com.staspavlov.taggame.bfs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes ascending ranks to a run file.
+ * Every rank is stored as its difference with the previous one in
+ * variable-length encoding: seven bits per byte, the high bit marks
+ * continuation. Dense frontiers take one or two bytes per state.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+final class RunWriter implements Closeable {
+
+    /**
+     * Maximal length of an encoded delta.
+     */
+    private static final int MAX_VARINT = 10;
+
+    private final FileChannel channel;
+
+    /**
+     * Buffer of the file, owned by the writer until it is closed.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The last written rank.
+     */
+    private long value;
+
+    /**
+     * Number of written ranks.
+     */
+    private long count;
+
+    RunWriter(Path file, ByteBuffer buffer) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = buffer;
+        buffer.clear();
+    }
+
+    /**
+     * Appends the rank.
+     * @param rank rank, greater than the previous one
+     * @throws IOException
+     */
+    void write(long rank) throws IOException {
+        if (buffer.remaining() < MAX_VARINT) {
+            flush();
+        }
+        long delta = rank - value;
+        while ((delta & ~0x7FL) != 0) {
+            buffer.put((byte) (delta | 0x80));
+            delta >>>= 7;
+        }
+        buffer.put((byte) delta);
+        value = rank;
+        count++;
+    }
+
+    /**
+     * Returns number of written ranks.
+     * @return number of ranks
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Writes buffered ranks and forces them to the storage.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+}
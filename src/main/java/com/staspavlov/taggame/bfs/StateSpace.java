@@ -0,0 +1,36 @@
+package com.staspavlov.taggame.bfs;
+
+/**
+ * Undirected graph of states identified by ranks from zero to size - 1.
+ * Implementations may keep buffers and are not required to be thread-safe.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public interface StateSpace {
+
+    /**
+     * Returns number of ranks, including ranks of unreachable states.
+     * @return number of ranks
+     */
+    long getSize();
+
+    /**
+     * Returns rank of the goal state.
+     * @return rank
+     */
+    long getGoal();
+
+    /**
+     * Returns maximal number of neighbours of a state.
+     * @return number of neighbours
+     */
+    int getDegree();
+
+    /**
+     * Stores ranks of states one move away from the state.
+     * @param state rank of the state
+     * @param neighbors array of at least degree elements
+     * @return number of neighbours
+     */
+    int getNeighbors(long state, long[] neighbors);
+
+}
@@ -0,0 +1,536 @@
+package com.staspavlov.taggame.cluster;
+
+import com.staspavlov.taggame.solver.Solution;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Coordinator splits searches into work units solved by workers.
+ * The search frontier of the position is expanded by breadth-first search,
+ * then every IDA* iteration sends all frontier states to workers with the
+ * same bound. Units of an iteration are dealt to the queues of connected
+ * workers, an idle worker steals from the tail of the longest queue of
+ * others. The first solution of an iteration is optimal and cancels the
+ * rest of it. Units of a disconnected worker are restarted by others.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class Coordinator implements Closeable {
+
+    /**
+     * Default minimal number of units in the frontier.
+     */
+    public static final int DEFAULT_UNITS = 64;
+
+    /**
+     * Listening socket.
+     */
+    private final ServerSocket server;
+
+    /**
+     * Minimal number of units in the frontier.
+     */
+    private final int minUnits;
+
+    /**
+     * Lock serializing searches.
+     */
+    private final Object searchLock = new Object();
+
+    /**
+     * Connected workers, guarded by this.
+     */
+    private final List<Connection> connections = new ArrayList<>();
+
+    /**
+     * Units of disconnected workers, taken before any others.
+     */
+    private final Deque<WorkUnit> orphans = new ArrayDeque<>();
+
+    /**
+     * Current iteration, guarded by this.
+     */
+    private int iteration;
+
+    /**
+     * Units of the iteration without results, guarded by this.
+     */
+    private int remaining;
+
+    /**
+     * Minimal total cost above the bound in the iteration, guarded by this.
+     */
+    private int nextBound;
+
+    /**
+     * Found solution of the iteration, guarded by this.
+     */
+    private int[] found;
+
+    /**
+     * Count of expanded nodes of the search, guarded by this.
+     */
+    private long nodes;
+
+    /**
+     * Count of stolen units, guarded by this.
+     */
+    private long stolen;
+
+    /**
+     * Count of restarted units, guarded by this.
+     */
+    private long restarted;
+
+    /**
+     * Coordinator is closed, guarded by this.
+     */
+    private boolean closed;
+
+    /**
+     * Starts coordinator listening on the loopback interface.
+     * @param port port, zero for any free port
+     * @throws IOException
+     */
+    public Coordinator(int port) throws IOException {
+        this(port, DEFAULT_UNITS);
+    }
+
+    /**
+     * Starts coordinator listening on the loopback interface.
+     * @param port port, zero for any free port
+     * @param minUnits minimal number of units in the frontier
+     * @throws IOException
+     */
+    public Coordinator(int port, int minUnits) throws IOException {
+        if (minUnits < 1) {
+            throw new IllegalArgumentException("Wrong number of units");
+        }
+        this.minUnits = minUnits;
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "coordinator-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Returns listening port.
+     * @return port
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Returns count of connected workers.
+     * @return count of workers
+     */
+    public synchronized int getWorkersCount() {
+        return connections.size();
+    }
+
+    /**
+     * Returns count of units stolen by idle workers from queues of others.
+     * @return count of units
+     */
+    public synchronized long getStolenCount() {
+        return stolen;
+    }
+
+    /**
+     * Returns count of units restarted after disconnection of their worker.
+     * @return count of units
+     */
+    public synchronized long getRestartedCount() {
+        return restarted;
+    }
+
+    /**
+     * Finds the shortest solution, waits for workers if none is connected.
+     * Concurrent searches are run one by one.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param tiles elements by cells
+     * @return solution, not found for unsolvable states
+     * @throws InterruptedException
+     * @throws IllegalStateException if the coordinator is closed
+     */
+    public Solution solve(int rows, int cols, int[] tiles) throws InterruptedException {
+        synchronized (searchLock) {
+            return search(rows, cols, tiles);
+        }
+    }
+
+    /**
+     * Stops the coordinator and its workers.
+     */
+    @Override
+    public void close() {
+        List<Connection> active;
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+            active = new ArrayList<>(connections);
+        }
+        for (Connection connection : active) {
+            connection.send(Protocol.SHUTDOWN, 0);
+            connection.close();
+        }
+        try {
+            server.close();
+        } catch (IOException ex) {
+            // Already closed
+        }
+    }
+
+    /**
+     * Runs IDA* iterations over the frontier.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param tiles elements by cells
+     * @return solution
+     * @throws InterruptedException
+     */
+    private Solution search(int rows, int cols, int[] tiles) throws InterruptedException {
+        Frontier frontier = new Frontier(rows, cols, tiles);
+        if (!frontier.isSolvable()) {
+            return new Solution(null, Integer.MAX_VALUE, 0);
+        }
+        int[] solution = frontier.expand(minUnits);
+        if (solution != null) {
+            return new Solution(solution, solution.length, frontier.getNodes());
+        }
+        List<WorkUnit> units = frontier.getUnits();
+        int depth = frontier.getDepth();
+        List<Connection> busy = new ArrayList<>();
+        int cancelled = 0;
+        try {
+            synchronized (this) {
+                nodes = frontier.getNodes();
+                int bound = depth + frontier.getMinDistance();
+                try {
+                    while (true) {
+                        startIteration(units, bound - depth);
+                        while (remaining > 0 && found == null && !closed) {
+                            wait();
+                        }
+                        if (closed) {
+                            throw new IllegalStateException("Coordinator is closed");
+                        }
+                        if (found != null) {
+                            return new Solution(found, found.length, nodes);
+                        }
+                        bound = nextBound;
+                    }
+                } finally {
+                    // Units of an interrupted search must not go out ahead of the next one
+                    cancelled = iteration;
+                    cancelIteration(busy);
+                }
+            }
+        } finally {
+            // A stalled worker socket must not block handlers waiting for the monitor
+            for (Connection connection : busy) {
+                connection.send(Protocol.CANCEL, cancelled);
+            }
+        }
+    }
+
+    /**
+     * Deals units of a new iteration to workers.
+     * @param units units
+     * @param maxLength maximal number of moves from the frontier
+     */
+    private void startIteration(List<WorkUnit> units, int maxLength) {
+        iteration++;
+        remaining = units.size();
+        nextBound = Integer.MAX_VALUE;
+        found = null;
+        orphans.clear();
+        for (int i = 0; i < units.size(); i++) {
+            WorkUnit unit = units.get(i);
+            unit.iteration = iteration;
+            unit.maxLength = maxLength;
+            if (connections.isEmpty()) {
+                orphans.add(unit);
+            } else {
+                connections.get(i % connections.size()).queue.add(unit);
+            }
+        }
+        notifyAll();
+    }
+
+    /**
+     * Drops queued units and collects workers searching units, so they are
+     * cancelled without holding the monitor.
+     * @param busy list for workers to cancel
+     */
+    private void cancelIteration(List<Connection> busy) {
+        orphans.clear();
+        for (Connection connection : connections) {
+            connection.queue.clear();
+            if (connection.current != null) {
+                busy.add(connection);
+            }
+        }
+    }
+
+    /**
+     * Accepts workers.
+     */
+    private void accept() {
+        while (true) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException ex) {
+                // Server is closed
+                return;
+            }
+            try {
+                final Connection connection = new Connection(socket);
+                synchronized (this) {
+                    if (closed) {
+                        connection.close();
+                        return;
+                    }
+                    connections.add(connection);
+                }
+                Thread handler = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        handle(connection);
+                    }
+                }, "coordinator-worker");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException ex) {
+                // Worker is gone before the start
+            }
+        }
+    }
+
+    /**
+     * Processes messages of the worker.
+     * @param connection worker connection
+     */
+    private void handle(Connection connection) {
+        try {
+            while (true) {
+                byte type = connection.in.readByte();
+                if (type == Protocol.REQUEST) {
+                    WorkUnit unit = takeUnit(connection);
+                    if (unit == null) {
+                        break;
+                    }
+                    connection.sendUnit(unit);
+                } else if (type == Protocol.RESULT) {
+                    int id = connection.in.readInt();
+                    int unitIteration = connection.in.readInt();
+                    boolean solved = connection.in.readBoolean();
+                    int value = connection.in.readInt();
+                    long unitNodes = connection.in.readLong();
+                    int[] moves = Protocol.readArray(connection.in);
+                    complete(connection, id, unitIteration, solved, value, unitNodes, moves);
+                } else {
+                    throw new IOException("Unknown message " + type);
+                }
+            }
+        } catch (IOException | InterruptedException ex) {
+            // Worker is disconnected
+        } finally {
+            disconnect(connection);
+        }
+    }
+
+    /**
+     * Waits for a unit for the worker: from orphans, from its own queue or
+     * stolen from the longest queue of other workers.
+     * @param connection worker connection
+     * @return unit, null if the coordinator is closed
+     * @throws InterruptedException
+     */
+    private synchronized WorkUnit takeUnit(Connection connection) throws InterruptedException {
+        while (!closed) {
+            WorkUnit unit = orphans.poll();
+            if (unit == null) {
+                unit = connection.queue.poll();
+            }
+            if (unit == null) {
+                Connection victim = null;
+                for (Connection other : connections) {
+                    if (victim == null || other.queue.size() > victim.queue.size()) {
+                        victim = other;
+                    }
+                }
+                if (victim != null && !victim.queue.isEmpty()) {
+                    unit = victim.queue.pollLast();
+                    stolen++;
+                }
+            }
+            if (unit != null) {
+                connection.current = unit;
+                connection.currentIteration = unit.iteration;
+                connection.currentMaxLength = unit.maxLength;
+                return unit;
+            }
+            wait();
+        }
+        return null;
+    }
+
+    /**
+     * Registers result of the unit.
+     * @param connection worker connection
+     * @param id unit id
+     * @param unitIteration iteration of the unit
+     * @param solved true if the solution is found
+     * @param value length of the solution or lower bound
+     * @param unitNodes count of expanded nodes
+     * @param moves solution moves
+     */
+    private synchronized void complete(Connection connection, int id, int unitIteration, boolean solved,
+            int value, long unitNodes, int[] moves) {
+        WorkUnit unit = connection.current;
+        connection.current = null;
+        nodes += unitNodes;
+        if (unit == null || unit.id != id || unitIteration != iteration || found != null) {
+            // Result of a cancelled iteration
+            return;
+        }
+        int depth = unit.prefix.length;
+        if (solved) {
+            found = Arrays.copyOf(unit.prefix, depth + moves.length);
+            System.arraycopy(moves, 0, found, depth, moves.length);
+        } else {
+            nextBound = Math.min(nextBound, depth + value);
+        }
+        remaining--;
+        notifyAll();
+    }
+
+    /**
+     * Removes the worker and restarts its units.
+     * @param connection worker connection
+     */
+    private void disconnect(Connection connection) {
+        synchronized (this) {
+            connections.remove(connection);
+            if (connection.current != null && connection.currentIteration == iteration && found == null) {
+                connection.current.iteration = connection.currentIteration;
+                connection.current.maxLength = connection.currentMaxLength;
+                orphans.addFirst(connection.current);
+                restarted++;
+            }
+            connection.current = null;
+            restarted += connection.queue.size();
+            orphans.addAll(connection.queue);
+            connection.queue.clear();
+            notifyAll();
+        }
+        connection.close();
+    }
+
+    /**
+     * Connection to a worker.
+     */
+    private static class Connection {
+
+        private final Socket socket;
+
+        private final DataInputStream in;
+
+        private final DataOutputStream out;
+
+        /**
+         * Units dealt to the worker, guarded by the coordinator.
+         */
+        private final Deque<WorkUnit> queue = new ArrayDeque<>();
+
+        /**
+         * Unit searched by the worker, guarded by the coordinator.
+         */
+        private WorkUnit current;
+
+        /**
+         * Iteration and bound of the searched unit, guarded by the
+         * coordinator.
+         */
+        private int currentIteration;
+
+        private int currentMaxLength;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        /**
+         * Sends the unit, failures are detected by the reading thread.
+         * @param unit unit
+         */
+        void sendUnit(WorkUnit unit) {
+            synchronized (out) {
+                try {
+                    out.writeByte(Protocol.UNIT);
+                    out.writeInt(unit.id);
+                    out.writeInt(unit.iteration);
+                    out.writeInt(unit.maxLength);
+                    out.writeInt(unit.rows);
+                    out.writeInt(unit.cols);
+                    Protocol.writeArray(out, unit.tiles);
+                    out.flush();
+                } catch (IOException ex) {
+                    close();
+                }
+            }
+        }
+
+        /**
+         * Sends message with one argument.
+         * @param type message type
+         * @param argument argument, ignored by shutdown
+         */
+        void send(byte type, int argument) {
+            synchronized (out) {
+                try {
+                    out.writeByte(type);
+                    if (type != Protocol.SHUTDOWN) {
+                        out.writeInt(argument);
+                    }
+                    out.flush();
+                } catch (IOException ex) {
+                    close();
+                }
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // Already closed
+            }
+        }
+
+    }
+
+}
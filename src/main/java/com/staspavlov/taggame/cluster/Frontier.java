@@ -0,0 +1,154 @@
+package com.staspavlov.taggame.cluster;
+
+import com.staspavlov.taggame.game.GameShape;
+import com.staspavlov.taggame.solver.Boards;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Search frontier: all states at the same depth from the start position.
+ * Layers are expanded by breadth-first search without immediate undo
+ * moves, so every solution not shorter than the depth passes through the
+ * frontier.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+final class Frontier {
+
+    /**
+     * Lookup tables of the game area shape.
+     */
+    private final GameShape shape;
+
+    /**
+     * States of the current layer: elements by cells.
+     */
+    private List<int[]> states = new ArrayList<>();
+
+    /**
+     * Moves from the start position by states of the current layer.
+     */
+    private List<int[]> paths = new ArrayList<>();
+
+    /**
+     * Start position is solvable.
+     */
+    private final boolean solvable;
+
+    /**
+     * Count of expanded nodes.
+     */
+    private long nodes;
+
+    Frontier(int rows, int cols, int[] tiles) {
+        this.shape = GameShape.of(rows, cols);
+        if (tiles.length != shape.getSize()) {
+            throw new IllegalArgumentException("Wrong number of elements");
+        }
+        this.solvable = Boards.isSolvable(tiles, cols);
+        states.add(tiles.clone());
+        paths.add(new int[0]);
+    }
+
+    boolean isSolvable() {
+        return solvable;
+    }
+
+    /**
+     * Expands layers until the frontier is large enough.
+     * @param minUnits minimal number of states
+     * @return solution found during the expansion, null if not found
+     */
+    int[] expand(int minUnits) {
+        for (int i = 0; i < states.size(); i++) {
+            if (distance(states.get(i)) == 0) {
+                return paths.get(i);
+            }
+        }
+        while (states.size() < minUnits) {
+            List<int[]> nextStates = new ArrayList<>(states.size() * 3);
+            List<int[]> nextPaths = new ArrayList<>(states.size() * 3);
+            for (int i = 0; i < states.size(); i++) {
+                int[] state = states.get(i);
+                int[] path = paths.get(i);
+                int previous = path.length > 0 ? path[path.length - 1] : 0;
+                int blank = indexOf(state, 0);
+                nodes++;
+                for (int cell = 0; cell < state.length; cell++) {
+                    if (state[cell] == previous || !shape.isAdjacent(cell, blank)) {
+                        continue;
+                    }
+                    int[] next = state.clone();
+                    next[blank] = state[cell];
+                    next[cell] = 0;
+                    int[] nextPath = Arrays.copyOf(path, path.length + 1);
+                    nextPath[path.length] = state[cell];
+                    if (distance(next) == 0) {
+                        return nextPath;
+                    }
+                    nextStates.add(next);
+                    nextPaths.add(nextPath);
+                }
+            }
+            states = nextStates;
+            paths = nextPaths;
+        }
+        return null;
+    }
+
+    /**
+     * Returns states of the frontier as work units.
+     * @return units
+     */
+    List<WorkUnit> getUnits() {
+        List<WorkUnit> units = new ArrayList<>(states.size());
+        for (int i = 0; i < states.size(); i++) {
+            units.add(new WorkUnit(i, shape.getRows(), shape.getCols(), states.get(i), paths.get(i)));
+        }
+        return units;
+    }
+
+    /**
+     * Returns number of moves from the start position to the frontier.
+     * @return depth
+     */
+    int getDepth() {
+        return paths.get(0).length;
+    }
+
+    /**
+     * Returns the minimal Manhattan distance of the frontier states.
+     * @return distance
+     */
+    int getMinDistance() {
+        int min = Integer.MAX_VALUE;
+        for (int[] state : states) {
+            min = Math.min(min, distance(state));
+        }
+        return min;
+    }
+
+    long getNodes() {
+        return nodes;
+    }
+
+    private int distance(int[] state) {
+        int distance = 0;
+        for (int cell = 0; cell < state.length; cell++) {
+            if (state[cell] != 0) {
+                distance += shape.distance(state[cell], cell);
+            }
+        }
+        return distance;
+    }
+
+    private static int indexOf(int[] state, int element) {
+        for (int cell = 0; cell < state.length; cell++) {
+            if (state[cell] == element) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.staspavlov.taggame.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Messages between coordinator and workers.
+ * Every message starts with its type byte, numbers are big-endian.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+final class Protocol {
+
+    /**
+     * Worker asks for a work unit.
+     */
+    static final byte REQUEST = 1;
+
+    /**
+     * Worker reports result: unit id, iteration, found flag, solution
+     * length or lower bound, nodes and moves.
+     */
+    static final byte RESULT = 2;
+
+    /**
+     * Coordinator sends a work unit: unit id, iteration, maximal length,
+     * rows, columns and elements.
+     */
+    static final byte UNIT = 3;
+
+    /**
+     * Coordinator cancels units of the iteration and older ones.
+     */
+    static final byte CANCEL = 4;
+
+    /**
+     * Coordinator stops the worker.
+     */
+    static final byte SHUTDOWN = 5;
+
+    /**
+     * Maximal number of integers in an array of a message.
+     */
+    private static final int MAX_ARRAY = 1 << 20;
+
+    private Protocol() {
+    }
+
+    /**
+     * Writes array of integers with its length.
+     * @param out output
+     * @param values values
+     * @throws IOException
+     */
+    static void writeArray(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Reads array of integers with its length.
+     * @param in input
+     * @return values
+     * @throws IOException if the stream is broken or the length is wrong
+     */
+    static int[] readArray(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_ARRAY) {
+            throw new IOException("Wrong array length " + length);
+        }
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.staspavlov.taggame.cluster;
+
+/**
+ * State of the search frontier to be searched within a bound.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+final class WorkUnit {
+
+    /**
+     * Unit id, index in the frontier.
+     */
+    final int id;
+
+    /**
+     * Number of rows.
+     */
+    final int rows;
+
+    /**
+     * Number of columns.
+     */
+    final int cols;
+
+    /**
+     * Elements by cells.
+     */
+    final int[] tiles;
+
+    /**
+     * Moves from the start position to the state, null for workers.
+     */
+    final int[] prefix;
+
+    /**
+     * Iteration of the search.
+     */
+    int iteration;
+
+    /**
+     * Maximal number of moves from the state.
+     */
+    int maxLength;
+
+    WorkUnit(int id, int rows, int cols, int[] tiles, int[] prefix) {
+        this.id = id;
+        this.rows = rows;
+        this.cols = cols;
+        this.tiles = tiles;
+        this.prefix = prefix;
+    }
+
+}
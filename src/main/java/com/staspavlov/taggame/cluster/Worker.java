@@ -0,0 +1,238 @@
+package com.staspavlov.taggame.cluster;
+
+import com.staspavlov.taggame.solver.IdaStarSolver;
+import com.staspavlov.taggame.solver.Solution;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * Worker solves work units of a coordinator.
+ * A reader thread receives units and cancellations, the calling thread
+ * searches units one by one with IDA* bounded by the coordinator.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class Worker implements Runnable, Closeable {
+
+    /**
+     * Coordinator host.
+     */
+    private final String host;
+
+    /**
+     * Coordinator port.
+     */
+    private final int port;
+
+    /**
+     * Connection to the coordinator.
+     */
+    private Socket socket;
+
+    /**
+     * Output to the coordinator.
+     */
+    private DataOutputStream out;
+
+    /**
+     * Received unit waiting for the search, guarded by this.
+     */
+    private WorkUnit pending;
+
+    /**
+     * Solver of the current unit, guarded by this.
+     */
+    private IdaStarSolver solver;
+
+    /**
+     * Iteration of the current unit, guarded by this.
+     */
+    private int iteration;
+
+    /**
+     * The latest cancelled iteration, guarded by this.
+     */
+    private int cancelledIteration = -1;
+
+    /**
+     * Worker is stopped, guarded by this.
+     */
+    private boolean stopped;
+
+    /**
+     * Creates worker instance.
+     * @param host coordinator host
+     * @param port coordinator port
+     */
+    public Worker(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Connects to the coordinator and solves units until shutdown.
+     */
+    @Override
+    public void run() {
+        try {
+            synchronized (this) {
+                if (stopped) {
+                    return;
+                }
+                socket = new Socket(host, port);
+                socket.setTcpNoDelay(true);
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            }
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    read(in);
+                }
+            }, "worker-reader");
+            reader.setDaemon(true);
+            reader.start();
+            while (true) {
+                send(Protocol.REQUEST);
+                WorkUnit unit = takeUnit();
+                if (unit == null) {
+                    break;
+                }
+                solve(unit);
+            }
+        } catch (IOException | InterruptedException ex) {
+            // Coordinator is gone, its units are restarted by others
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Stops the worker.
+     */
+    @Override
+    public synchronized void close() {
+        stopped = true;
+        if (solver != null) {
+            solver.cancel();
+        }
+        notifyAll();
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // Already closed
+            }
+        }
+    }
+
+    /**
+     * Reads messages of the coordinator.
+     * @param in input
+     */
+    private void read(DataInputStream in) {
+        try {
+            while (true) {
+                byte type = in.readByte();
+                if (type == Protocol.UNIT) {
+                    int id = in.readInt();
+                    int unitIteration = in.readInt();
+                    int maxLength = in.readInt();
+                    int rows = in.readInt();
+                    int cols = in.readInt();
+                    WorkUnit unit = new WorkUnit(id, rows, cols, Protocol.readArray(in), null);
+                    unit.iteration = unitIteration;
+                    unit.maxLength = maxLength;
+                    synchronized (this) {
+                        pending = unit;
+                        notifyAll();
+                    }
+                } else if (type == Protocol.CANCEL) {
+                    int cancelled = in.readInt();
+                    synchronized (this) {
+                        cancelledIteration = Math.max(cancelledIteration, cancelled);
+                        if (solver != null && iteration <= cancelled) {
+                            solver.cancel();
+                        }
+                    }
+                } else if (type == Protocol.SHUTDOWN) {
+                    break;
+                } else {
+                    throw new IOException("Unknown message " + type);
+                }
+            }
+        } catch (EOFException ex) {
+            // Coordinator is closed
+        } catch (IOException ex) {
+            // Connection is broken
+        }
+        close();
+    }
+
+    /**
+     * Waits for the next unit.
+     * @return unit, null if the worker is stopped
+     * @throws InterruptedException
+     */
+    private synchronized WorkUnit takeUnit() throws InterruptedException {
+        while (pending == null && !stopped) {
+            wait();
+        }
+        if (stopped) {
+            return null;
+        }
+        WorkUnit unit = pending;
+        pending = null;
+        solver = new IdaStarSolver(unit.rows, unit.cols, unit.tiles);
+        iteration = unit.iteration;
+        // Unit may be cancelled before its search is started
+        if (iteration <= cancelledIteration) {
+            solver.cancel();
+        }
+        return unit;
+    }
+
+    /**
+     * Searches the unit and sends the result.
+     * @param unit unit
+     * @throws IOException
+     */
+    private void solve(WorkUnit unit) throws IOException {
+        IdaStarSolver current;
+        synchronized (this) {
+            current = solver;
+        }
+        Solution solution = current.solve(Long.MAX_VALUE, unit.maxLength);
+        synchronized (this) {
+            solver = null;
+        }
+        synchronized (out) {
+            out.writeByte(Protocol.RESULT);
+            out.writeInt(unit.id);
+            out.writeInt(unit.iteration);
+            out.writeBoolean(solution.isFound());
+            out.writeInt(solution.isFound() ? solution.getLength() : solution.getLowerBound());
+            out.writeLong(solution.getNodes());
+            Protocol.writeArray(out, solution.getMoves());
+            out.flush();
+        }
+    }
+
+    /**
+     * Sends message without arguments.
+     * @param type message type
+     * @throws IOException
+     */
+    private void send(byte type) throws IOException {
+        synchronized (out) {
+            out.writeByte(type);
+            out.flush();
+        }
+    }
+
+}
@@ -1,14 +1,23 @@
 package com.staspavlov.taggame.controller;
 
 import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.metrics.FrameStats;
 import com.staspavlov.taggame.model.ElementSize;
 import com.staspavlov.taggame.model.Model;
+import com.staspavlov.taggame.shared.BoardPublisher;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
@@ -19,13 +28,18 @@ import javafx.fxml.Initializable;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.Label;
 import javafx.scene.control.MenuBar;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.ToolBar;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.RowConstraints;
 import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 /**
@@ -34,6 +48,31 @@ import javafx.stage.Stage;
  */
 public class GameController implements Initializable {
 
+    /**
+     * Capacity of the input queue.
+     */
+    private static final int INPUT_CAPACITY = 256;
+
+    /**
+     * Inputs for moving the element below, above, to the right and to the
+     * left of the empty cell. Elements to move are positive inputs.
+     */
+    private static final int MOVE_UP = -1;
+    private static final int MOVE_DOWN = -2;
+    private static final int MOVE_LEFT = -3;
+    private static final int MOVE_RIGHT = -4;
+
+    /**
+     * Duration of a tile slide.
+     */
+    private static final long SLIDE_DURATION = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Maximal number of moves per pulse to animate, tiles jump to their
+     * cells on faster input or replay.
+     */
+    private static final int MAX_ANIMATED_MOVES = 4;
+
     /**
      * Model.
      */
@@ -90,6 +129,30 @@ public class GameController implements Initializable {
     @FXML
     private Text movesCounter;
 
+    /**
+     * Lower bound of moves to complete the game.
+     */
+    @FXML
+    private Text distanceCounter;
+
+    /**
+     * Share of elements in place.
+     */
+    @FXML
+    private ProgressBar progressBar;
+
+    /**
+     * Performance overlay.
+     */
+    @FXML
+    private Label hudLabel;
+
+    /**
+     * Performance overlay switch.
+     */
+    @FXML
+    private CheckMenuItem hudMenuItem;
+
     /**
      * List of buttons.
      */
@@ -100,6 +163,97 @@ public class GameController implements Initializable {
      */
     private final Timer timer = new Timer();
 
+    /**
+     * Moves waiting for the next pulse.
+     */
+    private final InputQueue inputQueue = new InputQueue(INPUT_CAPACITY);
+
+    /**
+     * Frame times and input latencies.
+     */
+    private final FrameStats frameStats = new FrameStats(INPUT_CAPACITY);
+
+    /**
+     * Publisher of the board for other processes, null if disabled.
+     */
+    private BoardPublisher publisher;
+
+    /**
+     * Offsets of sliding tiles.
+     */
+    private final SlideAnimator slideAnimator = new SlideAnimator(SLIDE_DURATION, MAX_ANIMATED_MOVES);
+
+    /**
+     * Width of a cell at the current pulse.
+     */
+    private double cellWidth;
+
+    /**
+     * Height of a cell at the current pulse.
+     */
+    private double cellHeight;
+
+    /**
+     * Shifts tiles by offsets of the animator.
+     */
+    private final SlideAnimator.Target slideTarget = new SlideAnimator.Target() {
+        @Override
+        public void offset(int element, double rows, double cols) {
+            Button btn = gameBtns[element - 1];
+            btn.setTranslateX(cols * cellWidth);
+            btn.setTranslateY(rows * cellHeight);
+        }
+    };
+
+    /**
+     * Applies queued moves and slides tiles once per pulse.
+     */
+    private final AnimationTimer inputTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            boolean windowCompleted = frameStats.pulseStarted(System.nanoTime());
+            processInput();
+            animateSlides();
+            frameStats.pulseFinished(System.nanoTime());
+            if (windowCompleted && hudLabel.isVisible()) {
+                hudLabel.setText(frameStats.getSummary());
+            }
+        }
+    };
+
+    /**
+     * Key press handler.
+     */
+    private final EventHandler<KeyEvent> keyHandler = new EventHandler<KeyEvent>() {
+        @Override
+        public void handle(KeyEvent event) {
+            int input;
+            switch (event.getCode()) {
+                case UP:
+                case W:
+                    input = MOVE_UP;
+                    break;
+                case DOWN:
+                case S:
+                    input = MOVE_DOWN;
+                    break;
+                case LEFT:
+                case A:
+                    input = MOVE_LEFT;
+                    break;
+                case RIGHT:
+                case D:
+                    input = MOVE_RIGHT;
+                    break;
+                default:
+                    return;
+            }
+            queueInput(input);
+            // Arrows must not move focus between buttons
+            event.consume();
+        }
+    };
+
     /**
      * Game change listener.
      */
@@ -127,9 +281,21 @@ public class GameController implements Initializable {
      * @param wizardStage Wizard stage
      */
     public GameController(Model model, Stage gameStage, Stage wizardStage) {
+        this(model, gameStage, wizardStage, null);
+    }
+
+    /**
+     * Creates GameController instance publishing the board.
+     * @param model Model
+     * @param gameStage Game stage
+     * @param wizardStage Wizard stage
+     * @param publisher Board publisher, null to disable
+     */
+    public GameController(Model model, Stage gameStage, Stage wizardStage, BoardPublisher publisher) {
         this.model = model;
         this.gameStage = gameStage;
         this.wizardStage = wizardStage;
+        this.publisher = publisher;
     }
 
     /**
@@ -148,6 +314,10 @@ public class GameController implements Initializable {
         // Adjust game area on elements size change
         model.getElementSizeProperty().addListener(elementSizeListener);
 
+        // Queue keyboard moves and apply them on pulses
+        gameStage.addEventFilter(KeyEvent.KEY_PRESSED, keyHandler);
+        inputTimer.start();
+
         // Start timer
         timer.schedule(new TimerTask() {
             @Override
@@ -164,6 +334,8 @@ public class GameController implements Initializable {
     public void cleanUp() {
         model.getGameProperty().removeListener(gameListener);
         model.getElementSizeProperty().removeListener(elementSizeListener);
+        gameStage.removeEventFilter(KeyEvent.KEY_PRESSED, keyHandler);
+        inputTimer.stop();
         timer.cancel();
     }
 
@@ -230,14 +402,51 @@ public class GameController implements Initializable {
         model.setElementSize(ElementSize.LARGE);
     }
 
+    /**
+     * Processes request for show or hide performance overlay.
+     * @param event
+     */
+    @FXML
+    public void toggleHudAction(ActionEvent event) {
+        hudLabel.setVisible(hudMenuItem.isSelected());
+        hudLabel.setText(frameStats.getSummary());
+    }
+
+    /**
+     * Processes request for export performance statistics.
+     * @param event
+     */
+    @FXML
+    public void exportStatsAction(ActionEvent event) {
+        FileChooser chooser = new FileChooser();
+        chooser.setInitialFileName("stats.txt");
+        File file = chooser.showSaveDialog(gameStage);
+        if (file == null) {
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            frameStats.writeTo(writer);
+        } catch (IOException ex) {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setHeaderText(null);
+            alert.setContentText(resourceBundle.getString("game.stats.error") + " " + ex.getMessage());
+            alert.showAndWait();
+        }
+    }
+
     /**
      * Starts new game.
      */
     private void initGameArea() {
+        // Moves of the previous game are dropped
+        inputQueue.clear();
+        // New buttons stand in their cells
+        slideAnimator.reset(model.getGame().getSize());
         adjustGameAreaSize();
         initGameBtns();
         initGameGrid();
         renderGameArea();
+        publishBoard();
     }
 
     /**
@@ -262,16 +471,15 @@ public class GameController implements Initializable {
         int count = game.getSize() - 1;
         gameBtns = new Button[count];
         for (int i = 0; i < count; i++) {
-            Button btn = new Button(String.valueOf(i + 1));
+            final int element = i + 1;
+            Button btn = new Button(String.valueOf(element));
             btn.setMaxHeight(Double.MAX_VALUE);
             btn.setMaxWidth(Double.MAX_VALUE);
             btn.getStyleClass().add("gameBtn");
             btn.setOnAction(new EventHandler<ActionEvent>() {
                 @Override
                 public void handle(ActionEvent event) {
-                    Button btn = (Button) event.getTarget();
-                    int element = Integer.valueOf(btn.getText());
-                    makeMove(element);
+                    queueInput(element);
                 }
             });
             gameBtns[i] = btn;
@@ -315,6 +523,7 @@ public class GameController implements Initializable {
         AnchorPane.setBottomAnchor(gameGrid, 0.0);
         AnchorPane.setLeftAnchor(gameGrid, 0.0);
         gameArea.getChildren().add(gameGrid);
+        hudLabel.toFront();
     }
 
     /**
@@ -322,25 +531,128 @@ public class GameController implements Initializable {
      */
     private void renderGameArea() {
         Game game = model.getGame();
-        for (Button btn : gameBtns) {
-            int element = Integer.valueOf(btn.getText());
-            int[] pos = game.getPosition(element);
-            GridPane.setRowIndex(btn, pos[0]);
-            GridPane.setColumnIndex(btn, pos[1]);
+        for (int i = 0; i < gameBtns.length; i++) {
+            GridPane.setRowIndex(gameBtns[i], game.getRowOf(i + 1));
+            GridPane.setColumnIndex(gameBtns[i], game.getColOf(i + 1));
         }
         movesCounter.setText(String.valueOf(game.getMovesCount()));
+        distanceCounter.setText(String.valueOf(game.getDistanceBound()));
+        progressBar.setProgress((double) game.getElementsInPlace() / (game.getSize() - 1));
+    }
+
+    /**
+     * Queues move for the next pulse.
+     * @param input element to move or direction
+     */
+    void queueInput(int input) {
+        if (inputQueue.offer(input)) {
+            frameStats.inputQueued(System.nanoTime());
+        }
     }
 
     /**
-     * Process game move.
+     * Applies queued moves and renders game area once if any move is made.
+     * Moves queued after the game is completed are dropped. Tiles are
+     * placed to their cells at once and slide there on the next pulses.
      */
-    private void makeMove(int element) {
+    void processInput() {
         Game game = model.getGame();
-        if (game.makeMove(element)) {
+        long now = System.nanoTime();
+        boolean moved = false;
+        int blankRow = -1;
+        int blankCol = -1;
+        for (int input = inputQueue.poll(); input != 0; input = inputQueue.poll()) {
+            if (game.isCompleted()) {
+                continue;
+            }
+            if (input > 0) {
+                if (game.makeMove(input)) {
+                    publishMove(game, input);
+                    slide(game, input, now);
+                    moved = true;
+                    // Empty cell is found again for the next keyboard move
+                    blankRow = -1;
+                }
+                continue;
+            }
+            if (blankRow < 0) {
+                blankRow = game.getRowOf(0);
+                blankCol = game.getColOf(0);
+            }
+            // Element next to the empty cell moves in the direction of the key
+            int row = blankRow + (input == MOVE_UP ? 1 : input == MOVE_DOWN ? -1 : 0);
+            int col = blankCol + (input == MOVE_LEFT ? 1 : input == MOVE_RIGHT ? -1 : 0);
+            if (row >= 0 && row < game.getRows() && col >= 0 && col < game.getCols()
+                    && game.makeMove(game.getElement(row, col))) {
+                int element = game.getElement(blankRow, blankCol);
+                publishMove(game, element);
+                slide(game, element, now);
+                moved = true;
+                blankRow = row;
+                blankCol = col;
+            }
+        }
+        if (moved) {
             renderGameArea();
+            if (game.isCompleted()) {
+                // Dialogs can't be shown during pulse processing
+                Platform.runLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        endGame();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Starts slide of the moved element from the empty cell.
+     * @param game Game
+     * @param element moved element
+     * @param now time in nanoseconds
+     */
+    private void slide(Game game, int element, long now) {
+        slideAnimator.moved(element, game.getRowOf(element) - game.getRowOf(0),
+                game.getColOf(element) - game.getColOf(0), now);
+    }
+
+    /**
+     * Shifts sliding tiles for the current pulse.
+     */
+    private void animateSlides() {
+        Game game = model.getGame();
+        cellWidth = gameGrid.getWidth() / game.getCols();
+        cellHeight = gameGrid.getHeight() / game.getRows();
+        slideAnimator.update(System.nanoTime(), slideTarget);
+    }
+
+    /**
+     * Publishes the whole board.
+     */
+    private void publishBoard() {
+        if (publisher == null) {
+            return;
         }
-        if (game.isCompleted()) {
-            endGame();
+        try {
+            publisher.publish(model.getGame());
+        } catch (IOException ex) {
+            // Game goes on without spectators
+            ex.printStackTrace();
+            publisher = null;
+        }
+    }
+
+    /**
+     * Publishes the move.
+     * @param game Game
+     * @param element moved element
+     */
+    private void publishMove(Game game, int element) {
+        if (publisher != null) {
+            int cols = game.getCols();
+            publisher.move(element, game.getRowOf(element) * cols + game.getColOf(element),
+                    game.getRowOf(0) * cols + game.getColOf(0), game.getMovesCount(), game.isCompleted());
         }
     }
 
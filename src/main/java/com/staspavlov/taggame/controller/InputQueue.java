@@ -0,0 +1,94 @@
+package com.staspavlov.taggame.controller;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * InputQueue is a bounded lock-free queue of user inputs.
+ * Any thread may offer inputs, a single consumer polls them. Inputs are
+ * non-zero integers, the queue does not allocate after creation.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class InputQueue {
+
+    /**
+     * Inputs by index modulo capacity, zero for empty slot.
+     */
+    private final AtomicIntegerArray slots;
+
+    /**
+     * Capacity minus one.
+     */
+    private final int mask;
+
+    /**
+     * Next index to offer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Next index to poll, written by the consumer only.
+     */
+    private volatile long head;
+
+    /**
+     * Creates queue instance.
+     * @param capacity maximal number of inputs, rounded up to power of two
+     */
+    public InputQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Wrong capacity");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        slots = new AtomicIntegerArray(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Adds input to the queue.
+     * @param input non-zero input
+     * @return false if the queue is full
+     */
+    public boolean offer(int input) {
+        if (input == 0) {
+            throw new IllegalArgumentException("Input must be non-zero");
+        }
+        while (true) {
+            long index = tail.get();
+            if (index - head > mask) {
+                return false;
+            }
+            if (tail.compareAndSet(index, index + 1)) {
+                slots.set((int) index & mask, input);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes next input from the queue, consumer thread only.
+     * @return input, zero if the queue is empty
+     */
+    public int poll() {
+        int slot = (int) head & mask;
+        int input = slots.get(slot);
+        if (input != 0) {
+            slots.lazySet(slot, 0);
+            head = head + 1;
+        }
+        return input;
+    }
+
+    /**
+     * Removes all published inputs, consumer thread only.
+     */
+    public void clear() {
+        while (poll() != 0) {
+            // Drop input
+        }
+    }
+
+}
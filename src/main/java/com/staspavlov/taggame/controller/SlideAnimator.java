@@ -0,0 +1,225 @@
+package com.staspavlov.taggame.controller;
+
+/**
+ * SlideAnimator interpolates offsets of moving elements from their old
+ * cells to the new ones. Offsets are measured in cells from the current
+ * cell of the element and decay to zero with ease-out. A move of an
+ * element which is still sliding continues from its current offset, so
+ * rapid moves merge into one slide. When more moves arrive in a pulse than
+ * can be shown, all elements skip to their cells. Arrays are allocated
+ * for the number of elements only, updates do not allocate.
+ * Called by the FX thread only.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class SlideAnimator {
+
+    /**
+     * Receiver of offsets.
+     */
+    public interface Target {
+
+        /**
+         * Sets offset of the element.
+         * @param element element
+         * @param rows offset in rows
+         * @param cols offset in columns
+         */
+        public void offset(int element, double rows, double cols);
+
+    }
+
+    /**
+     * Duration of a slide in nanoseconds.
+     */
+    private final long duration;
+
+    /**
+     * Maximal number of moves per pulse to animate.
+     */
+    private final int maxMoves;
+
+    /**
+     * Offsets in rows by elements at the start of slides.
+     */
+    private double[] fromRows = new double[0];
+
+    /**
+     * Offsets in columns by elements at the start of slides.
+     */
+    private double[] fromCols = new double[0];
+
+    /**
+     * Offsets in rows by elements at the last update.
+     */
+    private double[] rows = new double[0];
+
+    /**
+     * Offsets in columns by elements at the last update.
+     */
+    private double[] cols = new double[0];
+
+    /**
+     * Start times of slides by elements.
+     */
+    private long[] starts = new long[0];
+
+    /**
+     * Sliding elements.
+     */
+    private int[] active = new int[0];
+
+    /**
+     * Indexes in the list of sliding elements by elements, -1 if standing.
+     */
+    private int[] indexes = new int[0];
+
+    /**
+     * Number of sliding elements.
+     */
+    private int activeCount;
+
+    /**
+     * Number of moves in the current pulse.
+     */
+    private int pulseMoves;
+
+    /**
+     * Creates animator instance.
+     * @param duration duration of a slide in nanoseconds
+     * @param maxMoves maximal number of moves per pulse to animate
+     */
+    public SlideAnimator(long duration, int maxMoves) {
+        if (duration < 1 || maxMoves < 1) {
+            throw new IllegalArgumentException("Wrong animation settings");
+        }
+        this.duration = duration;
+        this.maxMoves = maxMoves;
+    }
+
+    /**
+     * Stops all slides and prepares arrays for the game.
+     * Offsets of stopped elements are not reported.
+     * @param size number of cells of the game
+     */
+    public void reset(int size) {
+        if (indexes.length < size) {
+            fromRows = new double[size];
+            fromCols = new double[size];
+            rows = new double[size];
+            cols = new double[size];
+            starts = new long[size];
+            active = new int[size];
+            indexes = new int[size];
+        }
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = -1;
+        }
+        activeCount = 0;
+        pulseMoves = 0;
+    }
+
+    /**
+     * Starts a slide of the moved element.
+     * @param element element
+     * @param rowDelta rows the element moved by
+     * @param colDelta columns the element moved by
+     * @param now time in nanoseconds
+     */
+    public void moved(int element, int rowDelta, int colDelta, long now) {
+        if (++pulseMoves > maxMoves) {
+            skip();
+            return;
+        }
+        int index = indexes[element];
+        if (index < 0) {
+            indexes[element] = activeCount;
+            active[activeCount++] = element;
+            rows[element] = 0;
+            cols[element] = 0;
+        }
+        // Slide from where the element is shown now
+        fromRows[element] = rows[element] - rowDelta;
+        fromCols[element] = cols[element] - colDelta;
+        rows[element] = fromRows[element];
+        cols[element] = fromCols[element];
+        starts[element] = now;
+    }
+
+    /**
+     * Moves sliding elements to their cells at the next update.
+     */
+    public void skip() {
+        for (int i = 0; i < activeCount; i++) {
+            int element = active[i];
+            fromRows[element] = 0;
+            fromCols[element] = 0;
+        }
+    }
+
+    /**
+     * Reports offsets of sliding elements, finished ones are reported with
+     * zero offsets once. Ends the pulse.
+     * @param now time in nanoseconds
+     * @param target receiver of offsets
+     * @return true if any element is still sliding
+     */
+    public boolean update(long now, Target target) {
+        pulseMoves = 0;
+        for (int i = 0; i < activeCount; i++) {
+            int element = active[i];
+            long elapsed = now - starts[element];
+            if (elapsed >= duration || (fromRows[element] == 0 && fromCols[element] == 0)) {
+                rows[element] = 0;
+                cols[element] = 0;
+                target.offset(element, 0, 0);
+                remove(i--);
+                continue;
+            }
+            double rest = elapsed <= 0 ? 1 : 1 - (double) elapsed / duration;
+            double scale = rest * rest;
+            rows[element] = fromRows[element] * scale;
+            cols[element] = fromCols[element] * scale;
+            target.offset(element, rows[element], cols[element]);
+        }
+        return activeCount > 0;
+    }
+
+    /**
+     * Returns number of sliding elements.
+     * @return count
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * Returns offset of the element in rows at the last update.
+     * @param element element
+     * @return offset
+     */
+    public double getRowOffset(int element) {
+        return indexes[element] < 0 ? 0 : rows[element];
+    }
+
+    /**
+     * Returns offset of the element in columns at the last update.
+     * @param element element
+     * @return offset
+     */
+    public double getColOffset(int element) {
+        return indexes[element] < 0 ? 0 : cols[element];
+    }
+
+    /**
+     * Removes element from the list of sliding ones.
+     * @param index index in the list
+     */
+    private void remove(int index) {
+        int element = active[index];
+        int last = active[--activeCount];
+        active[index] = last;
+        indexes[last] = index;
+        indexes[element] = -1;
+    }
+
+}
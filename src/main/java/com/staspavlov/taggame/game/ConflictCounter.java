@@ -0,0 +1,73 @@
+package com.staspavlov.taggame.game;
+
+/**
+ * ConflictCounter counts linear conflicts of one line at a time. Goal
+ * positions of the elements which belong to the line are added in the
+ * order of its cells. Elements outside the longest increasing subsequence
+ * of the positions must leave the line to let the others pass. Buffers are
+ * reused, so counting allocates nothing.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public final class ConflictCounter {
+
+    /**
+     * Goal positions of the added elements.
+     */
+    private final int[] positions;
+
+    /**
+     * Least tails of increasing subsequences by their lengths.
+     */
+    private final int[] tails;
+
+    /**
+     * Count of added positions.
+     */
+    private int count;
+
+    /**
+     * Creates counter instance.
+     * @param length maximal length of a line
+     */
+    public ConflictCounter(int length) {
+        this.positions = new int[length];
+        this.tails = new int[length];
+    }
+
+    /**
+     * Adds goal position of the next element of the line.
+     * @param position goal position of the element in the line
+     */
+    public void add(int position) {
+        positions[count++] = position;
+    }
+
+    /**
+     * Returns conflicts of the added elements and starts the next line.
+     * @return count of elements which must leave the line
+     */
+    public int finish() {
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            int value = positions[i];
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (tails[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            tails[low] = value;
+            if (low == length) {
+                length++;
+            }
+        }
+        int conflicts = count - length;
+        count = 0;
+        return conflicts;
+    }
+
+}
@@ -31,6 +31,35 @@ public interface Game {
      */
     public int[] getPosition(int element);
 
+    /**
+     * Returns row of element in the game area, without allocation.
+     * @param element
+     * @return row of element
+     */
+    public int getRowOf(int element);
+
+    /**
+     * Returns column of element in the game area, without allocation.
+     * @param element
+     * @return column of element
+     */
+    public int getColOf(int element);
+
+    /**
+     * Returns element at position (row and column) in the game area.
+     * @param row
+     * @param col
+     * @return element, zero for empty cell
+     */
+    public int getElement(int row, int col);
+
+    /**
+     * Checks if the goal is the classic one: elements in ascending order
+     * with one empty cell in the end.
+     * @return true if classic
+     */
+    public boolean isClassicGoal();
+
     /**
      * Make move of element.
      * @param element
@@ -49,6 +78,44 @@ public interface Game {
      */
     public void shuffle();
 
+    /**
+     * Returns Zobrist hash of the game state.
+     * The hash is updated by every move.
+     * @return hash
+     */
+    public long getHash();
+
+    /**
+     * Returns immutable snapshot of the game state.
+     * @return snapshot
+     */
+    public GameSnapshot getSnapshot();
+
+    /**
+     * Returns sum of Manhattan distances of elements to their places.
+     * @return distance
+     */
+    public int getManhattanDistance();
+
+    /**
+     * Returns count of elements in place.
+     * @return count of elements
+     */
+    public int getElementsInPlace();
+
+    /**
+     * Returns count of elements which must leave their goal row or column
+     * to let other elements of the line pass.
+     * @return count of linear conflicts
+     */
+    public int getLinearConflicts();
+
+    /**
+     * Returns lower bound of moves needed to complete the game.
+     * @return Manhattan distance plus two moves per linear conflict
+     */
+    public int getDistanceBound();
+
     /**
      * Returns count of moves.
      * @return Count of moves
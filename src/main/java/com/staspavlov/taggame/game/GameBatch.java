@@ -0,0 +1,331 @@
+package com.staspavlov.taggame.game;
+
+/**
+ * GameBatch simulates many games of one shape in lockstep.
+ * Boards are kept in flat arrays: elements of board i occupy cells
+ * i * size to (i + 1) * size - 1. Every step applies one action to every
+ * board. An action is a direction of the empty cell, the reward is the
+ * decrease of the Manhattan distance, so a legal move is rewarded with 1
+ * or -1 and an illegal one with ILLEGAL_REWARD. Completed boards ignore
+ * actions until they are reset. Not thread-safe.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class GameBatch {
+
+    /**
+     * Actions: directions of the empty cell.
+     */
+    public static final int UP = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+
+    /**
+     * Reward of a move out of the game area.
+     */
+    public static final int ILLEGAL_REWARD = -2;
+
+    /**
+     * Lookup tables of the game area shape.
+     */
+    private final GameShape shape;
+
+    /**
+     * Number of boards.
+     */
+    private final int count;
+
+    /**
+     * Number of cells per board.
+     */
+    private final int size;
+
+    /**
+     * Cells next to the cell by actions, -1 outside of the game area.
+     */
+    private final int[] neighbors;
+
+    /**
+     * Elements by cells of all boards.
+     */
+    private final int[] tiles;
+
+    /**
+     * Empty cells by boards.
+     */
+    private final int[] blanks;
+
+    /**
+     * Numbers of moves by boards.
+     */
+    private final int[] moves;
+
+    /**
+     * Manhattan distances by boards.
+     */
+    private final int[] distances;
+
+    /**
+     * Completion flags by boards.
+     */
+    private final boolean[] done;
+
+    /**
+     * State of the random generator.
+     */
+    private long seed;
+
+    /**
+     * Creates batch of boards in the goal state.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param count number of boards
+     * @param seed seed of random scrambles
+     */
+    public GameBatch(int rows, int cols, int count, long seed) {
+        if (rows < 2 || cols < 2 || count < 1 || (long) rows * cols * count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Wrong batch size");
+        }
+        this.shape = GameShape.of(rows, cols);
+        this.count = count;
+        this.size = rows * cols;
+        this.neighbors = new int[size * 4];
+        for (int cell = 0; cell < size; cell++) {
+            int row = shape.rowOf(cell);
+            int col = shape.colOf(cell);
+            neighbors[cell * 4 + UP] = row > 0 ? cell - cols : -1;
+            neighbors[cell * 4 + DOWN] = row < rows - 1 ? cell + cols : -1;
+            neighbors[cell * 4 + LEFT] = col > 0 ? cell - 1 : -1;
+            neighbors[cell * 4 + RIGHT] = col < cols - 1 ? cell + 1 : -1;
+        }
+        this.tiles = new int[size * count];
+        this.blanks = new int[count];
+        this.moves = new int[count];
+        this.distances = new int[count];
+        this.done = new boolean[count];
+        // Zero seed would stop the generator
+        this.seed = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+        for (int board = 0; board < count; board++) {
+            resetToGoal(board);
+        }
+    }
+
+    /**
+     * Applies one action to every board.
+     * @param actions actions by boards
+     * @param rewards array to store rewards by boards
+     * @return number of boards completed by this step
+     */
+    public int step(int[] actions, int[] rewards) {
+        if (actions.length < count || rewards.length < count) {
+            throw new IllegalArgumentException("Wrong number of actions");
+        }
+        int completed = 0;
+        for (int board = 0; board < count; board++) {
+            if (done[board]) {
+                rewards[board] = 0;
+                continue;
+            }
+            int blank = blanks[board];
+            int cell = neighbors[blank * 4 + (actions[board] & 3)];
+            if (cell < 0) {
+                rewards[board] = ILLEGAL_REWARD;
+                continue;
+            }
+            int base = board * size;
+            int element = tiles[base + cell];
+            tiles[base + blank] = element;
+            tiles[base + cell] = 0;
+            blanks[board] = cell;
+            moves[board]++;
+            int reward = shape.distance(element, cell) - shape.distance(element, blank);
+            rewards[board] = reward;
+            int distance = distances[board] - reward;
+            distances[board] = distance;
+            if (distance == 0) {
+                done[board] = true;
+                completed++;
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Scrambles all boards by random walks of the empty cell.
+     * @param walkLength number of random moves
+     */
+    public void resetAll(int walkLength) {
+        for (int board = 0; board < count; board++) {
+            scramble(board, walkLength);
+        }
+    }
+
+    /**
+     * Scrambles completed boards by random walks of the empty cell.
+     * @param walkLength number of random moves
+     * @return number of reset boards
+     */
+    public int resetDone(int walkLength) {
+        int reset = 0;
+        for (int board = 0; board < count; board++) {
+            if (done[board]) {
+                scramble(board, walkLength);
+                reset++;
+            }
+        }
+        return reset;
+    }
+
+    /**
+     * Sets state of the board.
+     * @param board board
+     * @param elements elements by cells, must be a solvable permutation
+     */
+    public void setBoard(int board, int[] elements) {
+        if (elements.length != size) {
+            throw new IllegalArgumentException("Wrong number of elements");
+        }
+        boolean[] found = new boolean[size];
+        int parity = 0;
+        for (int cell = 0; cell < size; cell++) {
+            int element = elements[cell];
+            if (element < 0 || element >= size || found[element]) {
+                throw new IllegalArgumentException("Wrong sequence of elements");
+            }
+            found[element] = true;
+        }
+        // Parity of the permutation by cycles must match the empty cell
+        boolean[] visited = new boolean[size];
+        int blank = 0;
+        for (int cell = 0; cell < size; cell++) {
+            if (elements[cell] == 0) {
+                blank = cell;
+            }
+            for (int c = cell; !visited[c]; c = shape.goalCell(elements[c])) {
+                visited[c] = true;
+                parity ^= c == cell ? 0 : 1;
+            }
+        }
+        if (parity != shape.distance(0, blank) % 2) {
+            throw new IllegalArgumentException("Game is not solvable");
+        }
+        int base = board * size;
+        int distance = 0;
+        for (int cell = 0; cell < size; cell++) {
+            tiles[base + cell] = elements[cell];
+            if (elements[cell] != 0) {
+                distance += shape.distance(elements[cell], cell);
+            }
+        }
+        blanks[board] = blank;
+        moves[board] = 0;
+        distances[board] = distance;
+        done[board] = distance == 0;
+    }
+
+    /**
+     * Returns number of boards.
+     * @return number of boards
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns shape of the boards.
+     * @return shape
+     */
+    public GameShape getShape() {
+        return shape;
+    }
+
+    /**
+     * Returns element at the cell of the board.
+     * @param board board
+     * @param cell cell
+     * @return element, zero for empty cell
+     */
+    public int getElement(int board, int cell) {
+        return tiles[board * size + cell];
+    }
+
+    /**
+     * Returns empty cell of the board.
+     * @param board board
+     * @return cell
+     */
+    public int getBlank(int board) {
+        return blanks[board];
+    }
+
+    /**
+     * Returns number of moves since the last reset of the board.
+     * @param board board
+     * @return number of moves
+     */
+    public int getMovesCount(int board) {
+        return moves[board];
+    }
+
+    /**
+     * Returns Manhattan distance of the board.
+     * @param board board
+     * @return distance
+     */
+    public int getManhattanDistance(int board) {
+        return distances[board];
+    }
+
+    /**
+     * Checks if the board is completed.
+     * @param board board
+     * @return true if completed
+     */
+    public boolean isDone(int board) {
+        return done[board];
+    }
+
+    /**
+     * Puts the board to the goal state and scrambles it.
+     * @param board board
+     * @param walkLength number of random moves
+     */
+    private void scramble(int board, int walkLength) {
+        resetToGoal(board);
+        int base = board * size;
+        int blank = blanks[board];
+        int distance = 0;
+        for (int i = 0; i < walkLength; i++) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 7;
+            seed ^= seed << 17;
+            int cell = neighbors[blank * 4 + (int) (seed >>> 62)];
+            if (cell >= 0) {
+                int element = tiles[base + cell];
+                tiles[base + blank] = element;
+                tiles[base + cell] = 0;
+                distance += shape.distance(element, blank) - shape.distance(element, cell);
+                blank = cell;
+            }
+        }
+        blanks[board] = blank;
+        distances[board] = distance;
+        done[board] = distance == 0;
+    }
+
+    /**
+     * Puts the board to the goal state.
+     * @param board board
+     */
+    private void resetToGoal(int board) {
+        int base = board * size;
+        for (int cell = 0; cell < size; cell++) {
+            tiles[base + cell] = shape.goalElement(cell);
+        }
+        blanks[board] = shape.goalCell(0);
+        moves[board] = 0;
+        distances[board] = 0;
+        done[board] = true;
+    }
+
+}
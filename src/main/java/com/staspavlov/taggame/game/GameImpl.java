@@ -1,11 +1,13 @@
 package com.staspavlov.taggame.game;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
+import java.util.Random;
 
 /**
  * GameImpl provides methods for game process.
+ * The goal is set by a layout, which may have several empty cells. An
+ * element moves to an empty cell next to it, the empty cell of the last
+ * move is tried first.
  * @author Stanislav Pavlov <mail@staspavlov.com>
  */
 public class GameImpl implements Game {
@@ -35,10 +37,46 @@ public class GameImpl implements Game {
      */
     private final int size;
 
+    /**
+     * Lookup tables of the game area shape.
+     */
+    private final GameShape shape;
+
+    /**
+     * Goal layout of the game area.
+     */
+    private final GameLayout layout;
+
     /**
      * Sequence of numbers in the game area.
      */
-    private ArrayList<Integer> sequence;
+    private final int[] sequence;
+
+    /**
+     * Positions (cell indexes) of numbers in the game area, zero is at the
+     * empty cell of the last move.
+     */
+    private final int[] positions;
+
+    /**
+     * Zobrist hash of the sequence.
+     */
+    private long hash;
+
+    /**
+     * Count of elements which are not in place.
+     */
+    private int misplaced;
+
+    /**
+     * Sum of Manhattan distances of elements to their places.
+     */
+    private int manhattan;
+
+    /**
+     * Linear conflicts updated by moves.
+     */
+    private final LinearConflicts conflicts;
 
     /**
      * Count of moves.
@@ -61,16 +99,80 @@ public class GameImpl implements Game {
      * @param cols number of columns
      */
     public GameImpl(int rows, int cols) {
+        this(GameLayout.classic(rows, cols));
+    }
+
+    /**
+     * Creates game instance with the goal layout.
+     * @param layout goal layout
+     */
+    public GameImpl(GameLayout layout) {
+        this.shape = layout.getShape();
+        this.layout = layout;
+        this.rows = shape.getRows();
+        this.cols = shape.getCols();
         if (rows < MIN_ROWS || cols < MIN_COLS) {
             throw new IllegalArgumentException("Game area is too small");
         }
-        this.rows = rows;
-        this.cols = cols;
         this.size = rows * cols;
-        this.sequence = new ArrayList<>(this.size);
+        this.sequence = new int[this.size];
+        this.positions = new int[layout.getElements() + 1];
+        this.conflicts = new LinearConflicts(rows, cols) {
+            @Override
+            int elementAt(int cell) {
+                return sequence[cell];
+            }
+
+            @Override
+            int goalRow(int element) {
+                return GameImpl.this.layout.goalRow(element);
+            }
+
+            @Override
+            int goalCol(int element) {
+                return GameImpl.this.layout.goalCol(element);
+            }
+        };
         generateSequence();
     }
 
+    /**
+     * Creates game instance in the state of the snapshot.
+     * @param snapshot state of the game area
+     */
+    public GameImpl(GameSnapshot snapshot) {
+        this(GameLayout.classic(snapshot.getRows(), snapshot.getCols()), snapshot);
+    }
+
+    /**
+     * Creates game instance with the goal layout in the state of the snapshot.
+     * @param layout goal layout
+     * @param snapshot state of the game area
+     */
+    public GameImpl(GameLayout layout, GameSnapshot snapshot) {
+        this(layout);
+        if (snapshot.getRows() != rows || snapshot.getCols() != cols) {
+            throw new IllegalArgumentException("Wrong game area of the snapshot");
+        }
+        int[] elements = snapshot.toArray();
+        boolean[] found = new boolean[positions.length];
+        int blanks = 0;
+        for (int element : elements) {
+            if (element < 0 || element >= positions.length || (element != 0 && found[element])) {
+                throw new IllegalArgumentException("Wrong sequence of elements");
+            }
+            found[element] = true;
+            if (element == 0) {
+                blanks++;
+            }
+        }
+        if (blanks != layout.getBlanks()) {
+            throw new IllegalArgumentException("Wrong number of empty cells");
+        }
+        System.arraycopy(elements, 0, sequence, 0, size);
+        indexSequence();
+    }
+
     /**
      * Make the finalize() method final.
      * @throws java.lang.Throwable
@@ -85,10 +187,48 @@ public class GameImpl implements Game {
      */
     private void generateSequence()
     {
-        for (int i = 0; i < size - 1; i++) {
-            sequence.add(i, i + 1);
+        for (int i = 0; i < size; i++) {
+            sequence[i] = layout.goalElement(i);
         }
-        sequence.add(size - 1, 0);
+        indexSequence();
+    }
+
+    /**
+     * Rebuilds positions, hash and distances.
+     */
+    private void indexSequence() {
+        misplaced = 0;
+        manhattan = 0;
+        for (int i = 0; i < size; i++) {
+            int element = sequence[i];
+            positions[element] = i;
+            if (element != 0) {
+                if (i != layout.goalCell(element)) {
+                    misplaced++;
+                }
+                manhattan += layout.distance(element, i);
+            }
+        }
+        hash = Zobrist.hash(sequence);
+        // Linear conflicts are calculated on demand
+        conflicts.reset();
+    }
+
+    /**
+     * Returns goal layout of the game area.
+     * @return layout
+     */
+    public GameLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Checks if the goal is the classic one.
+     * @return true if the layout is classic
+     */
+    @Override
+    public boolean isClassicGoal() {
+        return layout.isClassic();
     }
 
     /**
@@ -125,12 +265,43 @@ public class GameImpl implements Game {
      */
     @Override
     public int[] getPosition(int element) {
-        int index = sequence.indexOf(element);
-        int row = index / cols;
-        int col = index % cols;
+        int index = positions[element];
+        int row = shape.rowOf(index);
+        int col = shape.colOf(index);
         return new int[]{row, col};
     }
 
+    /**
+     * Returns row of element in the game area.
+     * @param element
+     * @return row of element
+     */
+    @Override
+    public int getRowOf(int element) {
+        return shape.rowOf(positions[element]);
+    }
+
+    /**
+     * Returns column of element in the game area.
+     * @param element
+     * @return column of element
+     */
+    @Override
+    public int getColOf(int element) {
+        return shape.colOf(positions[element]);
+    }
+
+    /**
+     * Returns element at position (row and column) in the game area.
+     * @param row
+     * @param col
+     * @return element, zero for empty cell
+     */
+    @Override
+    public int getElement(int row, int col) {
+        return sequence[row * cols + col];
+    }
+
     /**
      * Make move of element.
      * @param element
@@ -142,44 +313,102 @@ public class GameImpl implements Game {
         if (isCompleted()) {
             return false;
         }
-        // Can't move zero
-        if (element == 0) {
+        // Can't move zero or unknown element
+        if (element <= 0 || element >= positions.length) {
             return false;
         }
         // Check if the move is possible
-        int[] elemPos = getPosition(element);
-        int[] zeroPos = getPosition(0);
-        int rowsDiff = Math.abs(elemPos[0] - zeroPos[0]);
-        int colsDiff = Math.abs(elemPos[1] - zeroPos[1]);
-        if ((rowsDiff == 1 && colsDiff == 0) || (rowsDiff == 0 && colsDiff == 1)) {
-            // Move is possible, make move
-            int elemInd = sequence.indexOf(element);
-            int zeroInd = sequence.indexOf(0);
-            sequence.set(zeroInd, element);
-            sequence.set(elemInd, 0);
-            movesCount++;
-            checkCompleted();
-            return true;
+        int elemInd = positions[element];
+        int zeroInd = positions[0];
+        if (!shape.isAdjacent(elemInd, zeroInd)) {
+            zeroInd = adjacentBlank(elemInd);
+            if (zeroInd < 0) {
+                return false;
+            }
+        }
+        move(element, elemInd, zeroInd);
+        return true;
+    }
+
+    /**
+     * Make move of element to the empty cell in the direction, so the
+     * empty cell is chosen when there are several around the element.
+     * @param element
+     * @param direction 0 up, 1 down, 2 left, 3 right
+     * @return true if success, false if error
+     */
+    public boolean makeMove(int element, int direction) {
+        if (isCompleted() || element <= 0 || element >= positions.length || direction < 0 || direction > 3) {
+            return false;
+        }
+        int elemInd = positions[element];
+        int zeroInd = shape.neighbour(elemInd, direction);
+        if (zeroInd < 0 || sequence[zeroInd] != 0) {
+            return false;
+        }
+        move(element, elemInd, zeroInd);
+        return true;
+    }
+
+    /**
+     * Moves element to the empty cell.
+     * @param element moved element
+     * @param from cell of the element
+     * @param to empty cell next to it
+     */
+    private void move(int element, int from, int to) {
+        sequence[to] = element;
+        sequence[from] = 0;
+        positions[element] = to;
+        positions[0] = from;
+        updateDistances(element, from, to);
+        movesCount++;
+        checkCompleted();
+    }
+
+    /**
+     * Finds an empty cell next to the cell.
+     * @param cell cell index
+     * @return cell index, -1 if there is no empty cell around
+     */
+    private int adjacentBlank(int cell) {
+        if (layout.getBlanks() > 1) {
+            for (int direction = 0; direction < 4; direction++) {
+                int next = shape.neighbour(cell, direction);
+                if (next >= 0 && sequence[next] == 0) {
+                    return next;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Updates hash and distances after the move.
+     * @param element moved element
+     * @param from cell before the move
+     * @param to cell after the move
+     */
+    private void updateDistances(int element, int from, int to) {
+        hash = Zobrist.move(hash, element, from, to);
+        int goal = layout.goalCell(element);
+        if (from == goal) {
+            misplaced++;
+        } else if (to == goal) {
+            misplaced--;
         }
-        return false;
+        manhattan += layout.distance(element, to) - layout.distance(element, from);
+        // Conflicts of a line change only when its own element enters or leaves it
+        conflicts.moved(element, shape.rowOf(from), shape.colOf(from), shape.rowOf(to), shape.colOf(to));
     }
 
     /**
      * Checks if sequence of elements is completed.
      */
     private void checkCompleted() {
-        for (int i = 0; i < size; i++) {
-            int expected;
-            // Last element must be zero
-            if (i == size - 1) {
-                expected = 0;
-            // Other elements must be in ascending order
-            } else {
-                expected = i + 1;
-            }
-            if (sequence.get(i) != expected) {
-                return;
-            }
+        // All elements must be in their goal cells, so empty cells are too
+        if (misplaced != 0) {
+            return;
         }
         // Set completed at date
         completedAt = new Date();
@@ -199,10 +428,72 @@ public class GameImpl implements Game {
     @Override
     public void shuffle() {
         if (!isCompleted()) {
-            Collections.shuffle(sequence);
+            Random random = new Random();
+            for (int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int element = sequence[i];
+                sequence[i] = sequence[j];
+                sequence[j] = element;
+            }
+            indexSequence();
         }
     }
 
+    /**
+     * Returns Zobrist hash of the game state.
+     * @return hash
+     */
+    @Override
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Returns immutable snapshot of the game state.
+     * @return snapshot
+     */
+    @Override
+    public GameSnapshot getSnapshot() {
+        return new GameSnapshot(rows, cols, sequence.clone(), hash);
+    }
+
+    /**
+     * Returns sum of Manhattan distances of elements to their places.
+     * @return distance
+     */
+    @Override
+    public int getManhattanDistance() {
+        return manhattan;
+    }
+
+    /**
+     * Returns count of elements in place.
+     * @return count of elements
+     */
+    @Override
+    public int getElementsInPlace() {
+        return layout.getElements() - misplaced;
+    }
+
+    /**
+     * Returns count of elements which must leave their goal row or column
+     * to let other elements of the line pass.
+     * @return count of linear conflicts
+     */
+    @Override
+    public int getLinearConflicts() {
+        return conflicts.get();
+    }
+
+    /**
+     * Returns lower bound of moves needed to complete the game.
+     * @return Manhattan distance plus two moves per linear conflict
+     */
+    @Override
+    public int getDistanceBound() {
+        return manhattan + 2 * getLinearConflicts();
+    }
+
     /**
      * Returns count of moves.
      * @return Count of moves
@@ -0,0 +1,298 @@
+package com.staspavlov.taggame.game;
+
+/**
+ * Goal layout of a game area: the completed order of elements with any
+ * number of empty cells. Elements are numbered from one, empty cells are
+ * zeros. Lookup tables are built once per layout and shared by all games
+ * of the layout, so moves and completion checks don't search the goal.
+ * Layouts of the factory methods are cached while recently used, layouts
+ * of arbitrary goals are not cached at all.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public final class GameLayout {
+
+    /**
+     * Maximal number of cached layouts.
+     */
+    private static final int CACHED_LAYOUTS = 8;
+
+    /**
+     * Recently used factory layouts by kind, size and number of empty cells.
+     */
+    private static final RecentMap<String, GameLayout> LAYOUTS = new RecentMap<>(CACHED_LAYOUTS);
+
+    /**
+     * Lookup tables of the game area shape.
+     */
+    private final GameShape shape;
+
+    /**
+     * Elements by cells in the completed game.
+     */
+    private final int[] goal;
+
+    /**
+     * Number of empty cells.
+     */
+    private final int blanks;
+
+    /**
+     * Goal cells by elements, the first empty goal cell for zero.
+     */
+    private final int[] goalCells;
+
+    /**
+     * Goal rows by elements.
+     */
+    private final int[] goalRows;
+
+    /**
+     * Goal columns by elements.
+     */
+    private final int[] goalCols;
+
+    /**
+     * Elements are in ascending order with one empty cell in the end.
+     */
+    private final boolean classic;
+
+    /**
+     * Creates layout instance.
+     * @param shape shape of the game area
+     * @param goal elements by cells in the completed game, not copied
+     * @param blanks number of empty cells
+     */
+    private GameLayout(GameShape shape, int[] goal, int blanks) {
+        this.shape = shape;
+        this.goal = goal;
+        this.blanks = blanks;
+        this.goalCells = new int[goal.length - blanks + 1];
+        this.goalRows = new int[goalCells.length];
+        this.goalCols = new int[goalCells.length];
+        goalCells[0] = -1;
+        boolean ascending = blanks == 1;
+        for (int cell = 0; cell < goal.length; cell++) {
+            ascending &= goal[cell] == (cell + 1) % goal.length;
+            int element = goal[cell];
+            if (element != 0 || goalCells[0] < 0) {
+                goalCells[element] = cell;
+                goalRows[element] = shape.rowOf(cell);
+                goalCols[element] = shape.colOf(cell);
+            }
+        }
+        this.classic = ascending;
+    }
+
+    /**
+     * Returns new layout of the goal state. The layout is not cached, games
+     * of the same goal should share the returned instance.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param goal elements by cells in the completed game: numbers from one
+     * to the number of elements once each and at least one zero
+     * @return layout
+     */
+    public static GameLayout of(int rows, int cols, int[] goal) {
+        if (goal.length != rows * cols) {
+            throw new IllegalArgumentException("Wrong number of elements");
+        }
+        int[] elements = goal.clone();
+        int blanks = 0;
+        for (int element : elements) {
+            if (element == 0) {
+                blanks++;
+            }
+        }
+        boolean[] found = new boolean[elements.length - blanks + 1];
+        for (int element : elements) {
+            if (element < 0 || element >= found.length || (element != 0 && found[element])) {
+                throw new IllegalArgumentException("Wrong goal sequence of elements");
+            }
+            found[element] = true;
+        }
+        if (blanks == 0) {
+            throw new IllegalArgumentException("Goal has no empty cell");
+        }
+        return new GameLayout(GameShape.of(rows, cols), elements, blanks);
+    }
+
+    /**
+     * Returns classic layout: elements in ascending order, one empty cell
+     * in the end.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return layout
+     */
+    public static GameLayout classic(int rows, int cols) {
+        return ascending(rows, cols, 1);
+    }
+
+    /**
+     * Returns layout with elements in ascending order and empty cells in
+     * the end.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param blanks number of empty cells
+     * @return layout
+     */
+    public static GameLayout ascending(int rows, int cols, int blanks) {
+        String key = "ascending " + rows + "x" + cols + " " + blanks;
+        GameLayout layout = LAYOUTS.get(key);
+        if (layout == null) {
+            int[] goal = new int[checkBlanks(rows, cols, blanks)];
+            for (int cell = 0; cell < goal.length - blanks; cell++) {
+                goal[cell] = cell + 1;
+            }
+            layout = LAYOUTS.putIfAbsent(key, of(rows, cols, goal));
+        }
+        return layout;
+    }
+
+    /**
+     * Returns layout with empty cells in the beginning and elements in
+     * ascending order after them.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param blanks number of empty cells
+     * @return layout
+     */
+    public static GameLayout blankFirst(int rows, int cols, int blanks) {
+        String key = "blank-first " + rows + "x" + cols + " " + blanks;
+        GameLayout layout = LAYOUTS.get(key);
+        if (layout == null) {
+            int[] goal = new int[checkBlanks(rows, cols, blanks)];
+            for (int cell = blanks; cell < goal.length; cell++) {
+                goal[cell] = cell - blanks + 1;
+            }
+            layout = LAYOUTS.putIfAbsent(key, of(rows, cols, goal));
+        }
+        return layout;
+    }
+
+    /**
+     * Returns layout with elements in ascending order along a snake:
+     * even rows from left to right, odd rows from right to left. Empty
+     * cells are in the end of the snake.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param blanks number of empty cells
+     * @return layout
+     */
+    public static GameLayout snake(int rows, int cols, int blanks) {
+        String key = "snake " + rows + "x" + cols + " " + blanks;
+        GameLayout layout = LAYOUTS.get(key);
+        if (layout == null) {
+            int[] goal = new int[checkBlanks(rows, cols, blanks)];
+            for (int i = 0; i < goal.length - blanks; i++) {
+                int row = i / cols;
+                int col = row % 2 == 0 ? i % cols : cols - 1 - i % cols;
+                goal[row * cols + col] = i + 1;
+            }
+            layout = LAYOUTS.putIfAbsent(key, of(rows, cols, goal));
+        }
+        return layout;
+    }
+
+    /**
+     * Validates number of empty cells.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param blanks number of empty cells
+     * @return size of the game area
+     */
+    private static int checkBlanks(int rows, int cols, int blanks) {
+        int size = rows * cols;
+        if (blanks < 1 || blanks >= size) {
+            throw new IllegalArgumentException("Wrong number of empty cells");
+        }
+        return size;
+    }
+
+    /**
+     * Returns lookup tables of the game area shape.
+     * @return shape
+     */
+    public GameShape getShape() {
+        return shape;
+    }
+
+    /**
+     * Returns number of empty cells.
+     * @return number of empty cells
+     */
+    public int getBlanks() {
+        return blanks;
+    }
+
+    /**
+     * Returns number of elements, not counting empty cells.
+     * @return number of elements
+     */
+    public int getElements() {
+        return goal.length - blanks;
+    }
+
+    /**
+     * Checks if elements are in ascending order with one empty cell in
+     * the end, the goal of the classic game.
+     * @return true if classic
+     */
+    public boolean isClassic() {
+        return classic;
+    }
+
+    /**
+     * Returns elements by cells in the completed game.
+     * @return new array
+     */
+    public int[] toArray() {
+        return goal.clone();
+    }
+
+    /**
+     * Returns cell of the element in the completed game.
+     * @param element element
+     * @return cell index, the first empty cell for zero
+     */
+    public int goalCell(int element) {
+        return goalCells[element];
+    }
+
+    /**
+     * Returns element of the cell in the completed game.
+     * @param cell cell index
+     * @return element, zero for empty cell
+     */
+    public int goalElement(int cell) {
+        return goal[cell];
+    }
+
+    /**
+     * Returns row of the element in the completed game.
+     * @param element element
+     * @return row
+     */
+    public int goalRow(int element) {
+        return goalRows[element];
+    }
+
+    /**
+     * Returns column of the element in the completed game.
+     * @param element element
+     * @return column
+     */
+    public int goalCol(int element) {
+        return goalCols[element];
+    }
+
+    /**
+     * Returns Manhattan distance from the cell to the goal cell of the element.
+     * @param element element
+     * @param cell cell index
+     * @return distance
+     */
+    public int distance(int element, int cell) {
+        return Math.abs(goalRows[element] - shape.rowOf(cell)) + Math.abs(goalCols[element] - shape.colOf(cell));
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.staspavlov.taggame.game;
+
+/**
+ * Lookup tables of a game area shape.
+ * Tables are built once per number of rows and columns and shared by all
+ * games of the shape, so moves need neither division nor goal computation.
+ * Only a few recently used shapes are cached, tables take seven ints per
+ * cell and would stay in memory after a large game otherwise.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public final class GameShape {
+
+    /**
+     * Maximal number of cached shapes.
+     */
+    private static final int CACHED_SHAPES = 4;
+
+    /**
+     * Recently used shapes by number of rows and columns.
+     */
+    private static final RecentMap<Long, GameShape> SHAPES = new RecentMap<>(CACHED_SHAPES);
+
+    /**
+     * Number of rows in the game area.
+     */
+    private final int rows;
+
+    /**
+     * Number of columns in the game area.
+     */
+    private final int cols;
+
+    /**
+     * Rows by cells.
+     */
+    private final int[] cellRows;
+
+    /**
+     * Columns by cells.
+     */
+    private final int[] cellCols;
+
+    /**
+     * Goal cells by elements.
+     */
+    private final int[] goalCells;
+
+    /**
+     * Neighbour cells by cells and directions (up, down, left, right),
+     * -1 outside the game area.
+     */
+    private final int[] neighbours;
+
+    /**
+     * Creates shape instance.
+     * @param rows number of rows
+     * @param cols number of columns
+     */
+    private GameShape(int rows, int cols) {
+        int size = rows * cols;
+        this.rows = rows;
+        this.cols = cols;
+        this.cellRows = new int[size];
+        this.cellCols = new int[size];
+        this.goalCells = new int[size];
+        this.neighbours = new int[size * 4];
+        for (int i = 0; i < size; i++) {
+            int row = i / cols;
+            int col = i % cols;
+            cellRows[i] = row;
+            cellCols[i] = col;
+            neighbours[i * 4] = row > 0 ? i - cols : -1;
+            neighbours[i * 4 + 1] = row < rows - 1 ? i + cols : -1;
+            neighbours[i * 4 + 2] = col > 0 ? i - 1 : -1;
+            neighbours[i * 4 + 3] = col < cols - 1 ? i + 1 : -1;
+        }
+        // Elements in ascending order, zero is the last one
+        for (int element = 1; element < size; element++) {
+            goalCells[element] = element - 1;
+        }
+        goalCells[0] = size - 1;
+    }
+
+    /**
+     * Returns shape instance, shared while the shape is recently used.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @return shape
+     */
+    public static GameShape of(int rows, int cols) {
+        Long key = (long) rows << 32 | cols;
+        GameShape shape = SHAPES.get(key);
+        if (shape == null) {
+            shape = SHAPES.putIfAbsent(key, new GameShape(rows, cols));
+        }
+        return shape;
+    }
+
+    /**
+     * Returns number of rows in the game area.
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns number of columns in the game area.
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns size of the game area.
+     * @return size of game area
+     */
+    public int getSize() {
+        return goalCells.length;
+    }
+
+    /**
+     * Returns row of the cell.
+     * @param cell cell index
+     * @return row
+     */
+    public int rowOf(int cell) {
+        return cellRows[cell];
+    }
+
+    /**
+     * Returns column of the cell.
+     * @param cell cell index
+     * @return column
+     */
+    public int colOf(int cell) {
+        return cellCols[cell];
+    }
+
+    /**
+     * Returns cell of the element in the completed game.
+     * @param element element
+     * @return cell index
+     */
+    public int goalCell(int element) {
+        return goalCells[element];
+    }
+
+    /**
+     * Returns element of the cell in the completed game.
+     * @param cell cell index
+     * @return element
+     */
+    public int goalElement(int cell) {
+        return cell == goalCells[0] ? 0 : cell + 1;
+    }
+
+    /**
+     * Returns Manhattan distance from the cell to the goal cell of the element.
+     * @param element element
+     * @param cell cell index
+     * @return distance
+     */
+    public int distance(int element, int cell) {
+        int goal = goalCells[element];
+        return Math.abs(cellRows[goal] - cellRows[cell]) + Math.abs(cellCols[goal] - cellCols[cell]);
+    }
+
+    /**
+     * Returns neighbour of the cell in the direction.
+     * @param cell cell index
+     * @param direction 0 up, 1 down, 2 left, 3 right
+     * @return cell index, -1 outside the game area
+     */
+    public int neighbour(int cell, int direction) {
+        return neighbours[cell * 4 + direction];
+    }
+
+    /**
+     * Checks if two cells are neighbours.
+     * @param a cell index
+     * @param b cell index
+     * @return true if neighbours
+     */
+    public boolean isAdjacent(int a, int b) {
+        int rowsDiff = Math.abs(cellRows[a] - cellRows[b]);
+        int colsDiff = Math.abs(cellCols[a] - cellCols[b]);
+        return rowsDiff + colsDiff == 1;
+    }
+
+}
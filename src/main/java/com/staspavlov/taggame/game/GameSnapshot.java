@@ -0,0 +1,119 @@
+package com.staspavlov.taggame.game;
+
+import java.util.Arrays;
+
+/**
+ * Immutable state of the game area.
+ * Snapshots of equal states are equal, so they can be used as cache keys.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public final class GameSnapshot {
+
+    /**
+     * Number of rows in the game area.
+     */
+    private final int rows;
+
+    /**
+     * Number of columns in the game area.
+     */
+    private final int cols;
+
+    /**
+     * Elements by cells.
+     */
+    private final int[] tiles;
+
+    /**
+     * Zobrist hash of the state.
+     */
+    private final long hash;
+
+    /**
+     * Creates snapshot instance.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param tiles elements by cells, the array is copied
+     */
+    public GameSnapshot(int rows, int cols, int[] tiles) {
+        this(rows, cols, tiles.clone(), Zobrist.hash(tiles));
+    }
+
+    /**
+     * Creates snapshot instance with known hash.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param tiles elements by cells, the array is not copied
+     * @param hash Zobrist hash of the state
+     */
+    GameSnapshot(int rows, int cols, int[] tiles, long hash) {
+        if (tiles.length != rows * cols) {
+            throw new IllegalArgumentException("Wrong number of elements");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.tiles = tiles;
+        this.hash = hash;
+    }
+
+    /**
+     * Returns number of rows in the game area.
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns number of columns in the game area.
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns element at position (row and column) in the game area.
+     * @param row
+     * @param col
+     * @return element, zero for empty cell
+     */
+    public int getElement(int row, int col) {
+        return tiles[row * cols + col];
+    }
+
+    /**
+     * Returns elements by cells.
+     * @return copy of elements
+     */
+    public int[] toArray() {
+        return tiles.clone();
+    }
+
+    /**
+     * Returns Zobrist hash of the state.
+     * @return hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof GameSnapshot)) {
+            return false;
+        }
+        GameSnapshot other = (GameSnapshot) obj;
+        return hash == other.hash && rows == other.rows && cols == other.cols
+                && Arrays.equals(tiles, other.tiles);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.staspavlov.taggame.game;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map of non-negative int keys to non-negative int values
+ * with linear probing. Removal shifts following entries back, so lookups
+ * never meet deleted slots. Grows when half full, never shrinks.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+final class IntIntMap {
+
+    /**
+     * Key of empty slots.
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * Keys by slots.
+     */
+    private int[] keys;
+
+    /**
+     * Values by slots.
+     */
+    private int[] values;
+
+    /**
+     * Number of keys.
+     */
+    private int count;
+
+    /**
+     * Creates map instance.
+     * @param expected expected number of keys
+     */
+    IntIntMap(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Returns value of the key.
+     * @param key key
+     * @return value, -1 if key is absent
+     */
+    int get(int key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets value of the key.
+     * @param key non-negative key
+     * @param value non-negative value
+     */
+    void put(int key, int value) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++count * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Removes the key.
+     * @param key key
+     */
+    void remove(int key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        count--;
+        // Shift back entries which would not be found behind the hole
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+    }
+
+    /**
+     * Returns number of keys.
+     * @return count
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Returns number of slots.
+     * @return capacity
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Returns key of the slot.
+     * @param slot slot
+     * @return key, -1 for empty slot
+     */
+    int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * Returns value of the slot.
+     * @param slot non-empty slot
+     * @return value
+     */
+    int valueAt(int slot) {
+        return values[slot];
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != EMPTY) {
+                int i = slot(oldKeys[j], mask);
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+}
@@ -0,0 +1,214 @@
+package com.staspavlov.taggame.game;
+
+/**
+ * Linear conflicts of a game kept up to date by moves. A move marks the
+ * goal line of the moved element when the element enters or leaves it,
+ * marked lines are scanned on demand. Games provide elements by cells and
+ * goal lines of elements.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+abstract class LinearConflicts {
+
+    /**
+     * Number of rows in the game area.
+     */
+    private final int rows;
+
+    /**
+     * Number of columns in the game area.
+     */
+    private final int cols;
+
+    /**
+     * Linear conflicts of rows and columns which are up to date.
+     */
+    private int conflicts;
+
+    /**
+     * Linear conflicts by rows.
+     */
+    private final int[] rowConflicts;
+
+    /**
+     * Linear conflicts by columns.
+     */
+    private final int[] colConflicts;
+
+    /**
+     * Rows with outdated linear conflicts.
+     */
+    private final LineSet dirtyRows;
+
+    /**
+     * Columns with outdated linear conflicts.
+     */
+    private final LineSet dirtyCols;
+
+    /**
+     * Counter of conflicts of a scanned line.
+     */
+    private final ConflictCounter counter;
+
+    /**
+     * Creates instance without conflicts.
+     * @param rows number of rows
+     * @param cols number of columns
+     */
+    LinearConflicts(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.rowConflicts = new int[rows];
+        this.colConflicts = new int[cols];
+        this.dirtyRows = new LineSet(rows);
+        this.dirtyCols = new LineSet(cols);
+        this.counter = new ConflictCounter(Math.max(rows, cols));
+    }
+
+    /**
+     * Returns element in the cell.
+     * @param cell cell index
+     * @return element, zero for empty cell
+     */
+    abstract int elementAt(int cell);
+
+    /**
+     * Returns row of the element in the completed game.
+     * @param element non-zero element
+     * @return row
+     */
+    abstract int goalRow(int element);
+
+    /**
+     * Returns column of the element in the completed game.
+     * @param element non-zero element
+     * @return column
+     */
+    abstract int goalCol(int element);
+
+    /**
+     * Marks all lines outdated after the elements are rearranged.
+     */
+    void reset() {
+        conflicts = 0;
+        for (int r = 0; r < rows; r++) {
+            rowConflicts[r] = 0;
+            dirtyRows.add(r);
+        }
+        for (int c = 0; c < cols; c++) {
+            colConflicts[c] = 0;
+            dirtyCols.add(c);
+        }
+    }
+
+    /**
+     * Marks lines of the cell outdated after its element is changed.
+     * @param row row of the cell
+     * @param col column of the cell
+     */
+    void changed(int row, int col) {
+        dirtyRows.add(row);
+        dirtyCols.add(col);
+    }
+
+    /**
+     * Marks the goal line of the moved element outdated if the element
+     * enters or leaves it.
+     * @param element moved element
+     * @param fromRow row before the move
+     * @param fromCol column before the move
+     * @param toRow row after the move
+     * @param toCol column after the move
+     */
+    void moved(int element, int fromRow, int fromCol, int toRow, int toCol) {
+        if (fromRow == toRow) {
+            int goalCol = goalCol(element);
+            if (goalCol == fromCol || goalCol == toCol) {
+                dirtyCols.add(goalCol);
+            }
+        } else {
+            int goalRow = goalRow(element);
+            if (goalRow == fromRow || goalRow == toRow) {
+                dirtyRows.add(goalRow);
+            }
+        }
+    }
+
+    /**
+     * Returns count of elements which must leave their goal row or column
+     * to let other elements of the line pass.
+     * Only lines changed since the last call are scanned.
+     * @return count of linear conflicts
+     */
+    int get() {
+        while (!dirtyRows.isEmpty()) {
+            int r = dirtyRows.remove();
+            for (int c = 0; c < cols; c++) {
+                int element = elementAt(r * cols + c);
+                if (element != 0 && goalRow(element) == r) {
+                    counter.add(goalCol(element));
+                }
+            }
+            int lineConflicts = counter.finish();
+            conflicts += lineConflicts - rowConflicts[r];
+            rowConflicts[r] = lineConflicts;
+        }
+        while (!dirtyCols.isEmpty()) {
+            int c = dirtyCols.remove();
+            for (int r = 0; r < rows; r++) {
+                int element = elementAt(r * cols + c);
+                if (element != 0 && goalCol(element) == c) {
+                    counter.add(goalRow(element));
+                }
+            }
+            int lineConflicts = counter.finish();
+            conflicts += lineConflicts - colConflicts[c];
+            colConflicts[c] = lineConflicts;
+        }
+        return conflicts;
+    }
+
+    /**
+     * Set of line indexes without allocation.
+     */
+    private static final class LineSet {
+
+        /**
+         * Flags of lines in the set.
+         */
+        private final boolean[] flags;
+
+        /**
+         * Lines in the set.
+         */
+        private final int[] lines;
+
+        /**
+         * Count of lines in the set.
+         */
+        private int count;
+
+        LineSet(int size) {
+            flags = new boolean[size];
+            lines = new int[size];
+        }
+
+        void add(int line) {
+            if (!flags[line]) {
+                flags[line] = true;
+                lines[count++] = line;
+            }
+        }
+
+        int remove() {
+            int line = lines[--count];
+            flags[line] = false;
+            return line;
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+    }
+
+}
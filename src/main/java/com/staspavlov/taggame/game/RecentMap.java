@@ -0,0 +1,55 @@
+package com.staspavlov.taggame.game;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread-safe map which keeps only the most recently used entries, so
+ * lookup tables of game areas which are no longer played are released.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+final class RecentMap<K, V> {
+
+    /**
+     * Entries in access order, the eldest is removed above the capacity.
+     */
+    private final Map<K, V> entries;
+
+    /**
+     * Creates map instance.
+     * @param capacity maximal number of entries
+     */
+    RecentMap(final int capacity) {
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns value of the key and marks it used.
+     * @param key key
+     * @return value, null if absent
+     */
+    synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Sets value of the key unless another thread has set it.
+     * @param key key
+     * @param value value
+     * @return value of the key
+     */
+    synchronized V putIfAbsent(K key, V value) {
+        V existing = entries.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        entries.put(key, value);
+        return value;
+    }
+
+}
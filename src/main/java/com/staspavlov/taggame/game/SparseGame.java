@@ -0,0 +1,494 @@
+package com.staspavlov.taggame.game;
+
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * SparseGame keeps only elements which are out of their goal cells.
+ * Displaced elements are stored in two primitive maps, cells by elements
+ * and elements by cells, so memory and construction time are proportional
+ * to the scramble instead of the game area. Moves and the completion check
+ * take constant time. It suits enormous games with a local scramble.
+ * Snapshots and the first hash are computed over the whole game area.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class SparseGame implements Game {
+
+    /**
+     * Minimal number of rows in the game area.
+     */
+    private static final int MIN_ROWS = 3;
+
+    /**
+     * Minimal number of columns in the game area.
+     */
+    private static final int MIN_COLS = 3;
+
+    /**
+     * Number of moves of the random walk made by shuffle.
+     */
+    public static final int SHUFFLE_MOVES = 1000;
+
+    /**
+     * Number of rows in the game area.
+     */
+    private final int rows;
+
+    /**
+     * Number of columns in the game area.
+     */
+    private final int cols;
+
+    /**
+     * Size of the game area.
+     */
+    private final int size;
+
+    /**
+     * Elements by cells which do not hold their goal elements.
+     */
+    private final IntIntMap cellElements;
+
+    /**
+     * Cells by displaced elements, the empty cell is not stored.
+     */
+    private final IntIntMap elementCells;
+
+    /**
+     * Empty cell.
+     */
+    private int blank;
+
+    /**
+     * Zobrist hash of the goal state, computed on demand.
+     */
+    private long goalHash;
+
+    /**
+     * Hash of the goal state is computed.
+     */
+    private boolean goalHashed;
+
+    /**
+     * Difference of the hash from the hash of the goal state.
+     */
+    private long hashDelta;
+
+    /**
+     * Sum of Manhattan distances of elements to their places.
+     */
+    private int manhattan;
+
+    /**
+     * Linear conflicts updated by moves.
+     */
+    private final LinearConflicts conflicts;
+
+    /**
+     * Count of moves.
+     */
+    private int movesCount;
+
+    /**
+     * Created at date.
+     */
+    private final Date createdAt = new Date();
+
+    /**
+     * Completed at date.
+     */
+    private Date completedAt;
+
+    /**
+     * Creates game instance in the goal state.
+     * @param rows number of rows
+     * @param cols number of columns
+     */
+    public SparseGame(int rows, int cols) {
+        if (rows < MIN_ROWS || cols < MIN_COLS) {
+            throw new IllegalArgumentException("Game area is too small");
+        }
+        if ((long) rows * cols > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Game area is too big");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.size = rows * cols;
+        this.cellElements = new IntIntMap(0);
+        this.elementCells = new IntIntMap(0);
+        this.blank = size - 1;
+        this.conflicts = new LinearConflicts(rows, cols) {
+            @Override
+            int elementAt(int cell) {
+                return SparseGame.this.elementAt(cell);
+            }
+
+            @Override
+            int goalRow(int element) {
+                return (element - 1) / SparseGame.this.cols;
+            }
+
+            @Override
+            int goalCol(int element) {
+                return (element - 1) % SparseGame.this.cols;
+            }
+        };
+    }
+
+    /**
+     * Creates game instance in the state of the snapshot.
+     * @param snapshot state of the game area
+     */
+    public SparseGame(GameSnapshot snapshot) {
+        this(snapshot.getRows(), snapshot.getCols());
+        int[] elements = snapshot.toArray();
+        boolean[] found = new boolean[size];
+        for (int element : elements) {
+            if (element < 0 || element >= size || found[element]) {
+                throw new IllegalArgumentException("Wrong sequence of elements");
+            }
+            found[element] = true;
+        }
+        for (int cell = 0; cell < size; cell++) {
+            int element = elements[cell];
+            if (element != goalElement(cell)) {
+                place(element, cell);
+                if (element != 0) {
+                    manhattan += distance(element, cell);
+                    hashDelta ^= Zobrist.key(element, element - 1) ^ Zobrist.key(element, cell);
+                }
+                // Lines without displaced elements have no conflicts
+                conflicts.changed(cell / cols, cell % cols);
+            }
+        }
+    }
+
+    /**
+     * Moves the empty cell by a random walk without counting moves.
+     * The game stays solvable and sparse: at most the given number of
+     * elements leave their cells.
+     * @param moves number of moves
+     * @param random source of moves
+     */
+    public void scramble(int moves, Random random) {
+        int previous = -1;
+        int made = 0;
+        while (made < moves) {
+            int row = blank / cols;
+            int col = blank % cols;
+            int cell;
+            switch (random.nextInt(4)) {
+                case 0: cell = row > 0 ? blank - cols : -1; break;
+                case 1: cell = row < rows - 1 ? blank + cols : -1; break;
+                case 2: cell = col > 0 ? blank - 1 : -1; break;
+                default: cell = col < cols - 1 ? blank + 1 : -1; break;
+            }
+            // Moves back would only cancel each other
+            if (cell >= 0 && cell != previous) {
+                previous = blank;
+                move(elementAt(cell), cell, blank);
+                made++;
+            }
+        }
+    }
+
+    /**
+     * Returns number of rows in the game area.
+     * @return number of rows
+     */
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns number of columns in the game area.
+     * @return number of columns
+     */
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns size of the game area.
+     * @return size of game area
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns position (row and column) of element in the game area.
+     * @param element
+     * @return position of element
+     */
+    @Override
+    public int[] getPosition(int element) {
+        int cell = cellOf(element);
+        return new int[]{cell / cols, cell % cols};
+    }
+
+    /**
+     * Returns row of element in the game area.
+     * @param element
+     * @return row of element
+     */
+    @Override
+    public int getRowOf(int element) {
+        return cellOf(element) / cols;
+    }
+
+    /**
+     * Returns column of element in the game area.
+     * @param element
+     * @return column of element
+     */
+    @Override
+    public int getColOf(int element) {
+        return cellOf(element) % cols;
+    }
+
+    /**
+     * Returns element at position (row and column) in the game area.
+     * @param row
+     * @param col
+     * @return element, zero for empty cell
+     */
+    @Override
+    public int getElement(int row, int col) {
+        return elementAt(row * cols + col);
+    }
+
+    /**
+     * Checks if the goal is the classic one.
+     * @return true, sparse games have the classic goal only
+     */
+    @Override
+    public boolean isClassicGoal() {
+        return true;
+    }
+
+    /**
+     * Make move of element.
+     * @param element
+     * @return true if success, false if error
+     */
+    @Override
+    public boolean makeMove(int element) {
+        // Can't move if game is completed
+        if (isCompleted()) {
+            return false;
+        }
+        // Can't move zero or unknown element
+        if (element <= 0 || element >= size) {
+            return false;
+        }
+        int cell = cellOf(element);
+        int diff = Math.abs(cell - blank);
+        if (diff != cols && (diff != 1 || cell / cols != blank / cols)) {
+            return false;
+        }
+        move(element, cell, blank);
+        movesCount++;
+        if (elementCells.size() == 0) {
+            completedAt = new Date();
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the game is completed.
+     */
+    @Override
+    public boolean isCompleted() {
+        return completedAt != null;
+    }
+
+    /**
+     * Shuffles elements by a random walk of the empty cell.
+     */
+    @Override
+    public void shuffle() {
+        if (!isCompleted()) {
+            scramble(SHUFFLE_MOVES, new Random());
+        }
+    }
+
+    /**
+     * Returns Zobrist hash of the game state.
+     * The first call hashes the goal state of the whole game area.
+     * @return hash
+     */
+    @Override
+    public long getHash() {
+        if (!goalHashed) {
+            for (int element = 1; element < size; element++) {
+                goalHash ^= Zobrist.key(element, element - 1);
+            }
+            goalHashed = true;
+        }
+        return goalHash ^ hashDelta;
+    }
+
+    /**
+     * Returns immutable snapshot of the game state.
+     * @return snapshot
+     */
+    @Override
+    public GameSnapshot getSnapshot() {
+        int[] tiles = new int[size];
+        for (int cell = 0; cell < size - 1; cell++) {
+            tiles[cell] = cell + 1;
+        }
+        for (int slot = 0; slot < cellElements.capacity(); slot++) {
+            int cell = cellElements.keyAt(slot);
+            if (cell >= 0) {
+                tiles[cell] = cellElements.valueAt(slot);
+            }
+        }
+        return new GameSnapshot(rows, cols, tiles, getHash());
+    }
+
+    /**
+     * Returns sum of Manhattan distances of elements to their places.
+     * @return distance
+     */
+    @Override
+    public int getManhattanDistance() {
+        return manhattan;
+    }
+
+    /**
+     * Returns count of elements in place.
+     * @return count of elements
+     */
+    @Override
+    public int getElementsInPlace() {
+        return size - 1 - elementCells.size();
+    }
+
+    /**
+     * Returns count of elements which must leave their goal row or column
+     * to let other elements of the line pass.
+     * Only lines changed since the last call are scanned.
+     * @return count of linear conflicts
+     */
+    @Override
+    public int getLinearConflicts() {
+        return conflicts.get();
+    }
+
+    /**
+     * Returns lower bound of moves needed to complete the game.
+     * @return Manhattan distance plus two moves per linear conflict
+     */
+    @Override
+    public int getDistanceBound() {
+        return manhattan + 2 * getLinearConflicts();
+    }
+
+    /**
+     * Returns count of moves.
+     * @return Count of moves
+     */
+    @Override
+    public int getMovesCount() {
+        return movesCount;
+    }
+
+    /**
+     * Returns count of seconds.
+     * @return Count of seconds
+     */
+    @Override
+    public int getSecondsCount() {
+        Date last;
+        if (isCompleted()) {
+            last = completedAt;
+        } else {
+            last = new Date();
+        }
+        return (int) (last.getTime() - createdAt.getTime()) / 1000;
+    }
+
+    /**
+     * Moves element to the empty cell and updates hash and distances.
+     * @param element moved element
+     * @param from cell before the move
+     * @param to empty cell
+     */
+    private void move(int element, int from, int to) {
+        place(element, to);
+        place(0, from);
+        hashDelta = Zobrist.move(hashDelta, element, from, to);
+        manhattan += distance(element, to) - distance(element, from);
+        // Conflicts of a line change only when its own element enters or leaves it
+        conflicts.moved(element, from / cols, from % cols, to / cols, to % cols);
+    }
+
+    /**
+     * Puts element to the cell and updates the maps.
+     * @param element element
+     * @param cell cell
+     */
+    private void place(int element, int cell) {
+        if (element == goalElement(cell)) {
+            cellElements.remove(cell);
+        } else {
+            cellElements.put(cell, element);
+        }
+        if (element == 0) {
+            blank = cell;
+        } else if (cell == element - 1) {
+            elementCells.remove(element);
+        } else {
+            elementCells.put(element, cell);
+        }
+    }
+
+    /**
+     * Returns element in the cell.
+     * @param cell cell
+     * @return element
+     */
+    private int elementAt(int cell) {
+        int element = cellElements.get(cell);
+        return element >= 0 ? element : goalElement(cell);
+    }
+
+    /**
+     * Returns cell of the element.
+     * @param element element
+     * @return cell
+     */
+    private int cellOf(int element) {
+        if (element == 0) {
+            return blank;
+        }
+        int cell = elementCells.get(element);
+        return cell >= 0 ? cell : element - 1;
+    }
+
+    /**
+     * Returns element of the cell in the goal state.
+     * @param cell cell
+     * @return element, zero for the last cell
+     */
+    private int goalElement(int cell) {
+        return cell == size - 1 ? 0 : cell + 1;
+    }
+
+    /**
+     * Returns Manhattan distance of the element in the cell to its place.
+     * @param element non-zero element
+     * @param cell cell
+     * @return distance
+     */
+    private int distance(int element, int cell) {
+        int goal = element - 1;
+        return Math.abs(goal / cols - cell / cols) + Math.abs(goal % cols - cell % cols);
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.staspavlov.taggame.game;
+
+/**
+ * Zobrist hashing of game states.
+ * Hash of a state is XOR of keys of all elements in their cells, so a move
+ * updates it by XOR of two keys. Keys are computed by a mixing function
+ * instead of a table, which would need size * size entries for big games.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public final class Zobrist {
+
+    private Zobrist() {
+    }
+
+    /**
+     * Returns key of the element in the cell.
+     * @param element element, zero is never hashed
+     * @param cell cell index
+     * @return key
+     */
+    public static long key(int element, int cell) {
+        long z = ((long) element << 32 | cell) + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns hash of the state.
+     * @param tiles elements by cells
+     * @return hash
+     */
+    public static long hash(int[] tiles) {
+        long hash = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] != 0) {
+                hash ^= key(tiles[i], i);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Returns new hash after the element is moved.
+     * @param hash current hash
+     * @param element moved element
+     * @param from cell before the move
+     * @param to cell after the move
+     * @return new hash
+     */
+    public static long move(long hash, int element, int from, int to) {
+        return hash ^ key(element, from) ^ key(element, to);
+    }
+
+}
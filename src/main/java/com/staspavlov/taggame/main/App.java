@@ -6,7 +6,9 @@ import com.staspavlov.taggame.game.Game;
 import com.staspavlov.taggame.game.GameImpl;
 import com.staspavlov.taggame.model.ElementSize;
 import com.staspavlov.taggame.model.Model;
+import com.staspavlov.taggame.shared.BoardPublisher;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Locale;
 import java.util.Properties;
 import java.util.ResourceBundle;
@@ -37,6 +39,11 @@ public class App extends Application {
     private final static String GAME_FXML = "/fxml/Game.fxml";
     private final static String WIZARD_FXML = "/fxml/Wizard.fxml";
 
+    /**
+     * System property with path to the shared board file.
+     */
+    private final static String SHARED_PROPERTY = "taggame.shared";
+
     /**
      * Model.
      */
@@ -57,6 +64,11 @@ public class App extends Application {
      */
     private Stage wizardStage;
 
+    /**
+     * Publisher of the board for spectators, null if disabled.
+     */
+    private BoardPublisher publisher;
+
     /**
      * The main() method is ignored in correctly deployed JavaFX application.
      * main() serves only as fallback in case the application can not be
@@ -80,6 +92,7 @@ public class App extends Application {
         wizardStage = new Stage();
 
         initModel();
+        initPublisher();
         initGameStage();
         initWizardStage();
 
@@ -108,6 +121,9 @@ public class App extends Application {
         if (gameController != null) {
             gameController.cleanUp();
         }
+        if (publisher != null) {
+            publisher.close();
+        }
     }
 
     /**
@@ -135,6 +151,17 @@ public class App extends Application {
         model = new Model(game, locale, elementSize);
     }
 
+    /**
+     * Opens shared board file if it is set by the system property.
+     * @throws IOException
+     */
+    private void initPublisher() throws IOException {
+        String path = System.getProperty(SHARED_PROPERTY);
+        if (path != null) {
+            publisher = new BoardPublisher(Paths.get(path), model.getGame().getSize());
+        }
+    }
+
     /**
      * Initializes game stage.
      * @throws IOException
@@ -148,7 +175,7 @@ public class App extends Application {
         loader.setLocation(getClass().getResource(GAME_FXML));
         loader.setResources(ResourceBundle.getBundle("bundle.Locale", model.getLocale()));
 
-        gameController = new GameController(model, gameStage, wizardStage);
+        gameController = new GameController(model, gameStage, wizardStage, publisher);
         loader.setController(gameController);
 
         gameStage.setTitle(loader.getResources().getString("game.title"));
@@ -0,0 +1,85 @@
+package com.staspavlov.taggame.main;
+
+import com.staspavlov.taggame.batch.BatchSolver;
+import com.staspavlov.taggame.batch.PuzzleReader;
+import com.staspavlov.taggame.solver.IdaStarSolver;
+import com.staspavlov.taggame.solver.PositionSolver;
+import com.staspavlov.taggame.solver.SolutionCache;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Headless batch solver of puzzle files.
+ * Usage: Batch [--binary] [--threads N] [--nodes N] [--cache N] input output
+ * The cache option keeps solutions of up to N positions, so repeated
+ * positions of the input are solved once.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class Batch {
+
+    /**
+     * Default limit of expanded nodes per puzzle.
+     */
+    private static final long DEFAULT_NODE_LIMIT = 100000000L;
+
+    /**
+     * Solves puzzles of the input file and writes results to the output file.
+     * @param args the command line arguments
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean binary = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long nodeLimit = DEFAULT_NODE_LIMIT;
+        int cacheCapacity = 0;
+        int i = 0;
+        while (i < args.length && args[i].startsWith("--")) {
+            if (args[i].equals("--binary")) {
+                binary = true;
+                i++;
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[i + 1]);
+                i += 2;
+            } else if (args[i].equals("--nodes") && i + 1 < args.length) {
+                nodeLimit = Long.parseLong(args[i + 1]);
+                i += 2;
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                cacheCapacity = Integer.parseInt(args[i + 1]);
+                i += 2;
+            } else {
+                usage();
+                return;
+            }
+        }
+        if (args.length - i != 2) {
+            usage();
+            return;
+        }
+        Path input = Paths.get(args[i]);
+        Path output = Paths.get(args[i + 1]);
+        PositionSolver solver = IdaStarSolver.positionSolver(nodeLimit);
+        if (cacheCapacity > 0) {
+            solver = new SolutionCache(solver, cacheCapacity);
+        }
+        long started = System.nanoTime();
+        long count;
+        try (PuzzleReader reader = new PuzzleReader(input, binary);
+                Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            count = new BatchSolver(threads, solver).run(reader, writer);
+        }
+        System.err.println(count + " puzzles in " + (System.nanoTime() - started) / 1000000 + " ms");
+    }
+
+    /**
+     * Prints usage.
+     */
+    private static void usage() {
+        System.err.println("Usage: Batch [--binary] [--threads N] [--nodes N] [--cache N] input output");
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.staspavlov.taggame.main;
+
+import com.staspavlov.taggame.bfs.ExternalBfs;
+import com.staspavlov.taggame.bfs.PuzzleSpace;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Builds distance file of the game area by breadth-first search on disk.
+ * Interrupted search is resumed by the same command.
+ * Usage: Bfs [--memory MB] ROWS COLS DIRECTORY
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class Bfs {
+
+    /**
+     * Default memory budget in megabytes.
+     */
+    private static final long DEFAULT_MEMORY = 256;
+
+    /**
+     * Runs the search.
+     * @param args the command line arguments
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        long memory = DEFAULT_MEMORY;
+        int i = 0;
+        if (args.length > 1 && args[0].equals("--memory")) {
+            memory = Long.parseLong(args[1]);
+            i = 2;
+        }
+        if (args.length - i != 3) {
+            System.err.println("Usage: Bfs [--memory MB] ROWS COLS DIRECTORY");
+            return;
+        }
+        PuzzleSpace space = new PuzzleSpace(Integer.parseInt(args[i]), Integer.parseInt(args[i + 1]));
+        ExternalBfs bfs = new ExternalBfs(space, Paths.get(args[i + 2]), memory * 1024 * 1024);
+        long started = System.nanoTime();
+        if (!bfs.run()) {
+            return;
+        }
+        long[] sizes = bfs.getLayerSizes();
+        long total = 0;
+        for (int distance = 0; distance < sizes.length; distance++) {
+            System.out.println(distance + "\t" + sizes[distance]);
+            total += sizes[distance];
+        }
+        System.err.println(total + " states in " + (System.nanoTime() - started) / 1000000 + " ms");
+    }
+
+}
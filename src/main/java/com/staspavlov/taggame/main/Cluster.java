@@ -0,0 +1,97 @@
+package com.staspavlov.taggame.main;
+
+import com.staspavlov.taggame.cluster.Coordinator;
+import com.staspavlov.taggame.cluster.Worker;
+import com.staspavlov.taggame.solver.Solution;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Distributed solver over local sockets.
+ * Usage: Cluster coordinator PORT [--spawn N] ROWS COLS ELEMENTS...
+ *        Cluster worker HOST PORT
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class Cluster {
+
+    /**
+     * Runs coordinator or worker.
+     * @param args the command line arguments
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 3 && args[0].equals("worker")) {
+            new Worker(args[1], Integer.parseInt(args[2])).run();
+        } else if (args.length >= 4 && args[0].equals("coordinator")) {
+            coordinator(args);
+        } else {
+            usage();
+        }
+    }
+
+    /**
+     * Solves the position with workers spawned as separate processes
+     * or started by hand.
+     * @param args the command line arguments
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private static void coordinator(String[] args) throws IOException, InterruptedException {
+        int port = Integer.parseInt(args[1]);
+        int i = 2;
+        int spawn = 0;
+        if (args[i].equals("--spawn")) {
+            spawn = Integer.parseInt(args[i + 1]);
+            i += 2;
+        }
+        if (args.length - i < 2) {
+            usage();
+            return;
+        }
+        int rows = Integer.parseInt(args[i]);
+        int cols = Integer.parseInt(args[i + 1]);
+        i += 2;
+        int[] tiles = new int[args.length - i];
+        for (int j = 0; j < tiles.length; j++) {
+            tiles[j] = Integer.parseInt(args[i + j]);
+        }
+        List<Process> workers = new ArrayList<>();
+        try (Coordinator coordinator = new Coordinator(port)) {
+            System.err.println("Coordinator is listening on port " + coordinator.getPort());
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            for (int j = 0; j < spawn; j++) {
+                workers.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        Cluster.class.getName(), "worker", "localhost", String.valueOf(coordinator.getPort()))
+                        .inheritIO().start());
+            }
+            long started = System.nanoTime();
+            Solution solution = coordinator.solve(rows, cols, tiles);
+            long millis = (System.nanoTime() - started) / 1000000;
+            if (solution.isFound()) {
+                System.out.println(solution.getLength() + " " + Arrays.toString(solution.getMoves()));
+            } else {
+                System.out.println("unsolvable");
+            }
+            System.err.println(solution.getNodes() + " nodes in " + millis + " ms, "
+                    + coordinator.getStolenCount() + " stolen, "
+                    + coordinator.getRestartedCount() + " restarted units");
+        } finally {
+            for (Process worker : workers) {
+                worker.waitFor();
+            }
+        }
+    }
+
+    /**
+     * Prints usage.
+     */
+    private static void usage() {
+        System.err.println("Usage: Cluster coordinator PORT [--spawn N] ROWS COLS ELEMENTS...");
+        System.err.println("       Cluster worker HOST PORT");
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.staspavlov.taggame.main;
+
+import com.staspavlov.taggame.shared.BoardReader;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prints the board shared by the game started with -Dtaggame.shared=FILE
+ * on every change.
+ * Usage: Spectator FILE
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class Spectator {
+
+    /**
+     * Pause between polls in nanoseconds.
+     */
+    private static final long POLL_INTERVAL = 100000L;
+
+    /**
+     * Polls the shared board.
+     * @param args the command line arguments
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: Spectator FILE");
+            return;
+        }
+        try (BoardReader reader = new BoardReader(Paths.get(args[0]))) {
+            StringBuilder text = new StringBuilder();
+            while (true) {
+                if (reader.poll()) {
+                    text.setLength(0);
+                    text.append("moves: ").append(reader.getMovesCount());
+                    if (reader.isCompleted()) {
+                        text.append(", completed");
+                    }
+                    text.append('\n');
+                    for (int r = 0; r < reader.getRows(); r++) {
+                        for (int c = 0; c < reader.getCols(); c++) {
+                            text.append(String.format("%4d", reader.getElement(r, c)));
+                        }
+                        text.append('\n');
+                    }
+                    System.out.println(text);
+                } else {
+                    LockSupport.parkNanos(POLL_INTERVAL);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+package com.staspavlov.taggame.metrics;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FrameStats measures pulses of the game window and latency of inputs.
+ * A pulse applies queued inputs and renders them, the frame is painted
+ * before the next pulse starts, so input latency is measured from the
+ * input event to the start of the pulse following the one that applied
+ * it. All methods are called by the FX thread and do not allocate, except
+ * the summary and export.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class FrameStats {
+
+    /**
+     * Maximal trackable time, longer times are counted as this one.
+     */
+    private static final long HIGHEST_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * Length of the frame rate window.
+     */
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Intervals between pulses.
+     */
+    private final LatencyHistogram frameTimes = new LatencyHistogram(HIGHEST_NANOS);
+
+    /**
+     * Durations of pulse work.
+     */
+    private final LatencyHistogram pulseTimes = new LatencyHistogram(HIGHEST_NANOS);
+
+    /**
+     * Latencies from input to paint.
+     */
+    private final LatencyHistogram inputLatencies = new LatencyHistogram(HIGHEST_NANOS);
+
+    /**
+     * Times of inputs waiting for a pulse.
+     */
+    private final long[] queuedInputs;
+
+    /**
+     * Count of inputs waiting for a pulse.
+     */
+    private int queuedCount;
+
+    /**
+     * Times of inputs applied by the current pulse.
+     */
+    private final long[] appliedInputs;
+
+    /**
+     * Count of inputs applied by the current pulse.
+     */
+    private int appliedCount;
+
+    /**
+     * Start time of the current pulse, zero before the first one.
+     */
+    private long pulseStart;
+
+    /**
+     * Start time of the frame rate window.
+     */
+    private long rateWindowStart;
+
+    /**
+     * Count of pulses in the frame rate window.
+     */
+    private int rateWindowFrames;
+
+    /**
+     * Frames per second of the last complete window.
+     */
+    private double framesPerSecond;
+
+    /**
+     * Creates stats instance.
+     * @param inputCapacity maximal number of inputs per pulse to measure
+     */
+    public FrameStats(int inputCapacity) {
+        queuedInputs = new long[inputCapacity];
+        appliedInputs = new long[inputCapacity];
+    }
+
+    /**
+     * Registers input, inputs above capacity are not measured.
+     * @param now time of the input in nanoseconds
+     */
+    public void inputQueued(long now) {
+        if (queuedCount < queuedInputs.length) {
+            queuedInputs[queuedCount++] = now;
+        }
+    }
+
+    /**
+     * Registers start of a pulse.
+     * @param now time in nanoseconds
+     * @return true if a frame rate window is completed
+     */
+    public boolean pulseStarted(long now) {
+        // Inputs applied by the previous pulse are painted by now
+        for (int i = 0; i < appliedCount; i++) {
+            inputLatencies.record(now - appliedInputs[i]);
+        }
+        System.arraycopy(queuedInputs, 0, appliedInputs, 0, queuedCount);
+        appliedCount = queuedCount;
+        queuedCount = 0;
+        if (pulseStart != 0) {
+            frameTimes.record(now - pulseStart);
+        } else {
+            rateWindowStart = now;
+        }
+        pulseStart = now;
+        rateWindowFrames++;
+        if (now - rateWindowStart >= RATE_WINDOW_NANOS) {
+            framesPerSecond = rateWindowFrames * 1e9 / (now - rateWindowStart);
+            rateWindowStart = now;
+            rateWindowFrames = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Registers end of the pulse work.
+     * @param now time in nanoseconds
+     */
+    public void pulseFinished(long now) {
+        pulseTimes.record(now - pulseStart);
+    }
+
+    /**
+     * Returns frames per second of the last complete window.
+     * @return frame rate
+     */
+    public double getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    /**
+     * Returns histogram of intervals between pulses in nanoseconds.
+     * @return histogram
+     */
+    public LatencyHistogram getFrameTimes() {
+        return frameTimes;
+    }
+
+    /**
+     * Returns histogram of pulse work durations in nanoseconds.
+     * @return histogram
+     */
+    public LatencyHistogram getPulseTimes() {
+        return pulseTimes;
+    }
+
+    /**
+     * Returns histogram of input to paint latencies in nanoseconds.
+     * @return histogram
+     */
+    public LatencyHistogram getInputLatencies() {
+        return inputLatencies;
+    }
+
+    /**
+     * Returns one line summary in milliseconds.
+     * @return summary
+     */
+    public String getSummary() {
+        return String.format(Locale.ROOT,
+                "FPS %.0f | frame %.1f ms, p99 %.1f | pulse %.2f ms, p99 %.2f | input %.1f ms, p99 %.1f, max %.1f (%d)",
+                framesPerSecond,
+                frameTimes.getMean() / NANOS_PER_MILLI,
+                frameTimes.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                pulseTimes.getMean() / NANOS_PER_MILLI,
+                pulseTimes.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                inputLatencies.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                inputLatencies.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                inputLatencies.getMax() / NANOS_PER_MILLI,
+                inputLatencies.getTotalCount());
+    }
+
+    /**
+     * Writes percentile distributions in milliseconds.
+     * @param out output
+     * @throws IOException
+     */
+    public void writeTo(Appendable out) throws IOException {
+        frameTimes.writePercentiles(out, "Frame time, ms", NANOS_PER_MILLI);
+        out.append('\n');
+        pulseTimes.writePercentiles(out, "Pulse duration, ms", NANOS_PER_MILLI);
+        out.append('\n');
+        inputLatencies.writePercentiles(out, "Input to paint latency, ms", NANOS_PER_MILLI);
+    }
+
+}
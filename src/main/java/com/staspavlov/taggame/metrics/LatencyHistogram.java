@@ -0,0 +1,214 @@
+package com.staspavlov.taggame.metrics;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * LatencyHistogram counts non-negative values in log-linear buckets.
+ * Values below 64 are counted exactly, larger values fall into one of 32
+ * buckets per power of two, so the relative error is below 3%. Counts are
+ * preallocated, recording does not allocate. Values above the maximal
+ * trackable value are counted as the maximal value. Not thread-safe.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of bits of the sub-bucket index.
+     */
+    private static final int SUB_BUCKET_BITS = 6;
+
+    /**
+     * Number of sub-buckets per power of two.
+     */
+    private static final int SUB_BUCKET_HALF = 1 << (SUB_BUCKET_BITS - 1);
+
+    /**
+     * Percentiles of the distribution export.
+     */
+    private static final double[] PERCENTILES = {
+        0, 10, 20, 30, 40, 50, 60, 70, 75, 80, 85, 90, 95, 99, 99.9, 99.99, 100
+    };
+
+    /**
+     * Counts by buckets.
+     */
+    private final long[] counts;
+
+    /**
+     * Maximal trackable value.
+     */
+    private final long highestValue;
+
+    /**
+     * Count of recorded values.
+     */
+    private long totalCount;
+
+    /**
+     * Sum of recorded values.
+     */
+    private long sum;
+
+    /**
+     * Minimal recorded value.
+     */
+    private long min = Long.MAX_VALUE;
+
+    /**
+     * Maximal recorded value.
+     */
+    private long max;
+
+    /**
+     * Creates histogram instance.
+     * @param highestValue maximal trackable value
+     */
+    public LatencyHistogram(long highestValue) {
+        if (highestValue < 1) {
+            throw new IllegalArgumentException("Highest value must be positive");
+        }
+        this.highestValue = highestValue;
+        this.counts = new long[indexOf(highestValue) + 1];
+    }
+
+    /**
+     * Records value.
+     * @param value value, negative values are counted as zero
+     */
+    public void record(long value) {
+        long v = Math.min(Math.max(value, 0), highestValue);
+        counts[indexOf(v)]++;
+        totalCount++;
+        sum += v;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * Returns count of recorded values.
+     * @return count
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns minimal recorded value.
+     * @return value, zero if histogram is empty
+     */
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    /**
+     * Returns maximal recorded value.
+     * @return value, zero if histogram is empty
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns mean of recorded values.
+     * @return mean, zero if histogram is empty
+     */
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * Returns value at percentile, i.e. the highest value equivalent to the
+     * bucket which contains the percentile, limited by the recorded range.
+     * @param percentile percentile from 0 to 100
+     * @return value, zero if histogram is empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        if (percentile <= 0) {
+            return min;
+        }
+        double p = Math.min(percentile, 100);
+        long target = (long) Math.ceil(p / 100 * totalCount);
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            count += counts[i];
+            if (count >= target) {
+                return Math.max(min, Math.min(max, highestEquivalent(i)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Writes percentile distribution.
+     * @param out output
+     * @param title title of the distribution
+     * @param unit divider of the values
+     * @throws IOException
+     */
+    public void writePercentiles(Appendable out, String title, double unit) throws IOException {
+        out.append("# ").append(title).append('\n');
+        out.append("# count=").append(String.valueOf(totalCount))
+                .append(" min=").append(format(getMin() / unit))
+                .append(" mean=").append(format(getMean() / unit))
+                .append(" max=").append(format(getMax() / unit)).append('\n');
+        out.append("percentile\tvalue\n");
+        for (double percentile : PERCENTILES) {
+            out.append(String.valueOf(percentile)).append('\t')
+                    .append(format(getValueAtPercentile(percentile) / unit)).append('\n');
+        }
+    }
+
+    /**
+     * Returns bucket index of the value.
+     * @param value non-negative value
+     * @return index
+     */
+    private static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKET_HALF) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    /**
+     * Returns the highest value of the bucket.
+     * @param index bucket index
+     * @return value
+     */
+    private static long highestEquivalent(int index) {
+        if (index < 2 * SUB_BUCKET_HALF) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        long sub = index - shift * SUB_BUCKET_HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Formats value with three decimals.
+     * @param value value
+     * @return text
+     */
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.staspavlov.taggame.shared;
+
+import com.staspavlov.taggame.game.Game;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * BoardPublisher mirrors the game board to a memory-mapped file.
+ * Writes are guarded by the sequence of the header like a seqlock: it is
+ * odd during a write, so readers retry snapshots which overlap a write.
+ * A move costs seven stores and two fences. The file grows when a bigger
+ * game is published. Single writer, not thread-safe.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class BoardPublisher implements Closeable {
+
+    private final FileChannel channel;
+
+    /**
+     * Mapped file.
+     */
+    private MappedByteBuffer buffer;
+
+    /**
+     * Elements by cells of the mapped file.
+     */
+    private IntBuffer tiles;
+
+    /**
+     * Number of cells of the mapped file.
+     */
+    private int capacity;
+
+    /**
+     * Sequence of the header.
+     */
+    private long sequence;
+
+    /**
+     * Target of fences: a volatile store followed by a volatile load
+     * keeps plain accesses of the mapped file on their side.
+     */
+    private volatile int fence;
+
+    /**
+     * Creates publisher and maps the file.
+     * @param file shared file, created or overwritten
+     * @param capacity initial number of cells
+     * @throws IOException
+     */
+    public BoardPublisher(Path file, int capacity) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Wrong capacity");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        map(capacity);
+        buffer.putInt(Layout.VERSION_OFFSET, Layout.VERSION);
+        buffer.putLong(Layout.SEQUENCE_OFFSET, 0);
+        fence();
+        // Readers accept the file after the magic is written
+        buffer.putInt(Layout.MAGIC_OFFSET, Layout.MAGIC);
+    }
+
+    /**
+     * Publishes the whole board.
+     * @param game Game
+     * @throws IOException if the file can not grow
+     */
+    public void publish(Game game) throws IOException {
+        int rows = game.getRows();
+        int cols = game.getCols();
+        if (game.getSize() > capacity) {
+            map(game.getSize());
+        }
+        begin();
+        buffer.putInt(Layout.ROWS_OFFSET, rows);
+        buffer.putInt(Layout.COLS_OFFSET, cols);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                tiles.put(r * cols + c, game.getElement(r, c));
+            }
+        }
+        buffer.putLong(Layout.MOVES_OFFSET, game.getMovesCount());
+        buffer.putInt(Layout.COMPLETED_OFFSET, game.isCompleted() ? 1 : 0);
+        end();
+    }
+
+    /**
+     * Publishes a move of the published board.
+     * @param element moved element
+     * @param cell cell of the element after the move
+     * @param blank empty cell after the move
+     * @param moves number of moves
+     * @param completed true if the game is completed
+     */
+    public void move(int element, int cell, int blank, long moves, boolean completed) {
+        begin();
+        tiles.put(cell, element);
+        tiles.put(blank, 0);
+        buffer.putLong(Layout.MOVES_OFFSET, moves);
+        buffer.putInt(Layout.COMPLETED_OFFSET, completed ? 1 : 0);
+        end();
+    }
+
+    /**
+     * Returns sequence of the last write.
+     * @return even sequence
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Closes the file, the mapping stays valid for readers.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void begin() {
+        buffer.putLong(Layout.SEQUENCE_OFFSET, ++sequence);
+        fence();
+    }
+
+    private void end() {
+        fence();
+        buffer.putLong(Layout.SEQUENCE_OFFSET, ++sequence);
+    }
+
+    /**
+     * Full fence of plain accesses.
+     * @return unused value
+     */
+    private int fence() {
+        fence = 0;
+        return fence;
+    }
+
+    /**
+     * Maps the file for the number of cells.
+     * @param cells number of cells
+     * @throws IOException
+     */
+    private void map(int cells) throws IOException {
+        if (Layout.fileSize(cells) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Board is too big");
+        }
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, Layout.fileSize(cells));
+        mapped.order(Layout.ORDER);
+        mapped.position(Layout.TILES_OFFSET);
+        tiles = mapped.slice().order(Layout.ORDER).asIntBuffer();
+        buffer = mapped;
+        capacity = cells;
+        // Header of the grown file is shared with the old mapping
+        buffer.putInt(Layout.CAPACITY_OFFSET, cells);
+    }
+
+}
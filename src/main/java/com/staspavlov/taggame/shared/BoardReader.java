@@ -0,0 +1,232 @@
+package com.staspavlov.taggame.shared;
+
+import com.staspavlov.taggame.game.GameSnapshot;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * BoardReader takes consistent snapshots of a board shared by
+ * BoardPublisher, possibly in another process.
+ * A snapshot is read directly from the mapped file between two reads of
+ * the sequence and is retried if the sequence is odd or changed.
+ * Not thread-safe, every reader thread needs its own instance.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class BoardReader implements Closeable {
+
+    /**
+     * Number of retries before the reader yields to the writer.
+     */
+    private static final int SPINS = 100;
+
+    private final FileChannel channel;
+
+    /**
+     * Mapped file.
+     */
+    private MappedByteBuffer buffer;
+
+    /**
+     * Elements by cells of the mapped file.
+     */
+    private IntBuffer mappedTiles;
+
+    /**
+     * Number of cells of the mapped file.
+     */
+    private int capacity;
+
+    /**
+     * Sequence of the snapshot, zero before the first one: the board is
+     * not published yet.
+     */
+    private long sequence;
+
+    private int rows;
+
+    private int cols;
+
+    private long moves;
+
+    private boolean completed;
+
+    /**
+     * Elements by cells of the snapshot.
+     */
+    private int[] tiles = new int[0];
+
+    /**
+     * Target of fences: a volatile store followed by a volatile load
+     * keeps plain accesses of the mapped file on their side.
+     */
+    private volatile int fence;
+
+    /**
+     * Opens the shared file.
+     * @param file shared file
+     * @throws IOException if the file is not a published board
+     */
+    public BoardReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        if (channel.size() < Layout.TILES_OFFSET) {
+            channel.close();
+            throw new IOException("Board is not published");
+        }
+        map();
+        if (buffer.getInt(Layout.MAGIC_OFFSET) != Layout.MAGIC
+                || buffer.getInt(Layout.VERSION_OFFSET) != Layout.VERSION) {
+            channel.close();
+            throw new IOException("Wrong shared board file");
+        }
+    }
+
+    /**
+     * Takes snapshot if the board is changed since the last one.
+     * @return true if a new snapshot is taken
+     * @throws IOException if the grown file can not be mapped
+     */
+    public boolean poll() throws IOException {
+        for (int attempt = 1;; attempt++) {
+            long before = buffer.getLong(Layout.SEQUENCE_OFFSET);
+            if (before == sequence) {
+                return false;
+            }
+            if ((before & 1) == 0) {
+                fence();
+                if (buffer.getInt(Layout.CAPACITY_OFFSET) > capacity) {
+                    map();
+                    if (buffer.getInt(Layout.CAPACITY_OFFSET) > capacity) {
+                        throw new IOException("Shared board file is truncated");
+                    }
+                    continue;
+                }
+                int newRows = buffer.getInt(Layout.ROWS_OFFSET);
+                int newCols = buffer.getInt(Layout.COLS_OFFSET);
+                long newMoves = buffer.getLong(Layout.MOVES_OFFSET);
+                boolean newCompleted = buffer.getInt(Layout.COMPLETED_OFFSET) != 0;
+                int size = newRows * newCols;
+                // Torn dimensions are dropped by the sequence check
+                if (newRows >= 0 && newCols >= 0 && size >= 0 && size <= capacity) {
+                    if (tiles.length != size) {
+                        tiles = new int[size];
+                    }
+                    mappedTiles.clear();
+                    mappedTiles.get(tiles, 0, size);
+                    fence();
+                    if (buffer.getLong(Layout.SEQUENCE_OFFSET) == before) {
+                        sequence = before;
+                        rows = newRows;
+                        cols = newCols;
+                        moves = newMoves;
+                        completed = newCompleted;
+                        return true;
+                    }
+                }
+            }
+            if (attempt % SPINS == 0) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Returns sequence of the snapshot.
+     * @return sequence, zero before the first snapshot
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns number of rows of the snapshot.
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns number of columns of the snapshot.
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns element of the snapshot.
+     * @param row row
+     * @param col column
+     * @return element, zero for empty cell
+     */
+    public int getElement(int row, int col) {
+        return tiles[row * cols + col];
+    }
+
+    /**
+     * Returns number of moves of the snapshot.
+     * @return number of moves
+     */
+    public long getMovesCount() {
+        return moves;
+    }
+
+    /**
+     * Checks if the game of the snapshot is completed.
+     * @return true if completed
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Copies elements of the snapshot.
+     * @param elements array of at least rows * cols elements
+     */
+    public void copyTiles(int[] elements) {
+        System.arraycopy(tiles, 0, elements, 0, tiles.length);
+    }
+
+    /**
+     * Returns the snapshot as a game snapshot.
+     * @return snapshot, null before the first one
+     */
+    public GameSnapshot toGameSnapshot() {
+        return sequence == 0 ? null : new GameSnapshot(rows, cols, Arrays.copyOf(tiles, tiles.length));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Full fence of plain accesses.
+     * @return unused value
+     */
+    private int fence() {
+        fence = 0;
+        return fence;
+    }
+
+    /**
+     * Maps the whole file.
+     * @throws IOException
+     */
+    private void map() throws IOException {
+        long size = Math.min(channel.size(), Integer.MAX_VALUE);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        mapped.order(Layout.ORDER);
+        mapped.position(Layout.TILES_OFFSET);
+        mappedTiles = mapped.slice().order(Layout.ORDER).asIntBuffer();
+        buffer = mapped;
+        capacity = mappedTiles.capacity();
+    }
+
+}
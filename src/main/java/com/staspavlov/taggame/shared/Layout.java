@@ -0,0 +1,61 @@
+package com.staspavlov.taggame.shared;
+
+import java.nio.ByteOrder;
+
+/**
+ * Layout of the shared board file.
+ * All numbers are little-endian. The header is followed by elements by
+ * cells, four bytes each. The sequence is odd while the board is written,
+ * every write increments it twice.
+ * <pre>
+ *  0  int   magic "TGSB"
+ *  4  int   layout version
+ *  8  long  sequence
+ * 16  int   capacity in cells
+ * 20  int   number of rows
+ * 24  int   number of columns
+ * 28  int   completed flag
+ * 32  long  number of moves
+ * 64  int[] elements by cells
+ * </pre>
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+final class Layout {
+
+    static final int MAGIC = 0x42534754;
+
+    static final int VERSION = 1;
+
+    static final int MAGIC_OFFSET = 0;
+
+    static final int VERSION_OFFSET = 4;
+
+    static final int SEQUENCE_OFFSET = 8;
+
+    static final int CAPACITY_OFFSET = 16;
+
+    static final int ROWS_OFFSET = 20;
+
+    static final int COLS_OFFSET = 24;
+
+    static final int COMPLETED_OFFSET = 28;
+
+    static final int MOVES_OFFSET = 32;
+
+    static final int TILES_OFFSET = 64;
+
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private Layout() {
+    }
+
+    /**
+     * Returns file size for the number of cells.
+     * @param capacity number of cells
+     * @return size in bytes
+     */
+    static long fileSize(int capacity) {
+        return TILES_OFFSET + 4L * capacity;
+    }
+
+}
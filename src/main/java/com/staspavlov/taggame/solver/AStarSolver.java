@@ -0,0 +1,649 @@
+package com.staspavlov.taggame.solver;
+
+import com.staspavlov.taggame.game.ConflictCounter;
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameShape;
+import java.util.Arrays;
+
+/**
+ * AStarSolver finds shortest solutions by A* graph search on packed states.
+ * A state of up to sixteen cells is packed into a long, four bits per cell.
+ * Reached states with their heuristic, number of moves and last move are
+ * kept in a primitive open addressing map, open states in a bucket queue by
+ * the estimated length, so no state is expanded twice. The heuristic is
+ * Manhattan distance plus two moves per linear conflict, updated by every
+ * move for the lines of the moved element only. In bidirectional
+ * mode searches from both ends expand the smaller frontier and stop when
+ * the best meeting path is not longer than the lower bound of any other.
+ * When the number of reached states exceeds the limit, the solver falls
+ * back to IDA* search, which needs no more memory for states. IDA* starts
+ * from the open states of the forward search with the lower bound proven
+ * by A*, so it skips the iterations below that bound and the paths A* has
+ * already merged.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class AStarSolver {
+
+    /**
+     * Maximal number of cells of a packed state.
+     */
+    public static final int MAX_SIZE = 16;
+
+    /**
+     * Default limit of reached states.
+     */
+    public static final int DEFAULT_MAX_STATES = 1 << 20;
+
+    /**
+     * Last move code of the start states.
+     */
+    private static final int ROOT = 4;
+
+    /**
+     * Bits of the number of moves in queue keys, ties of the estimated
+     * length are broken in favour of longer paths.
+     */
+    private static final int DEPTH_BITS = 7;
+
+    /**
+     * Maximal number of moves of a path in the queue.
+     */
+    private static final int MAX_DEPTH = (1 << DEPTH_BITS) - 1;
+
+    /**
+     * Lookup tables of the game area shape.
+     */
+    private final GameShape shape;
+
+    /**
+     * Number of rows in the game area.
+     */
+    private final int rows;
+
+    /**
+     * Number of columns in the game area.
+     */
+    private final int cols;
+
+    /**
+     * Elements by cells in the start state.
+     */
+    private final int[] start;
+
+    /**
+     * Goal rows by elements.
+     */
+    private final int[] goalRows;
+
+    /**
+     * Goal columns by elements.
+     */
+    private final int[] goalCols;
+
+    /**
+     * Start rows by elements.
+     */
+    private final int[] startRows;
+
+    /**
+     * Start columns by elements.
+     */
+    private final int[] startCols;
+
+    /**
+     * Counter of conflicts of a line.
+     */
+    private final ConflictCounter counter;
+
+    /**
+     * Length of the best path through a meeting state.
+     */
+    private int bestLength;
+
+    /**
+     * Meeting state of the best path.
+     */
+    private long meeting;
+
+    /**
+     * States of the path of the running IDA* search from an open state.
+     */
+    private long[] trail;
+
+    /**
+     * Length of the path found by IDA* search.
+     */
+    private int trailLength;
+
+    /**
+     * Count of expanded nodes.
+     */
+    private long nodes;
+
+    /**
+     * The last search fell back to IDA*.
+     */
+    private boolean fallback;
+
+    /**
+     * Creates solver instance for the current state of the game.
+     * @param game Game with the classic goal
+     */
+    public AStarSolver(Game game) {
+        this(game.getRows(), game.getCols(), Boards.toArray(game));
+    }
+
+    /**
+     * Creates solver instance for the state.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param tiles elements by cells
+     */
+    public AStarSolver(int rows, int cols, int[] tiles) {
+        int size = rows * cols;
+        if (size > MAX_SIZE) {
+            throw new IllegalArgumentException("Wrong game area for packed states");
+        }
+        Boards.checkTiles(rows, cols, tiles);
+        this.shape = GameShape.of(rows, cols);
+        this.rows = rows;
+        this.cols = cols;
+        this.start = tiles.clone();
+        this.goalRows = new int[size];
+        this.goalCols = new int[size];
+        this.startRows = new int[size];
+        this.startCols = new int[size];
+        for (int cell = 0; cell < size; cell++) {
+            int row = shape.rowOf(cell);
+            int col = shape.colOf(cell);
+            int element = start[cell];
+            startRows[element] = row;
+            startCols[element] = col;
+            goalRows[shape.goalElement(cell)] = row;
+            goalCols[shape.goalElement(cell)] = col;
+        }
+        this.counter = new ConflictCounter(Math.max(rows, cols));
+    }
+
+    /**
+     * Returns solver of positions by forward A* search, for example to put
+     * a SolutionCache in front of it. Positions may have up to MAX_SIZE
+     * cells.
+     * @param maxStates limit of reached states, IDA* is used above it
+     * @return solver
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public static PositionSolver positionSolver(final int maxStates) {
+        if (maxStates < 1) {
+            throw new IllegalArgumentException("Wrong limit of states");
+        }
+        return new PositionSolver() {
+            @Override
+            public Solution solve(int rows, int cols, int[] tiles) {
+                return new AStarSolver(rows, cols, tiles).solve(false, maxStates);
+            }
+        };
+    }
+
+    /**
+     * Finds the shortest solution by forward search with the default
+     * limit of reached states.
+     * @return solution
+     */
+    public Solution solve() {
+        return solve(false, DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * Finds the shortest solution.
+     * Unsolvable states have no solution and the maximal lower bound.
+     * @param bidirectional true to search from both ends
+     * @param maxStates limit of reached states, IDA* is used above it
+     * @return solution
+     */
+    public Solution solve(boolean bidirectional, int maxStates) {
+        nodes = 0;
+        fallback = false;
+        if (!Boards.isSolvable(start, cols)) {
+            return new Solution(null, Integer.MAX_VALUE, 0);
+        }
+        long from = pack(start);
+        long to = 0;
+        for (int cell = 0; cell < start.length; cell++) {
+            to |= (long) shape.goalElement(cell) << (cell * 4);
+        }
+        int[] moves = bidirectional ? searchBoth(from, to, maxStates) : searchForward(from, to, maxStates);
+        return new Solution(moves, moves.length, nodes);
+    }
+
+    /**
+     * Returns count of nodes expanded by the last search.
+     * @return count of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Checks if the last search exceeded the limit of reached states or
+     * the maximal number of moves of a queued path and went on by IDA*
+     * from the open states of the forward search. In bidirectional mode
+     * the solution is the best meeting path when IDA* finds no shorter one.
+     * @return true if IDA* search was run
+     */
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    /**
+     * A* search from the start state.
+     * @param from start state
+     * @param to goal state
+     * @param maxStates limit of reached states
+     * @return moves
+     */
+    private int[] searchForward(long from, long to, int maxStates) {
+        LongIntMap reached = new LongIntMap(1024);
+        BucketQueue open = new BucketQueue();
+        start(from, reached, open, goalRows, goalCols);
+        while (true) {
+            int key = open.minKey();
+            int g = MAX_DEPTH - (key & MAX_DEPTH);
+            if (reached.size() > maxStates || g == MAX_DEPTH) {
+                // No path is shorter than the least estimate in the queue
+                return searchFrontier(reached, open, to, key >>> DEPTH_BITS, Integer.MAX_VALUE);
+            }
+            long state = open.pop();
+            int entry = reached.get(state);
+            if (depthOf(entry) != g) {
+                // State was reached by a shorter path after it was queued
+                continue;
+            }
+            if (state == to) {
+                return path(state, reached, null);
+            }
+            nodes++;
+            expand(state, entry, reached, open, goalRows, goalCols, null);
+        }
+    }
+
+    /**
+     * Bidirectional A* search meeting in the middle.
+     * @param from start state
+     * @param to goal state
+     * @param maxStates limit of reached states
+     * @return moves
+     */
+    private int[] searchBoth(long from, long to, int maxStates) {
+        if (from == to) {
+            return new int[0];
+        }
+        LongIntMap forward = new LongIntMap(1024);
+        LongIntMap backward = new LongIntMap(1024);
+        BucketQueue forwardOpen = new BucketQueue();
+        BucketQueue backwardOpen = new BucketQueue();
+        start(from, forward, forwardOpen, goalRows, goalCols);
+        start(to, backward, backwardOpen, startRows, startCols);
+        bestLength = Integer.MAX_VALUE;
+        while (!forwardOpen.isEmpty() && !backwardOpen.isEmpty()) {
+            // Any other path is not shorter than the least estimate of a side
+            int bound = Math.max(forwardOpen.minKey(), backwardOpen.minKey()) >>> DEPTH_BITS;
+            if (bestLength <= bound) {
+                break;
+            }
+            boolean isForward = forwardOpen.size() <= backwardOpen.size();
+            LongIntMap reached = isForward ? forward : backward;
+            BucketQueue open = isForward ? forwardOpen : backwardOpen;
+            int[] targetRows = isForward ? goalRows : startRows;
+            int[] targetCols = isForward ? goalCols : startCols;
+            int g = MAX_DEPTH - (open.minKey() & MAX_DEPTH);
+            if (forward.size() + backward.size() > maxStates || g == MAX_DEPTH) {
+                // Only paths shorter than the best meeting one are searched
+                int[] moves = searchFrontier(forward, forwardOpen, to, bound, bestLength - 1);
+                return moves != null ? moves : path(meeting, forward, backward);
+            }
+            long state = open.pop();
+            int entry = reached.get(state);
+            if (depthOf(entry) != g) {
+                continue;
+            }
+            nodes++;
+            expand(state, entry, reached, open, targetRows, targetCols, isForward ? backward : forward);
+        }
+        return path(meeting, forward, backward);
+    }
+
+    /**
+     * IDA* search from the open states of the forward search. Every path
+     * from the start state leaves the expanded states through an open one,
+     * so paths are searched from open states only.
+     * @param reached reached states of the forward search
+     * @param open open states of the forward search
+     * @param to goal state
+     * @param bound lower bound of the solution length
+     * @param maxLength maximal number of moves
+     * @return moves, null if there is no solution within the maximal length
+     */
+    private int[] searchFrontier(LongIntMap reached, BucketQueue open, long to, int bound, int maxLength) {
+        fallback = true;
+        long[] roots = new long[open.size()];
+        int[] entries = new int[roots.length];
+        int count = 0;
+        while (!open.isEmpty()) {
+            int g = MAX_DEPTH - (open.minKey() & MAX_DEPTH);
+            long state = open.pop();
+            int entry = reached.get(state);
+            if (depthOf(entry) == g) {
+                roots[count] = state;
+                entries[count++] = entry;
+            }
+        }
+        while (bound <= maxLength) {
+            if (trail == null || trail.length <= bound) {
+                trail = new long[bound + 1];
+            }
+            int next = Integer.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                int entry = entries[i];
+                int result = searchDepth(roots[i], entry >>> 16, depthOf(entry), entry & 7, 0, bound, to);
+                if (result < 0) {
+                    int[] head = path(roots[i], reached, null);
+                    int[] moves = Arrays.copyOf(head, head.length + trailLength);
+                    for (int j = 0; j < trailLength; j++) {
+                        long state = j == 0 ? roots[i] : trail[j - 1];
+                        moves[head.length + j] = (int) (state >>> (blankOf(trail[j]) * 4)) & 15;
+                    }
+                    return moves;
+                }
+                next = Math.min(next, result);
+            }
+            bound = next;
+        }
+        return null;
+    }
+
+    /**
+     * Depth-first search bounded by the estimated length.
+     * @param state state
+     * @param h heuristic of the state
+     * @param g number of moves from the start state
+     * @param last direction of the empty cell in the last move
+     * @param depth number of moves from the open state
+     * @param bound maximal estimated length
+     * @param to goal state
+     * @return -1 if found, minimal estimated length above the bound otherwise
+     */
+    private int searchDepth(long state, int h, int g, int last, int depth, int bound, long to) {
+        if (g + h > bound) {
+            return g + h;
+        }
+        if (state == to) {
+            trailLength = depth;
+            return -1;
+        }
+        nodes++;
+        int min = Integer.MAX_VALUE;
+        int blank = blankOf(state);
+        for (int d = 0; d < 4; d++) {
+            int cell = shape.neighbour(blank, d);
+            if (cell < 0 || d == (last ^ 1)) {
+                continue;
+            }
+            int element = (int) (state >>> (cell * 4)) & 15;
+            long next = state - ((long) element << (cell * 4)) + ((long) element << (blank * 4));
+            trail[depth] = next;
+            int result = searchDepth(next, heuristic(state, next, h, d, blank, cell, goalRows, goalCols),
+                    g + 1, d, depth + 1, bound, to);
+            if (result < 0) {
+                return result;
+            }
+            min = Math.min(min, result);
+        }
+        return min;
+    }
+
+    /**
+     * Queues the start state of a search.
+     * @param state start state
+     * @param reached reached states of the search
+     * @param open open states of the search
+     * @param targetRows rows by elements in the target state
+     * @param targetCols columns by elements in the target state
+     */
+    private void start(long state, LongIntMap reached, BucketQueue open, int[] targetRows, int[] targetCols) {
+        int h = heuristic(state, targetRows, targetCols);
+        reached.put(state, entry(h, 0, ROOT));
+        open.push(key(h, 0), state);
+    }
+
+    /**
+     * Reaches neighbours of the state.
+     * @param state expanded state
+     * @param entry heuristic, number of moves and last move of the state
+     * @param reached reached states of the search
+     * @param open open states of the search
+     * @param targetRows rows by elements in the target state
+     * @param targetCols columns by elements in the target state
+     * @param other reached states of the opposite search, may be null
+     */
+    private void expand(long state, int entry, LongIntMap reached, BucketQueue open,
+            int[] targetRows, int[] targetCols, LongIntMap other) {
+        int h = entry >>> 16;
+        int g = depthOf(entry) + 1;
+        int last = entry & 7;
+        int blank = blankOf(state);
+        for (int d = 0; d < 4; d++) {
+            int cell = shape.neighbour(blank, d);
+            if (cell < 0 || d == (last ^ 1)) {
+                continue;
+            }
+            int element = (int) (state >>> (cell * 4)) & 15;
+            long next = state - ((long) element << (cell * 4)) + ((long) element << (blank * 4));
+            int index = reached.indexOf(next);
+            if (index >= 0 && depthOf(reached.valueAt(index)) <= g) {
+                continue;
+            }
+            int nextH = heuristic(state, next, h, d, blank, cell, targetRows, targetCols);
+            reached.putAt(index, next, entry(nextH, g, d));
+            open.push(key(nextH, g), next);
+            if (other != null) {
+                int opposite = other.get(next);
+                if (opposite >= 0 && g + depthOf(opposite) < bestLength) {
+                    bestLength = g + depthOf(opposite);
+                    meeting = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores moves from the start state through the meeting state.
+     * @param meet meeting state, the goal state for forward search
+     * @param forward reached states of the forward search
+     * @param backward reached states of the backward search, may be null
+     * @return moves
+     */
+    private int[] path(long meet, LongIntMap forward, LongIntMap backward) {
+        int head = depthOf(forward.get(meet));
+        int tail = backward == null ? 0 : depthOf(backward.get(meet));
+        long[] states = new long[head + tail + 1];
+        long state = meet;
+        states[head] = state;
+        for (int i = head - 1; i >= 0; i--) {
+            state = previous(state, forward.get(state) & 7);
+            states[i] = state;
+        }
+        state = meet;
+        for (int i = head + 1; i < states.length; i++) {
+            state = previous(state, backward.get(state) & 7);
+            states[i] = state;
+        }
+        int[] moves = new int[states.length - 1];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = (int) (states[i] >>> (blankOf(states[i + 1]) * 4)) & 15;
+        }
+        return moves;
+    }
+
+    /**
+     * Returns state before the move.
+     * @param state state after the move
+     * @param direction direction of the empty cell in the move
+     * @return previous state
+     */
+    private long previous(long state, int direction) {
+        int blank = blankOf(state);
+        // Directions are up, down, left and right, so d ^ 1 is the opposite
+        int cell = shape.neighbour(blank, direction ^ 1);
+        long element = (state >>> (cell * 4)) & 15;
+        return state - (element << (cell * 4)) + (element << (blank * 4));
+    }
+
+    /**
+     * Returns heuristic of the state after the move.
+     * @param state state before the move
+     * @param next state after the move
+     * @param h heuristic of the state before the move
+     * @param direction direction of the empty cell in the move
+     * @param blank empty cell before the move
+     * @param cell empty cell after the move
+     * @param targetRows rows by elements in the target state
+     * @param targetCols columns by elements in the target state
+     * @return heuristic
+     */
+    private int heuristic(long state, long next, int h, int direction, int blank, int cell,
+            int[] targetRows, int[] targetCols) {
+        int element = (int) (state >>> (cell * 4)) & 15;
+        int row = targetRows[element];
+        int col = targetCols[element];
+        int nextH = h + Math.abs(row - shape.rowOf(blank)) + Math.abs(col - shape.colOf(blank))
+                - Math.abs(row - shape.rowOf(cell)) - Math.abs(col - shape.colOf(cell));
+        // Conflicts of a line change only when its own element enters or leaves it
+        if (direction < 2 && (row == shape.rowOf(cell) || row == shape.rowOf(blank))) {
+            nextH += 2 * (rowConflicts(next, row, targetRows, targetCols)
+                    - rowConflicts(state, row, targetRows, targetCols));
+        } else if (direction >= 2 && (col == shape.colOf(cell) || col == shape.colOf(blank))) {
+            nextH += 2 * (colConflicts(next, col, targetRows, targetCols)
+                    - colConflicts(state, col, targetRows, targetCols));
+        }
+        return nextH;
+    }
+
+    /**
+     * Returns Manhattan distance plus two moves per linear conflict.
+     * @param state packed state
+     * @param targetRows rows by elements in the target state
+     * @param targetCols columns by elements in the target state
+     * @return heuristic
+     */
+    private int heuristic(long state, int[] targetRows, int[] targetCols) {
+        int h = 0;
+        for (int cell = 0; cell < start.length; cell++) {
+            int element = (int) (state >>> (cell * 4)) & 15;
+            if (element != 0) {
+                h += Math.abs(targetRows[element] - shape.rowOf(cell))
+                        + Math.abs(targetCols[element] - shape.colOf(cell));
+            }
+        }
+        for (int r = 0; r < rows; r++) {
+            h += 2 * rowConflicts(state, r, targetRows, targetCols);
+        }
+        for (int c = 0; c < cols; c++) {
+            h += 2 * colConflicts(state, c, targetRows, targetCols);
+        }
+        return h;
+    }
+
+    /**
+     * Returns linear conflicts of the row.
+     * @param state packed state
+     * @param r row
+     * @param targetRows rows by elements in the target state
+     * @param targetCols columns by elements in the target state
+     * @return count of conflicts
+     */
+    private int rowConflicts(long state, int r, int[] targetRows, int[] targetCols) {
+        for (int c = 0; c < cols; c++) {
+            int element = (int) (state >>> ((r * cols + c) * 4)) & 15;
+            if (element != 0 && targetRows[element] == r) {
+                counter.add(targetCols[element]);
+            }
+        }
+        return counter.finish();
+    }
+
+    /**
+     * Returns linear conflicts of the column.
+     * @param state packed state
+     * @param c column
+     * @param targetRows rows by elements in the target state
+     * @param targetCols columns by elements in the target state
+     * @return count of conflicts
+     */
+    private int colConflicts(long state, int c, int[] targetRows, int[] targetCols) {
+        for (int r = 0; r < rows; r++) {
+            int element = (int) (state >>> ((r * cols + c) * 4)) & 15;
+            if (element != 0 && targetCols[element] == c) {
+                counter.add(targetRows[element]);
+            }
+        }
+        return counter.finish();
+    }
+
+    /**
+     * Returns map entry of a reached state.
+     * @param h heuristic
+     * @param g number of moves
+     * @param direction direction of the empty cell in the last move
+     * @return entry
+     */
+    private static int entry(int h, int g, int direction) {
+        return h << 16 | g << 3 | direction;
+    }
+
+    /**
+     * Returns number of moves of the map entry.
+     * @param entry entry
+     * @return number of moves
+     */
+    private static int depthOf(int entry) {
+        return (entry >>> 3) & 0x1FFF;
+    }
+
+    /**
+     * Returns queue key, the estimated length with ties broken by moves.
+     * @param h heuristic
+     * @param g number of moves
+     * @return key
+     */
+    private static int key(int h, int g) {
+        return (h + g) << DEPTH_BITS | (MAX_DEPTH - g);
+    }
+
+    /**
+     * Returns empty cell of the state.
+     * @param state packed state
+     * @return cell
+     */
+    private int blankOf(long state) {
+        int cell = 0;
+        while (((state >>> (cell * 4)) & 15) != 0) {
+            cell++;
+        }
+        return cell;
+    }
+
+    /**
+     * Packs elements four bits per cell.
+     * @param tiles elements by cells
+     * @return packed state
+     */
+    private static long pack(int[] tiles) {
+        long state = 0;
+        for (int cell = 0; cell < tiles.length; cell++) {
+            state |= (long) tiles[cell] << (cell * 4);
+        }
+        return state;
+    }
+
+}
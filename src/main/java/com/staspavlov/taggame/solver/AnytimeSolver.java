@@ -0,0 +1,186 @@
+package com.staspavlov.taggame.solver;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameImpl;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AnytimeSolver finds the shortest solution it can before a deadline.
+ * The first solution is made by the constructive solver, then rounds of
+ * the path optimizer with growing windows and node limits shorten it.
+ * Every improvement is reported to the listener. The search stops at the
+ * deadline, when the solution reaches the lower bound or when the window
+ * covers the whole solution.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class AnytimeSolver {
+
+    /**
+     * Growth of the window per round.
+     */
+    private static final int WINDOW_STEP = 8;
+
+    /**
+     * Copy of the game in the start state.
+     */
+    private final Game game;
+
+    /**
+     * Number of threads of the optimizer.
+     */
+    private final int threads;
+
+    /**
+     * Lower bound of the number of moves.
+     */
+    private final int lowerBound;
+
+    /**
+     * Optimizer of the running round.
+     */
+    private volatile PathOptimizer optimizer;
+
+    /**
+     * Search is cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Creates solver instance for the current state of the game.
+     * @param game Game with the classic goal
+     */
+    public AnytimeSolver(Game game) {
+        this(game, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates solver instance for the current state of the game.
+     * @param game Game with the classic goal
+     * @param threads number of threads of the optimizer
+     */
+    public AnytimeSolver(Game game, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Wrong number of threads");
+        }
+        Boards.checkClassic(game);
+        // The game may be played while the search runs in another thread
+        this.game = new GameImpl(game.getSnapshot());
+        this.threads = threads;
+        this.lowerBound = game.getDistanceBound();
+    }
+
+    /**
+     * Finds solution within the time budget.
+     * At least the constructive solution is returned, so the search may
+     * take longer than the budget for huge games.
+     * @param budget time budget
+     * @param unit unit of the budget
+     * @param listener listener of improvements, may be null
+     * @return solution, not found for unsolvable states
+     */
+    public Solution solve(long budget, TimeUnit unit, ProgressListener listener) {
+        long deadline = System.nanoTime() + unit.toNanos(budget);
+        if (!Boards.isSolvable(Boards.toArray(game), game.getCols())) {
+            return new Solution(null, Integer.MAX_VALUE, 0);
+        }
+        int[] best = constructive();
+        if (listener != null) {
+            listener.progress(best.length, lowerBound);
+        }
+        for (int round = 0; best.length > lowerBound; round++) {
+            int window = PathOptimizer.DEFAULT_WINDOW + round * WINDOW_STEP;
+            if (window > best.length || isExpired(deadline)) {
+                break;
+            }
+            optimizer = new PathOptimizer(game, window, PathOptimizer.DEFAULT_NODE_LIMIT * (round + 1), threads);
+            if (cancelled) {
+                // Cancellation could miss the new optimizer
+                break;
+            }
+            int[] path;
+            try {
+                path = optimizer.optimize(best, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (IllegalStateException ex) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                throw ex;
+            }
+            if (path.length < best.length) {
+                best = path;
+                if (listener != null) {
+                    listener.progress(best.length, lowerBound);
+                }
+            }
+        }
+        optimizer = null;
+        return new Solution(best, lowerBound, 0);
+    }
+
+    /**
+     * Starts the search in a new daemon thread.
+     * Cancellation of the future interrupts the search.
+     * @param budget time budget
+     * @param unit unit of the budget
+     * @param listener listener of improvements, may be null
+     * @return future solution
+     */
+    public Future<Solution> start(final long budget, final TimeUnit unit, final ProgressListener listener) {
+        FutureTask<Solution> task = new FutureTask<>(new Callable<Solution>() {
+            @Override
+            public Solution call() {
+                return solve(budget, unit, listener);
+            }
+        });
+        Thread thread = new Thread(task, "anytime-solver");
+        thread.setDaemon(true);
+        thread.start();
+        return task;
+    }
+
+    /**
+     * Cancels the running and all further searches of the solver,
+     * they return the best solution found so far.
+     */
+    public void cancel() {
+        cancelled = true;
+        PathOptimizer running = optimizer;
+        if (running != null) {
+            running.cancel();
+        }
+    }
+
+    /**
+     * Returns moves of the constructive solver.
+     * @return moves
+     */
+    private int[] constructive() {
+        final int[][] moves = {new int[64]};
+        final int[] count = {0};
+        new ConstructiveSolver(game).solve(new MoveConsumer() {
+            @Override
+            public boolean accept(int element) {
+                if (count[0] == moves[0].length) {
+                    moves[0] = Arrays.copyOf(moves[0], count[0] * 2);
+                }
+                moves[0][count[0]++] = element;
+                return true;
+            }
+        });
+        return Arrays.copyOf(moves[0], count[0]);
+    }
+
+    /**
+     * Checks if the search must stop.
+     * @param deadline deadline by System.nanoTime()
+     * @return true if the deadline is reached or the search is cancelled
+     */
+    private boolean isExpired(long deadline) {
+        return cancelled || Thread.currentThread().isInterrupted() || System.nanoTime() - deadline >= 0;
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.staspavlov.taggame.solver;
+
+import com.staspavlov.taggame.game.Game;
+
+/**
+ * Boards provides helper methods for boards stored as arrays of elements.
+ * Cells are numbered row by row, zero is the empty cell. Solvers support
+ * the classic goal only: elements in ascending order, one empty cell in
+ * the end.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public final class Boards {
+
+    private Boards() {
+    }
+
+    /**
+     * Copies elements of the game into array.
+     * @param game Game
+     * @return array of elements by cells
+     */
+    public static int[] toArray(Game game) {
+        int[] tiles = new int[game.getSize()];
+        copy(game, tiles);
+        return tiles;
+    }
+
+    /**
+     * Copies elements of the game into existing array.
+     * @param game Game
+     * @param tiles array of elements by cells
+     * @throws IllegalArgumentException if the game has another goal
+     */
+    public static void copy(Game game, int[] tiles) {
+        checkClassic(game);
+        int rows = game.getRows();
+        int cols = game.getCols();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                tiles[r * cols + c] = game.getElement(r, c);
+            }
+        }
+    }
+
+    /**
+     * Checks that the game has the classic goal.
+     * @param game Game
+     * @throws IllegalArgumentException if the game has another goal
+     */
+    public static void checkClassic(Game game) {
+        if (!game.isClassicGoal()) {
+            throw new IllegalArgumentException("Only the classic goal is supported");
+        }
+    }
+
+    /**
+     * Checks that the board has every element once and one empty cell.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param tiles array of elements by cells
+     * @throws IllegalArgumentException if elements are wrong
+     */
+    public static void checkTiles(int rows, int cols, int[] tiles) {
+        if (tiles.length != rows * cols) {
+            throw new IllegalArgumentException("Wrong number of elements");
+        }
+        boolean[] found = new boolean[tiles.length];
+        for (int element : tiles) {
+            if (element < 0 || element >= tiles.length || found[element]) {
+                throw new IllegalArgumentException("Wrong sequence of elements");
+            }
+            found[element] = true;
+        }
+    }
+
+    /**
+     * Returns cell of element in the completed game.
+     * @param element
+     * @param size size of the game area
+     * @return cell index
+     */
+    public static int goalCell(int element, int size) {
+        return element == 0 ? size - 1 : element - 1;
+    }
+
+    /**
+     * Checks if the board can be completed by legal moves.
+     * Every move swaps two cells and moves empty cell by one step, so parity
+     * of the permutation must match parity of the empty cell distance.
+     * @param tiles array of elements by cells
+     * @param cols number of columns
+     * @return true if solvable
+     */
+    public static boolean isSolvable(int[] tiles, int cols) {
+        int size = tiles.length;
+        boolean[] visited = new boolean[size];
+        int cycles = 0;
+        int blank = -1;
+        for (int i = 0; i < size; i++) {
+            if (tiles[i] == 0) {
+                blank = i;
+            }
+            if (!visited[i]) {
+                cycles++;
+                for (int j = i; !visited[j]; j = goalCell(tiles[j], size)) {
+                    visited[j] = true;
+                }
+            }
+        }
+        int goal = size - 1;
+        int distance = Math.abs(blank / cols - goal / cols) + Math.abs(blank % cols - goal % cols);
+        return (size - cycles) % 2 == distance % 2;
+    }
+
+}
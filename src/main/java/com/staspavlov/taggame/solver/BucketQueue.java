@@ -0,0 +1,102 @@
+package com.staspavlov.taggame.solver;
+
+import java.util.Arrays;
+
+/**
+ * BucketQueue is a priority queue of long values with small non-negative
+ * int keys. Values of a key are kept in a stack, so the value pushed last
+ * is popped first among values of the least key. Push and pop take
+ * constant amortized time as the least key only grows in A* search.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+class BucketQueue {
+
+    /**
+     * Values by keys.
+     */
+    private long[][] buckets = new long[64][];
+
+    /**
+     * Count of values by keys.
+     */
+    private int[] sizes = new int[64];
+
+    /**
+     * No key is less than this one.
+     */
+    private int min;
+
+    /**
+     * Count of values.
+     */
+    private int count;
+
+    /**
+     * Adds value with the key.
+     * @param key non-negative key
+     * @param value value
+     */
+    void push(int key, long value) {
+        if (key >= buckets.length) {
+            int length = Math.max(key + 1, buckets.length * 2);
+            buckets = Arrays.copyOf(buckets, length);
+            sizes = Arrays.copyOf(sizes, length);
+        }
+        long[] bucket = buckets[key];
+        if (bucket == null) {
+            bucket = new long[16];
+            buckets[key] = bucket;
+        } else if (sizes[key] == bucket.length) {
+            bucket = Arrays.copyOf(bucket, bucket.length * 2);
+            buckets[key] = bucket;
+        }
+        bucket[sizes[key]++] = value;
+        if (key < min) {
+            min = key;
+        }
+        count++;
+    }
+
+    /**
+     * Returns the least key.
+     * @return key
+     * @throws IllegalStateException if the queue is empty
+     */
+    int minKey() {
+        if (count == 0) {
+            throw new IllegalStateException("Queue is empty");
+        }
+        while (sizes[min] == 0) {
+            min++;
+        }
+        return min;
+    }
+
+    /**
+     * Removes the last pushed value of the least key.
+     * @return value
+     * @throws IllegalStateException if the queue is empty
+     */
+    long pop() {
+        int key = minKey();
+        count--;
+        return buckets[key][--sizes[key]];
+    }
+
+    /**
+     * Returns count of values.
+     * @return count
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Checks if the queue has no values.
+     * @return true if empty
+     */
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+}
@@ -0,0 +1,532 @@
+package com.staspavlov.taggame.solver;
+
+import com.staspavlov.taggame.game.Game;
+import java.util.Arrays;
+
+/**
+ * ConstructiveSolver completes games of any size without search.
+ * The solver places the top row or the left column of the unsolved area,
+ * whichever is longer, reduces the area and repeats until a 2x2 core is left.
+ * Solutions are not optimal, but time and memory are proportional to the
+ * number of moves and the size of the game area respectively.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class ConstructiveSolver {
+
+    /**
+     * Margin of the window used to route the empty cell around obstacles.
+     */
+    private static final int ROUTE_MARGIN = 1;
+
+    /**
+     * Signals that the consumer asked to stop.
+     */
+    private static final RuntimeException STOP = new RuntimeException("Stopped", null, false, false) {
+    };
+
+    /**
+     * Game to solve.
+     */
+    private final Game game;
+
+    /**
+     * Number of rows in the game area.
+     */
+    private final int rows;
+
+    /**
+     * Number of columns in the game area.
+     */
+    private final int cols;
+
+    /**
+     * Size of the game area.
+     */
+    private final int size;
+
+    /**
+     * Elements by cells.
+     */
+    private final int[] tiles;
+
+    /**
+     * Cells by elements.
+     */
+    private final int[] cells;
+
+    /**
+     * Cells which must not be touched.
+     */
+    private final boolean[] locked;
+
+    /**
+     * Visit marks for routing.
+     */
+    private final int[] marks;
+
+    /**
+     * Next cell on the route to target.
+     */
+    private final int[] next;
+
+    /**
+     * Queue for routing.
+     */
+    private final int[] queue;
+
+    /**
+     * Current visit mark.
+     */
+    private int mark;
+
+    /**
+     * First row of the unsolved area.
+     */
+    private int top;
+
+    /**
+     * First column of the unsolved area.
+     */
+    private int left;
+
+    /**
+     * Current consumer of moves.
+     */
+    private MoveConsumer consumer;
+
+    /**
+     * Creates solver instance.
+     * @param game Game with the classic goal
+     */
+    public ConstructiveSolver(Game game) {
+        Boards.checkClassic(game);
+        this.game = game;
+        this.rows = game.getRows();
+        this.cols = game.getCols();
+        this.size = game.getSize();
+        this.tiles = new int[size];
+        this.cells = new int[size];
+        this.locked = new boolean[size];
+        this.marks = new int[size];
+        this.next = new int[size];
+        this.queue = new int[size];
+    }
+
+    /**
+     * Produces moves which complete the current state of the game.
+     * The game itself is not changed.
+     * @param consumer consumer of moves
+     * @return true if all moves are produced, false if consumer asked to stop
+     */
+    public boolean solve(MoveConsumer consumer) {
+        Boards.copy(game, tiles);
+        if (!Boards.isSolvable(tiles, cols)) {
+            throw new IllegalArgumentException("Game is not solvable");
+        }
+        for (int i = 0; i < size; i++) {
+            cells[tiles[i]] = i;
+            locked[i] = false;
+        }
+        top = 0;
+        left = 0;
+        MoveReducer reducer = new MoveReducer(consumer);
+        this.consumer = reducer;
+        try {
+            while (rows - top > 2 || cols - left > 2) {
+                if (rows - top >= cols - left) {
+                    solveRow();
+                    top++;
+                } else {
+                    solveColumn();
+                    left++;
+                }
+            }
+            solveCore();
+        } catch (RuntimeException ex) {
+            if (ex != STOP) {
+                throw ex;
+            }
+            return false;
+        } finally {
+            this.consumer = null;
+        }
+        return reducer.flush();
+    }
+
+    /**
+     * Places elements of the top row of the unsolved area.
+     */
+    private void solveRow() {
+        for (int c = left; c < cols - 2; c++) {
+            place(top * cols + c, true);
+        }
+        placeLastPair(top * cols + cols - 2, top * cols + cols - 1,
+                top, cols - 2, 3, 2, (top + 1) * cols + cols - 1, true);
+    }
+
+    /**
+     * Places elements of the left column of the unsolved area.
+     */
+    private void solveColumn() {
+        for (int r = top; r < rows - 2; r++) {
+            place(r * cols + left, false);
+        }
+        placeLastPair((rows - 2) * cols + left, (rows - 1) * cols + left,
+                rows - 2, left, 2, 3, (rows - 1) * cols + left + 1, false);
+    }
+
+    /**
+     * Places the last two elements of a row or a column.
+     * First element is moved to the cell of the second one, second element
+     * is moved next to it and both are rotated into place inside a small box.
+     * @param first cell of the first element
+     * @param second cell of the second element
+     * @param boxRow first row of the box
+     * @param boxCol first column of the box
+     * @param boxRows number of rows in the box
+     * @param boxCols number of columns in the box
+     * @param stage cell next to the second cell inside the box
+     * @param rowFirst true to move elements along rows first
+     */
+    private void placeLastPair(int first, int second, int boxRow, int boxCol,
+            int boxRows, int boxCols, int stage, boolean rowFirst) {
+        int a = goalElement(first);
+        int b = goalElement(second);
+        if (cells[a] != first || cells[b] != second) {
+            moveTile(a, second, rowFirst);
+            locked[second] = true;
+            if (!inBox(cells[b], boxRow, boxCol, boxRows, boxCols)) {
+                moveTile(b, stage, rowFirst);
+            }
+            if (!inBox(cells[0], boxRow, boxCol, boxRows, boxCols)) {
+                // Bottom right cell of the box is far from both elements
+                int corner = (boxRow + boxRows - 1) * cols + boxCol + boxCols - 1;
+                int entry = cells[b] == corner ? corner - 1 : corner;
+                moveBlank(entry, cells[b]);
+            }
+            locked[second] = false;
+            solveBox(a, first, b, second, boxRow, boxCol, boxRows, boxCols);
+        }
+        locked[first] = true;
+        locked[second] = true;
+    }
+
+    /**
+     * Completes the 2x2 core by rotating the empty cell.
+     */
+    private void solveCore() {
+        int[] cycle = {
+            (rows - 2) * cols + cols - 2,
+            (rows - 2) * cols + cols - 1,
+            (rows - 1) * cols + cols - 1,
+            (rows - 1) * cols + cols - 2
+        };
+        int index = 0;
+        while (cycle[index] != cells[0]) {
+            index++;
+        }
+        for (int i = 0; i < 12 && !isCoreSolved(cycle); i++) {
+            index = (index + 1) % cycle.length;
+            move(cycle[index]);
+        }
+        if (!isCoreSolved(cycle)) {
+            throw new IllegalStateException("Core can't be solved");
+        }
+    }
+
+    /**
+     * Checks if elements of the core are in place.
+     * @param cycle cells of the core
+     * @return true if all elements are in place
+     */
+    private boolean isCoreSolved(int[] cycle) {
+        for (int cell : cycle) {
+            if (tiles[cell] != goalElement(cell)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves element to the cell and locks it.
+     * @param cell target cell
+     * @param rowFirst true to move element along rows first
+     */
+    private void place(int cell, boolean rowFirst) {
+        moveTile(goalElement(cell), cell, rowFirst);
+        locked[cell] = true;
+    }
+
+    /**
+     * Moves element to the cell step by step.
+     * @param element element
+     * @param target target cell
+     * @param rowFirst true to move element along rows first
+     */
+    private void moveTile(int element, int target, boolean rowFirst) {
+        int cell = cells[element];
+        while (cell != target) {
+            int dr = target / cols - cell / cols;
+            int dc = target % cols - cell % cols;
+            int vertical = dr > 0 ? cell + cols : dr < 0 ? cell - cols : -1;
+            int horizontal = dc > 0 ? cell + 1 : dc < 0 ? cell - 1 : -1;
+            int step;
+            if (rowFirst) {
+                step = isFree(horizontal, -1) ? horizontal : vertical;
+            } else {
+                step = isFree(vertical, -1) ? vertical : horizontal;
+            }
+            if (!isFree(step, -1)) {
+                throw new IllegalStateException("Element is locked");
+            }
+            moveBlank(step, cell);
+            move(cell);
+            cell = step;
+        }
+    }
+
+    /**
+     * Moves empty cell to the target without touching the avoided cell.
+     * Straight steps are used while possible, obstacles are routed around.
+     * @param target target cell
+     * @param avoid cell to avoid
+     */
+    private void moveBlank(int target, int avoid) {
+        int blank = cells[0];
+        while (blank != target) {
+            int dr = target / cols - blank / cols;
+            int dc = target % cols - blank % cols;
+            int vertical = dr > 0 ? blank + cols : dr < 0 ? blank - cols : -1;
+            int horizontal = dc > 0 ? blank + 1 : dc < 0 ? blank - 1 : -1;
+            int step;
+            if (Math.abs(dr) >= Math.abs(dc)) {
+                step = isFree(vertical, avoid) ? vertical : horizontal;
+            } else {
+                step = isFree(horizontal, avoid) ? horizontal : vertical;
+            }
+            if (!isFree(step, avoid)) {
+                routeBlank(target, avoid);
+                return;
+            }
+            move(step);
+            blank = step;
+        }
+    }
+
+    /**
+     * Moves empty cell to the target along a shortest route.
+     * The route is searched in a window around the empty cell and the target
+     * first, and in the whole unsolved area if the window is not enough.
+     * @param target target cell
+     * @param avoid cell to avoid
+     */
+    private void routeBlank(int target, int avoid) {
+        int blank = cells[0];
+        int minRow = Math.max(top, Math.min(blank / cols, target / cols) - ROUTE_MARGIN);
+        int maxRow = Math.min(rows - 1, Math.max(blank / cols, target / cols) + ROUTE_MARGIN);
+        int minCol = Math.max(left, Math.min(blank % cols, target % cols) - ROUTE_MARGIN);
+        int maxCol = Math.min(cols - 1, Math.max(blank % cols, target % cols) + ROUTE_MARGIN);
+        if (!route(target, avoid, minRow, maxRow, minCol, maxCol)
+                && !route(target, avoid, top, rows - 1, left, cols - 1)) {
+            throw new IllegalStateException("Empty cell is locked");
+        }
+        while (blank != target) {
+            blank = next[blank];
+            move(blank);
+        }
+    }
+
+    /**
+     * Searches route from the empty cell to the target inside the window.
+     * @param target target cell
+     * @param avoid cell to avoid
+     * @param minRow first row of the window
+     * @param maxRow last row of the window
+     * @param minCol first column of the window
+     * @param maxCol last column of the window
+     * @return true if route is found
+     */
+    private boolean route(int target, int avoid, int minRow, int maxRow, int minCol, int maxCol) {
+        int blank = cells[0];
+        if (mark == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            mark = 0;
+        }
+        mark++;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = target;
+        marks[target] = mark;
+        while (head < tail) {
+            int cell = queue[head++];
+            if (cell == blank) {
+                return true;
+            }
+            int row = cell / cols;
+            int col = cell % cols;
+            if (row > minRow) {
+                tail = visit(cell, cell - cols, avoid, tail);
+            }
+            if (row < maxRow) {
+                tail = visit(cell, cell + cols, avoid, tail);
+            }
+            if (col > minCol) {
+                tail = visit(cell, cell - 1, avoid, tail);
+            }
+            if (col < maxCol) {
+                tail = visit(cell, cell + 1, avoid, tail);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds neighbour cell to the routing queue.
+     * @param cell current cell
+     * @param neighbour neighbour cell
+     * @param avoid cell to avoid
+     * @param tail tail of the queue
+     * @return new tail of the queue
+     */
+    private int visit(int cell, int neighbour, int avoid, int tail) {
+        if (marks[neighbour] != mark && isFree(neighbour, avoid)) {
+            marks[neighbour] = mark;
+            next[neighbour] = cell;
+            queue[tail++] = neighbour;
+        }
+        return tail;
+    }
+
+    /**
+     * Rotates two elements into place inside a box of six cells.
+     * Other elements of the box are interchangeable, so the search space is
+     * small enough for a breadth-first search.
+     * @param a first element
+     * @param aCell target cell of the first element
+     * @param b second element
+     * @param bCell target cell of the second element
+     * @param boxRow first row of the box
+     * @param boxCol first column of the box
+     * @param boxRows number of rows in the box
+     * @param boxCols number of columns in the box
+     */
+    private void solveBox(int a, int aCell, int b, int bCell,
+            int boxRow, int boxCol, int boxRows, int boxCols) {
+        int n = boxRows * boxCols;
+        int[] parent = new int[n * n * n];
+        Arrays.fill(parent, -1);
+        int[] states = new int[parent.length];
+        int start = (local(cells[a], boxRow, boxCol, boxCols) * n
+                + local(cells[b], boxRow, boxCol, boxCols)) * n
+                + local(cells[0], boxRow, boxCol, boxCols);
+        int goalA = local(aCell, boxRow, boxCol, boxCols);
+        int goalB = local(bCell, boxRow, boxCol, boxCols);
+        parent[start] = start;
+        int head = 0;
+        int tail = 0;
+        states[tail++] = start;
+        int found = -1;
+        while (head < tail && found < 0) {
+            int state = states[head++];
+            int pa = state / (n * n);
+            int pb = state / n % n;
+            int pz = state % n;
+            if (pa == goalA && pb == goalB) {
+                found = state;
+                break;
+            }
+            int zr = pz / boxCols;
+            int zc = pz % boxCols;
+            for (int d = 0; d < 4; d++) {
+                int nr = zr + (d == 0 ? -1 : d == 1 ? 1 : 0);
+                int nc = zc + (d == 2 ? -1 : d == 3 ? 1 : 0);
+                if (nr < 0 || nr >= boxRows || nc < 0 || nc >= boxCols) {
+                    continue;
+                }
+                int nz = nr * boxCols + nc;
+                int na = pa == nz ? pz : pa;
+                int nb = pb == nz ? pz : pb;
+                int nextState = (na * n + nb) * n + nz;
+                if (parent[nextState] < 0) {
+                    parent[nextState] = state;
+                    states[tail++] = nextState;
+                }
+            }
+        }
+        if (found < 0) {
+            throw new IllegalStateException("Box can't be solved");
+        }
+        // Collect positions of the empty cell from the goal back to the start
+        int length = 0;
+        for (int state = found; state != start; state = parent[state]) {
+            states[length++] = state % n;
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            move((boxRow + states[i] / boxCols) * cols + boxCol + states[i] % boxCols);
+        }
+    }
+
+    /**
+     * Returns index of the cell inside a box.
+     * @param cell cell
+     * @param boxRow first row of the box
+     * @param boxCol first column of the box
+     * @param boxCols number of columns in the box
+     * @return local index
+     */
+    private int local(int cell, int boxRow, int boxCol, int boxCols) {
+        return (cell / cols - boxRow) * boxCols + cell % cols - boxCol;
+    }
+
+    /**
+     * Checks if the cell is inside a box.
+     * @param cell cell
+     * @param boxRow first row of the box
+     * @param boxCol first column of the box
+     * @param boxRows number of rows in the box
+     * @param boxCols number of columns in the box
+     * @return true if inside
+     */
+    private boolean inBox(int cell, int boxRow, int boxCol, int boxRows, int boxCols) {
+        int row = cell / cols - boxRow;
+        int col = cell % cols - boxCol;
+        return row >= 0 && row < boxRows && col >= 0 && col < boxCols;
+    }
+
+    /**
+     * Checks if the cell may be used for moves.
+     * @param cell cell, negative for none
+     * @param avoid cell to avoid
+     * @return true if free
+     */
+    private boolean isFree(int cell, int avoid) {
+        return cell >= 0 && cell != avoid && !locked[cell];
+    }
+
+    /**
+     * Returns element of the completed game for the cell.
+     * @param cell cell
+     * @return element
+     */
+    private int goalElement(int cell) {
+        return cell == size - 1 ? 0 : cell + 1;
+    }
+
+    /**
+     * Moves element from the cell into the empty cell.
+     * @param cell cell next to the empty cell
+     */
+    private void move(int cell) {
+        int element = tiles[cell];
+        int blank = cells[0];
+        tiles[blank] = element;
+        cells[element] = blank;
+        tiles[cell] = 0;
+        cells[0] = cell;
+        if (!consumer.accept(element)) {
+            throw STOP;
+        }
+    }
+
+}
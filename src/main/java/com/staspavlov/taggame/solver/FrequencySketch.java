@@ -0,0 +1,89 @@
+package com.staspavlov.taggame.solver;
+
+/**
+ * Count-min sketch of access frequencies with 4-bit counters.
+ * Every hash increments four counters, its frequency is the least of them.
+ * All counters are halved after a sample of increments, so old
+ * popularity fades away. Not thread-safe.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+final class FrequencySketch {
+
+    /**
+     * Seeds of the four counters.
+     */
+    private static final long[] SEEDS = {
+        0x97CB3127AB2C4E4DL, 0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL
+    };
+
+    /**
+     * Sixteen counters per element.
+     */
+    private final long[] table;
+
+    /**
+     * Number of increments before counters are halved.
+     */
+    private final int sampleSize;
+
+    /**
+     * Number of increments since counters were halved.
+     */
+    private int additions;
+
+    /**
+     * Creates sketch for the number of entries.
+     * @param capacity number of cached entries
+     */
+    FrequencySketch(int capacity) {
+        int length = Integer.highestOneBit(Math.max(8, capacity - 1) * 2);
+        this.table = new long[Math.min(length, 1 << 24)];
+        this.sampleSize = capacity * 10;
+    }
+
+    /**
+     * Registers access of the hash.
+     * @param hash hash
+     */
+    void increment(long hash) {
+        boolean added = false;
+        for (long seed : SEEDS) {
+            long h = mix(hash + seed);
+            int index = (int) h & (table.length - 1);
+            int shift = (int) (h >>> 60) << 2;
+            if (((table[index] >>> shift) & 0xF) < 0xF) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+            }
+            additions /= 2;
+        }
+    }
+
+    /**
+     * Returns estimated frequency of the hash.
+     * @param hash hash
+     * @return frequency from 0 to 15
+     */
+    int frequency(long hash) {
+        int frequency = 0xF;
+        for (long seed : SEEDS) {
+            long h = mix(hash + seed);
+            int index = (int) h & (table.length - 1);
+            int shift = (int) (h >>> 60) << 2;
+            frequency = Math.min(frequency, (int) (table[index] >>> shift) & 0xF);
+        }
+        return frequency;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.staspavlov.taggame.solver;
+
+/**
+ * Distances to the goal along a recorded game.
+ * Step zero is the start state, step i is the state after i moves.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public final class GameAnalysis {
+
+    /**
+     * Verdict of a move.
+     */
+    public enum Verdict {
+
+        /**
+         * Move decreases the distance to the goal.
+         */
+        GOOD,
+
+        /**
+         * Move increases the distance to the goal.
+         */
+        WASTED,
+
+        /**
+         * Distances are not proven within the node limit.
+         */
+        UNKNOWN
+
+    }
+
+    /**
+     * Lower bounds of distances by steps.
+     */
+    private final int[] lowerBounds;
+
+    /**
+     * Upper bounds of distances by steps, Integer.MAX_VALUE if unknown.
+     */
+    private final int[] upperBounds;
+
+    /**
+     * Creates analysis instance, arrays are not copied.
+     * @param lowerBounds lower bounds of distances by steps
+     * @param upperBounds upper bounds of distances by steps
+     */
+    GameAnalysis(int[] lowerBounds, int[] upperBounds) {
+        this.lowerBounds = lowerBounds;
+        this.upperBounds = upperBounds;
+    }
+
+    /**
+     * Returns number of analyzed moves.
+     * @return number of moves
+     */
+    public int getMovesCount() {
+        return lowerBounds.length - 1;
+    }
+
+    /**
+     * Checks if the distance of the step is exact.
+     * @param step step from zero to number of moves
+     * @return true if exact
+     */
+    public boolean isExact(int step) {
+        return lowerBounds[step] == upperBounds[step];
+    }
+
+    /**
+     * Returns distance of the step or its lower bound if it's not exact.
+     * @param step step from zero to number of moves
+     * @return distance
+     */
+    public int getDistance(int step) {
+        return lowerBounds[step];
+    }
+
+    /**
+     * Returns upper bound of the distance of the step.
+     * @param step step from zero to number of moves
+     * @return upper bound, Integer.MAX_VALUE if unknown
+     */
+    public int getUpperBound(int step) {
+        return upperBounds[step];
+    }
+
+    /**
+     * Returns verdict of the move.
+     * @param move index of the move from zero
+     * @return verdict
+     */
+    public Verdict getVerdict(int move) {
+        if (upperBounds[move + 1] < lowerBounds[move]) {
+            return Verdict.GOOD;
+        }
+        if (lowerBounds[move + 1] > upperBounds[move]) {
+            return Verdict.WASTED;
+        }
+        return Verdict.UNKNOWN;
+    }
+
+    /**
+     * Returns count of moves with the verdict.
+     * @param verdict verdict
+     * @return count of moves
+     */
+    public int count(Verdict verdict) {
+        int count = 0;
+        for (int move = 0; move < getMovesCount(); move++) {
+            if (getVerdict(move) == verdict) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns number of extra moves compared to the optimal game, every
+     * wasted move takes two extra moves. Moves with unknown verdicts are
+     * not counted.
+     * @return number of extra moves
+     */
+    public int getInefficiency() {
+        return 2 * count(Verdict.WASTED);
+    }
+
+}
@@ -0,0 +1,278 @@
+package com.staspavlov.taggame.solver;
+
+import com.staspavlov.taggame.game.Game;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * GameAnalyzer finds distances to the goal along a recorded game.
+ * The game is split into chunks analyzed in parallel. The first state of a
+ * chunk is solved by IDA*, every next state reuses the distance and the
+ * solution of the previous one: distances of adjacent states differ by
+ * one, so a move along the known solution is good and any other move needs
+ * only one search bounded by the previous distance minus one.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class GameAnalyzer {
+
+    /**
+     * Default limit of nodes searched per state.
+     */
+    public static final long DEFAULT_NODE_LIMIT = 50000000L;
+
+    /**
+     * Number of rows in the game area.
+     */
+    private final int rows;
+
+    /**
+     * Number of columns in the game area.
+     */
+    private final int cols;
+
+    /**
+     * Elements by cells in the start state.
+     */
+    private final int[] start;
+
+    /**
+     * Limit of nodes searched per state.
+     */
+    private final long nodeLimit;
+
+    /**
+     * Number of threads.
+     */
+    private final int threads;
+
+    /**
+     * Creates analyzer instance with default settings.
+     * @param game Game with the classic goal in the start state
+     */
+    public GameAnalyzer(Game game) {
+        this(game.getRows(), game.getCols(), Boards.toArray(game),
+                DEFAULT_NODE_LIMIT, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates analyzer instance.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param start elements by cells in the start state
+     * @param nodeLimit limit of nodes searched per state
+     * @param threads number of threads
+     */
+    public GameAnalyzer(int rows, int cols, int[] start, long nodeLimit, int threads) {
+        if (nodeLimit < 1 || threads < 1) {
+            throw new IllegalArgumentException("Wrong analyzer settings");
+        }
+        Boards.checkTiles(rows, cols, start);
+        this.rows = rows;
+        this.cols = cols;
+        this.start = start.clone();
+        this.nodeLimit = nodeLimit;
+        this.threads = threads;
+    }
+
+    /**
+     * Analyzes moves of the game.
+     * @param moves elements to move
+     * @return distances along the game
+     * @throws IllegalArgumentException if the start state is not solvable
+     * or moves are not legal
+     */
+    public GameAnalysis analyze(int[] moves) {
+        if (!Boards.isSolvable(start, cols)) {
+            throw new IllegalArgumentException("Game is not solvable");
+        }
+        int chunks = Math.max(1, Math.min(threads, moves.length));
+        int chunkLength = Math.max(1, (moves.length + chunks - 1) / chunks);
+        int[] lowerBounds = new int[moves.length + 1];
+        int[] upperBounds = new int[moves.length + 1];
+        // Start states of the chunks are found by replay
+        List<Chunk> tasks = new ArrayList<>();
+        int[] tiles = start.clone();
+        int blank = blankOf(tiles);
+        for (int step = 0; step <= moves.length; step++) {
+            if (step % chunkLength == 0 && (step < moves.length || step == 0)) {
+                int to = step + chunkLength >= moves.length ? moves.length + 1 : step + chunkLength;
+                tasks.add(new Chunk(step, to, tiles.clone(), moves, lowerBounds, upperBounds));
+            }
+            if (step < moves.length) {
+                blank = move(tiles, blank, moves[step], step);
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Analysis is interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Analysis is failed", ex.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        return new GameAnalysis(lowerBounds, upperBounds);
+    }
+
+    /**
+     * Moves element to the empty cell.
+     * @param tiles elements by cells
+     * @param blank empty cell
+     * @param element element to move
+     * @param step index of the move
+     * @return new empty cell
+     */
+    private int move(int[] tiles, int blank, int element, int step) {
+        int row = blank / cols;
+        int col = blank % cols;
+        for (int cell : new int[]{blank - cols, blank + cols, blank - 1, blank + 1}) {
+            if (cell >= 0 && cell < tiles.length && (cell / cols == row || cell % cols == col)
+                    && element > 0 && tiles[cell] == element) {
+                tiles[blank] = element;
+                tiles[cell] = 0;
+                return cell;
+            }
+        }
+        throw new IllegalArgumentException("Move " + (step + 1) + " is not possible");
+    }
+
+    /**
+     * Returns empty cell.
+     * @param tiles elements by cells
+     * @return cell
+     */
+    private static int blankOf(int[] tiles) {
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] == 0) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No empty cell");
+    }
+
+    /**
+     * Analyzes steps of a chunk, from the first step inclusive to the last
+     * one exclusive.
+     */
+    private class Chunk implements Callable<Void> {
+
+        private final int from;
+
+        private final int to;
+
+        private final int[] tiles;
+
+        private final int[] moves;
+
+        private final int[] lowerBounds;
+
+        private final int[] upperBounds;
+
+        /**
+         * Optimal solution of the current state, null if unknown.
+         */
+        private int[] path;
+
+        /**
+         * Index of the first move of the solution in the path.
+         */
+        private int pathStart;
+
+        Chunk(int from, int to, int[] tiles, int[] moves, int[] lowerBounds, int[] upperBounds) {
+            this.from = from;
+            this.to = to;
+            this.tiles = tiles;
+            this.moves = moves;
+            this.lowerBounds = lowerBounds;
+            this.upperBounds = upperBounds;
+        }
+
+        @Override
+        public Void call() {
+            int blank = blankOf(tiles);
+            solve(from, 0, Integer.MAX_VALUE);
+            for (int step = from + 1; step < to; step++) {
+                int element = moves[step - 1];
+                blank = move(tiles, blank, element, step - 1);
+                int lower = lowerBounds[step - 1];
+                int upper = upperBounds[step - 1];
+                if (lower != upper) {
+                    path = null;
+                    solve(step, Math.max(0, lower - 1), upper == Integer.MAX_VALUE ? upper : upper + 1);
+                } else if (path != null && pathStart < path.length && path[pathStart] == element) {
+                    // Move along the known solution
+                    pathStart++;
+                    lowerBounds[step] = lower - 1;
+                    upperBounds[step] = lower - 1;
+                } else {
+                    check(step, element, lower);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Solves the state of the step.
+         * @param step step
+         * @param lower known lower bound
+         * @param upper known upper bound
+         */
+        private void solve(int step, int lower, int upper) {
+            Solution solution = new IdaStarSolver(rows, cols, tiles).solve(nodeLimit, Integer.MAX_VALUE);
+            if (solution.isFound()) {
+                setPath(solution.getMoves());
+                lowerBounds[step] = solution.getLength();
+                upperBounds[step] = solution.getLength();
+            } else {
+                lowerBounds[step] = Math.max(lower, solution.getLowerBound());
+                upperBounds[step] = upper;
+            }
+        }
+
+        /**
+         * Checks if the move off the known solution decreases the distance.
+         * @param step step after the move
+         * @param element moved element
+         * @param previous distance before the move
+         */
+        private void check(int step, int element, int previous) {
+            Solution solution = new IdaStarSolver(rows, cols, tiles).solve(nodeLimit, previous - 1);
+            if (solution.isFound()) {
+                setPath(solution.getMoves());
+                lowerBounds[step] = previous - 1;
+                upperBounds[step] = previous - 1;
+            } else if (solution.getLowerBound() > previous - 1) {
+                // Moving the element back and following the old solution
+                // is optimal
+                if (path != null) {
+                    int[] longer = new int[path.length - pathStart + 1];
+                    longer[0] = element;
+                    System.arraycopy(path, pathStart, longer, 1, path.length - pathStart);
+                    setPath(longer);
+                }
+                lowerBounds[step] = previous + 1;
+                upperBounds[step] = previous + 1;
+            } else {
+                path = null;
+                lowerBounds[step] = previous - 1;
+                upperBounds[step] = previous + 1;
+            }
+        }
+
+        private void setPath(int[] moves) {
+            path = moves;
+            pathStart = 0;
+        }
+
+    }
+
+}
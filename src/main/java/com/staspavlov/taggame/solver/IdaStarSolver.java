@@ -0,0 +1,328 @@
+package com.staspavlov.taggame.solver;
+
+import com.staspavlov.taggame.game.ConflictCounter;
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameShape;
+import java.util.Arrays;
+
+/**
+ * IdaStarSolver finds shortest solutions by iterative deepening A* search.
+ * The heuristic is Manhattan distance plus two moves per linear conflict,
+ * both updated incrementally by every move of the search.
+ * Memory is proportional to the solution length.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class IdaStarSolver {
+
+    /**
+     * Search result: solution is found.
+     */
+    private static final int FOUND = -1;
+
+    /**
+     * Search result: node limit is reached or search is cancelled.
+     */
+    private static final int ABORTED = -2;
+
+    /**
+     * Lookup tables of the game area shape.
+     */
+    private final GameShape shape;
+
+    /**
+     * Number of rows in the game area.
+     */
+    private final int rows;
+
+    /**
+     * Number of columns in the game area.
+     */
+    private final int cols;
+
+    /**
+     * Elements by cells in the start state.
+     */
+    private final int[] start;
+
+    /**
+     * Elements by cells during the search.
+     */
+    private final int[] tiles;
+
+    /**
+     * Linear conflicts by rows.
+     */
+    private final int[] rowConflicts;
+
+    /**
+     * Linear conflicts by columns.
+     */
+    private final int[] colConflicts;
+
+    /**
+     * Counter of conflicts of a line.
+     */
+    private final ConflictCounter counter;
+
+    /**
+     * Moves of the current path.
+     */
+    private int[] path = new int[64];
+
+    /**
+     * Number of moves of the found solution.
+     */
+    private int foundLength;
+
+    /**
+     * Count of expanded nodes.
+     */
+    private long nodes;
+
+    /**
+     * Limit of expanded nodes.
+     */
+    private long nodeLimit;
+
+    /**
+     * Search is cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Creates solver instance for the current state of the game.
+     * @param game Game with the classic goal
+     */
+    public IdaStarSolver(Game game) {
+        this(game.getRows(), game.getCols(), Boards.toArray(game));
+    }
+
+    /**
+     * Creates solver instance for the state.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param tiles elements by cells
+     * @throws IllegalArgumentException if elements are wrong
+     */
+    public IdaStarSolver(int rows, int cols, int[] tiles) {
+        Boards.checkTiles(rows, cols, tiles);
+        this.shape = GameShape.of(rows, cols);
+        this.rows = rows;
+        this.cols = cols;
+        this.start = tiles.clone();
+        this.tiles = new int[start.length];
+        this.rowConflicts = new int[rows];
+        this.colConflicts = new int[cols];
+        this.counter = new ConflictCounter(Math.max(rows, cols));
+    }
+
+    /**
+     * Returns solver of positions by IDA* search within the node limit,
+     * for example to put a SolutionCache in front of it.
+     * @param nodeLimit limit of expanded nodes per position
+     * @return solver
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public static PositionSolver positionSolver(final long nodeLimit) {
+        if (nodeLimit < 1) {
+            throw new IllegalArgumentException("Wrong node limit");
+        }
+        return new PositionSolver() {
+            @Override
+            public Solution solve(int rows, int cols, int[] tiles) {
+                return new IdaStarSolver(rows, cols, tiles).solve(nodeLimit, Integer.MAX_VALUE);
+            }
+        };
+    }
+
+    /**
+     * Finds the shortest solution.
+     * @return solution
+     */
+    public Solution solve() {
+        return solve(Long.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the shortest solution within limits.
+     * If a limit is reached, the solution is not found and its lower bound
+     * is the last completely searched bound. Unsolvable states have no
+     * solution and the maximal lower bound.
+     * @param nodeLimit limit of expanded nodes
+     * @param maxLength maximal number of moves
+     * @return solution
+     */
+    public Solution solve(long nodeLimit, int maxLength) {
+        System.arraycopy(start, 0, tiles, 0, start.length);
+        nodes = 0;
+        this.nodeLimit = nodeLimit;
+        if (!Boards.isSolvable(tiles, cols)) {
+            return new Solution(null, Integer.MAX_VALUE, 0);
+        }
+        int blank = 0;
+        int h = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] == 0) {
+                blank = i;
+            } else {
+                h += shape.distance(tiles[i], i);
+            }
+        }
+        for (int r = 0; r < rows; r++) {
+            rowConflicts[r] = rowConflicts(r);
+            h += 2 * rowConflicts[r];
+        }
+        for (int c = 0; c < cols; c++) {
+            colConflicts[c] = colConflicts(c);
+            h += 2 * colConflicts[c];
+        }
+        int bound = h;
+        while (bound <= maxLength) {
+            if (path.length <= bound) {
+                path = new int[bound * 2];
+            }
+            int result = search(blank, -1, 0, bound, h);
+            if (result == FOUND) {
+                return new Solution(Arrays.copyOf(path, foundLength), foundLength, nodes);
+            }
+            if (result == ABORTED) {
+                return new Solution(null, bound, nodes);
+            }
+            bound = result;
+        }
+        return new Solution(null, bound, nodes);
+    }
+
+    /**
+     * Cancels the running and all further searches of the solver,
+     * they return as if node limit is reached.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns count of nodes expanded by the last search.
+     * @return count of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Depth-first search bounded by the cost.
+     * @param blank empty cell
+     * @param previous previous empty cell
+     * @param depth number of moves made
+     * @param bound maximal cost
+     * @param h heuristic of the state
+     * @return FOUND, ABORTED or minimal cost above the bound
+     */
+    private int search(int blank, int previous, int depth, int bound, int h) {
+        int cost = depth + h;
+        if (cost > bound) {
+            return cost;
+        }
+        if (h == 0) {
+            foundLength = depth;
+            return FOUND;
+        }
+        if (++nodes > nodeLimit || ((nodes & 0x3FF) == 0 && cancelled)) {
+            return ABORTED;
+        }
+        int min = Integer.MAX_VALUE;
+        int row = shape.rowOf(blank);
+        int col = shape.colOf(blank);
+        for (int d = 0; d < 4; d++) {
+            int cell;
+            if (d == 0 && row > 0) {
+                cell = blank - cols;
+            } else if (d == 1 && row < rows - 1) {
+                cell = blank + cols;
+            } else if (d == 2 && col > 0) {
+                cell = blank - 1;
+            } else if (d == 3 && col < cols - 1) {
+                cell = blank + 1;
+            } else {
+                continue;
+            }
+            if (cell == previous) {
+                continue;
+            }
+            int element = tiles[cell];
+            tiles[blank] = element;
+            tiles[cell] = 0;
+            int next = h - shape.distance(element, cell) + shape.distance(element, blank);
+            // Only the goal line of the element can change its conflicts
+            int goal = shape.goalCell(element);
+            int line = -1;
+            int saved = 0;
+            if (d < 2) {
+                line = shape.rowOf(goal);
+                if (line == row || line == shape.rowOf(cell)) {
+                    saved = rowConflicts[line];
+                    rowConflicts[line] = rowConflicts(line);
+                    next += 2 * (rowConflicts[line] - saved);
+                } else {
+                    line = -1;
+                }
+            } else {
+                line = shape.colOf(goal);
+                if (line == col || line == shape.colOf(cell)) {
+                    saved = colConflicts[line];
+                    colConflicts[line] = colConflicts(line);
+                    next += 2 * (colConflicts[line] - saved);
+                } else {
+                    line = -1;
+                }
+            }
+            path[depth] = element;
+            int result = search(cell, blank, depth + 1, bound, next);
+            if (line >= 0) {
+                if (d < 2) {
+                    rowConflicts[line] = saved;
+                } else {
+                    colConflicts[line] = saved;
+                }
+            }
+            tiles[cell] = element;
+            tiles[blank] = 0;
+            if (result == FOUND || result == ABORTED) {
+                return result;
+            }
+            min = Math.min(min, result);
+        }
+        return min;
+    }
+
+    /**
+     * Returns count of elements which must leave the row.
+     * @param row row
+     * @return count of conflicts
+     */
+    private int rowConflicts(int row) {
+        for (int c = 0; c < cols; c++) {
+            int element = tiles[row * cols + c];
+            if (element != 0 && shape.rowOf(shape.goalCell(element)) == row) {
+                counter.add(shape.colOf(shape.goalCell(element)));
+            }
+        }
+        return counter.finish();
+    }
+
+    /**
+     * Returns count of elements which must leave the column.
+     * @param col column
+     * @return count of conflicts
+     */
+    private int colConflicts(int col) {
+        for (int r = 0; r < rows; r++) {
+            int element = tiles[r * cols + col];
+            if (element != 0 && shape.colOf(shape.goalCell(element)) == col) {
+                counter.add(shape.rowOf(shape.goalCell(element)));
+            }
+        }
+        return counter.finish();
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.staspavlov.taggame.solver;
+
+import java.util.Arrays;
+
+/**
+ * LongIntMap maps long keys to non-negative int values without boxing.
+ * Open addressing with linear probing, the table grows when half full.
+ * Keys and values are interleaved in one array.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+class LongIntMap {
+
+    /**
+     * Keys at even and values plus one at odd indexes, so a probe reads
+     * one cache line. Zero value marks empty slot.
+     */
+    private long[] table;
+
+    /**
+     * Count of keys.
+     */
+    private int count;
+
+    /**
+     * Creates map instance.
+     * @param expected expected count of keys
+     */
+    LongIntMap(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        table = new long[capacity * 2];
+    }
+
+    /**
+     * Returns value of the key.
+     * @param key key
+     * @return value, -1 if key is absent
+     */
+    int get(long key) {
+        int mask = table.length - 1;
+        for (int i = slot(key, mask); table[i + 1] != 0; i = (i + 2) & mask) {
+            if (table[i] == key) {
+                return (int) table[i + 1] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets value of the key.
+     * @param key key
+     * @param value non-negative value
+     */
+    void put(long key, int value) {
+        int index = indexOf(key);
+        putAt(index, key, value);
+    }
+
+    /**
+     * Finds slot of the key, so a lookup and an update share one probe.
+     * The index is valid until the next insertion.
+     * @param key key
+     * @return slot index of the key, or minus one minus the free slot
+     */
+    int indexOf(long key) {
+        int mask = table.length - 1;
+        int i = slot(key, mask);
+        while (table[i + 1] != 0) {
+            if (table[i] == key) {
+                return i;
+            }
+            i = (i + 2) & mask;
+        }
+        return -1 - i;
+    }
+
+    /**
+     * Returns value of the slot found by indexOf.
+     * @param index slot index of a key
+     * @return value
+     */
+    int valueAt(int index) {
+        return (int) table[index + 1] - 1;
+    }
+
+    /**
+     * Sets value of the slot found by indexOf.
+     * @param index slot index, negative for the free slot of an absent key
+     * @param key key
+     * @param value non-negative value
+     */
+    void putAt(int index, long key, int value) {
+        if (index >= 0) {
+            table[index + 1] = value + 1;
+            return;
+        }
+        table[-1 - index] = key;
+        table[-index] = value + 1;
+        if (++count * 4 > table.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Returns count of keys.
+     * @return count of keys
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Removes all keys.
+     */
+    void clear() {
+        Arrays.fill(table, 0);
+        count = 0;
+    }
+
+    /**
+     * Doubles the table.
+     */
+    private void grow() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        int mask = table.length - 1;
+        for (int j = 0; j < old.length; j += 2) {
+            if (old[j + 1] != 0) {
+                int i = slot(old[j], mask);
+                while (table[i + 1] != 0) {
+                    i = (i + 2) & mask;
+                }
+                table[i] = old[j];
+                table[i + 1] = old[j + 1];
+            }
+        }
+    }
+
+    /**
+     * Returns first slot for the key.
+     * @param key key
+     * @param mask table mask
+     * @return slot index, even
+     */
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask & ~1;
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.staspavlov.taggame.solver;
+
+/**
+ * MoveConsumer receives moves produced by solvers.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public interface MoveConsumer {
+
+    /**
+     * Accepts next move.
+     * @param element element to move
+     * @return true to continue, false to stop producing moves
+     */
+    public boolean accept(int element);
+
+}
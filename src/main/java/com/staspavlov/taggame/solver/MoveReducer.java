@@ -0,0 +1,115 @@
+package com.staspavlov.taggame.solver;
+
+/**
+ * MoveReducer removes back-and-forth moves from a stream of moves.
+ * Moving the same element twice in a row returns it to the previous cell,
+ * so such pairs are dropped. Only the last moves are kept in a buffer of
+ * fixed size, older moves are passed to the target consumer.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class MoveReducer implements MoveConsumer {
+
+    /**
+     * Default size of the buffer.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * Target consumer.
+     */
+    private final MoveConsumer target;
+
+    /**
+     * Ring buffer of pending moves.
+     */
+    private final int[] buffer;
+
+    /**
+     * Index of the oldest pending move.
+     */
+    private int head;
+
+    /**
+     * Count of pending moves.
+     */
+    private int count;
+
+    /**
+     * Target consumer asked to stop.
+     */
+    private boolean stopped;
+
+    /**
+     * Creates reducer instance with default buffer size.
+     * @param target target consumer
+     */
+    public MoveReducer(MoveConsumer target) {
+        this(target, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates reducer instance.
+     * @param target target consumer
+     * @param capacity size of the buffer
+     */
+    public MoveReducer(MoveConsumer target, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.target = target;
+        this.buffer = new int[capacity];
+    }
+
+    /**
+     * Accepts next move.
+     * @param element element to move
+     * @return true to continue, false if target consumer asked to stop
+     */
+    @Override
+    public boolean accept(int element) {
+        if (stopped) {
+            return false;
+        }
+        // Cancel the move with the previous one
+        if (count > 0 && buffer[(head + count - 1) % buffer.length] == element) {
+            count--;
+            return true;
+        }
+        // Pass the oldest move to the target if buffer is full
+        if (count == buffer.length && !pass()) {
+            return false;
+        }
+        buffer[(head + count) % buffer.length] = element;
+        count++;
+        return true;
+    }
+
+    /**
+     * Passes all pending moves to the target consumer.
+     * @return true if all moves are passed, false if target asked to stop
+     */
+    public boolean flush() {
+        while (count > 0) {
+            if (!pass()) {
+                return false;
+            }
+        }
+        return !stopped;
+    }
+
+    /**
+     * Passes the oldest pending move to the target consumer.
+     * @return true if target asked to continue
+     */
+    private boolean pass() {
+        int element = buffer[head];
+        head = (head + 1) % buffer.length;
+        count--;
+        if (!target.accept(element)) {
+            stopped = true;
+            count = 0;
+        }
+        return !stopped;
+    }
+
+}
@@ -0,0 +1,564 @@
+package com.staspavlov.taggame.solver;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.Zobrist;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PathOptimizer shortens sequences of moves.
+ * Every cycle of the path is cut by remembering hashes of visited states,
+ * then windows of the path are replaced by optimal ones found by a bounded
+ * IDA* search. Windows are searched in parallel. The result is replayed
+ * and checked to lead to the same state as the original moves. Windows
+ * are not searched any more after the deadline or cancellation.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class PathOptimizer {
+
+    /**
+     * Default number of moves in a window.
+     */
+    public static final int DEFAULT_WINDOW = 14;
+
+    /**
+     * Default limit of nodes searched per window.
+     */
+    public static final int DEFAULT_NODE_LIMIT = 20000;
+
+    /**
+     * Maximal number of optimization passes.
+     */
+    private static final int MAX_PASSES = 4;
+
+    /**
+     * Size of transposition tables of workers, base-2 logarithm.
+     */
+    private static final int TABLE_BITS = 10;
+
+    /**
+     * Number of rows in the game area.
+     */
+    private final int rows;
+
+    /**
+     * Number of columns in the game area.
+     */
+    private final int cols;
+
+    /**
+     * Elements by cells in the start state.
+     */
+    private final int[] start;
+
+    /**
+     * Number of moves in a window.
+     */
+    private final int window;
+
+    /**
+     * Limit of nodes searched per window.
+     */
+    private final int nodeLimit;
+
+    /**
+     * Number of threads.
+     */
+    private final int threads;
+
+    /**
+     * Optimization has a deadline.
+     */
+    private boolean timed;
+
+    /**
+     * Deadline by System.nanoTime().
+     */
+    private long deadline;
+
+    /**
+     * Optimization is cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Creates optimizer instance with default settings.
+     * @param game Game with the classic goal in the start state
+     */
+    public PathOptimizer(Game game) {
+        this(game, DEFAULT_WINDOW, DEFAULT_NODE_LIMIT, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates optimizer instance.
+     * @param game Game with the classic goal in the start state
+     * @param window number of moves in a window
+     * @param nodeLimit limit of nodes searched per window
+     * @param threads number of threads
+     */
+    public PathOptimizer(Game game, int window, int nodeLimit, int threads) {
+        if (window < 2 || nodeLimit < 1 || threads < 1) {
+            throw new IllegalArgumentException("Wrong optimizer settings");
+        }
+        this.rows = game.getRows();
+        this.cols = game.getCols();
+        this.start = Boards.toArray(game);
+        this.window = window;
+        this.nodeLimit = nodeLimit;
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the shortest found sequence of moves leading to the same state.
+     * @param moves elements to move
+     * @return optimized moves
+     * @throws IllegalArgumentException if moves are not legal
+     */
+    public int[] optimize(int[] moves) {
+        timed = false;
+        return optimizePath(moves);
+    }
+
+    /**
+     * Returns the shortest sequence of moves found within the time budget.
+     * @param moves elements to move
+     * @param budget time budget
+     * @param unit unit of the budget
+     * @return optimized moves
+     * @throws IllegalArgumentException if moves are not legal
+     */
+    public int[] optimize(int[] moves, long budget, TimeUnit unit) {
+        timed = true;
+        deadline = System.nanoTime() + unit.toNanos(budget);
+        return optimizePath(moves);
+    }
+
+    /**
+     * Cancels the running and all further optimizations,
+     * they return the shortest sequence found so far.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Optimizes the path until the deadline.
+     * @param moves elements to move
+     * @return optimized moves
+     */
+    private int[] optimizePath(int[] moves) {
+        int[] target = start.clone();
+        int[] path = removeCycles(moves, target);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int pass = 0; pass < MAX_PASSES && !isStopped(); pass++) {
+                int length = path.length;
+                path = removeCycles(replaceWindows(path, 0, executor), null);
+                path = removeCycles(replaceWindows(path, window / 2, executor), null);
+                if (path.length == length) {
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        int[] tiles = start.clone();
+        if (replay(path, tiles) && Arrays.equals(tiles, target)) {
+            return path;
+        }
+        // Never expected, but the original moves are always correct
+        return removeCycles(moves, null);
+    }
+
+    /**
+     * Checks if windows must not be searched any more.
+     * @return true if the deadline is reached or optimization is cancelled
+     */
+    private boolean isStopped() {
+        return cancelled || (timed && System.nanoTime() - deadline >= 0);
+    }
+
+    /**
+     * Cuts cycles of the path.
+     * @param moves elements to move
+     * @param target array to store the final state, may be null
+     * @return path without cycles
+     */
+    private int[] removeCycles(int[] moves, int[] target) {
+        int[] tiles = start.clone();
+        int[] cells = cellsOf(tiles);
+        long hash = Zobrist.hash(tiles);
+        int[] path = new int[moves.length];
+        RepetitionDetector detector = new RepetitionDetector(moves.length + 1);
+        int length = 0;
+        detector.push(hash);
+        for (int element : moves) {
+            if (element <= 0 || element >= tiles.length) {
+                throw new IllegalArgumentException("Illegal move");
+            }
+            int cell = cells[element];
+            int blank = cells[0];
+            if (!isAdjacent(cell, blank)) {
+                throw new IllegalArgumentException("Illegal move");
+            }
+            tiles[blank] = element;
+            tiles[cell] = 0;
+            cells[element] = blank;
+            cells[0] = cell;
+            hash = Zobrist.move(hash, element, cell, blank);
+            // State after the move is the state after the first moves
+            int seenAt = detector.push(hash);
+            if (seenAt >= 0) {
+                detector.truncate(seenAt + 1);
+                length = seenAt;
+            } else {
+                path[length++] = element;
+            }
+        }
+        if (target != null) {
+            System.arraycopy(tiles, 0, target, 0, tiles.length);
+        }
+        return Arrays.copyOf(path, length);
+    }
+
+    /**
+     * Replaces windows of the path by shorter ones.
+     * @param path moves
+     * @param offset length of the first window
+     * @param executor executor for searches
+     * @return new path
+     */
+    private int[] replaceWindows(int[] path, int offset, ExecutorService executor) {
+        int first = offset == 0 ? 0 : 1;
+        int count = first + (path.length - offset + window - 1) / window;
+        int[][] replacements = new int[count][];
+        int tasks = Math.min(threads * 4, count);
+        List<Future<Void>> futures = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            futures.add(executor.submit(new Worker(path, offset, replacements,
+                    (int) ((long) count * t / tasks), (int) ((long) count * (t + 1) / tasks))));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Optimization is interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Optimization is failed", ex.getCause());
+        }
+        int[] result = new int[path.length];
+        int length = 0;
+        for (int w = 0; w < count; w++) {
+            int from = windowStart(w, offset);
+            int to = Math.min(path.length, windowStart(w + 1, offset));
+            if (replacements[w] != null) {
+                System.arraycopy(replacements[w], 0, result, length, replacements[w].length);
+                length += replacements[w].length;
+            } else {
+                System.arraycopy(path, from, result, length, to - from);
+                length += to - from;
+            }
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    /**
+     * Returns index of the first move of the window.
+     * @param index index of the window
+     * @param offset length of the first window
+     * @return index of the move
+     */
+    private int windowStart(int index, int offset) {
+        if (offset == 0) {
+            return index * window;
+        }
+        return index == 0 ? 0 : offset + (index - 1) * window;
+    }
+
+    /**
+     * Applies moves to the board.
+     * @param moves elements to move
+     * @param tiles elements by cells
+     * @return true if all moves are legal
+     */
+    private boolean replay(int[] moves, int[] tiles) {
+        int[] cells = cellsOf(tiles);
+        for (int element : moves) {
+            int cell = cells[element];
+            int blank = cells[0];
+            if (!isAdjacent(cell, blank)) {
+                return false;
+            }
+            tiles[blank] = element;
+            tiles[cell] = 0;
+            cells[element] = blank;
+            cells[0] = cell;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if two cells are neighbours.
+     * @param a cell
+     * @param b cell
+     * @return true if neighbours
+     */
+    private boolean isAdjacent(int a, int b) {
+        int diff = Math.abs(a - b);
+        return diff == cols || (diff == 1 && a / cols == b / cols);
+    }
+
+    /**
+     * Returns cells by elements.
+     * @param tiles elements by cells
+     * @return cells by elements
+     */
+    private static int[] cellsOf(int[] tiles) {
+        int[] cells = new int[tiles.length];
+        for (int i = 0; i < tiles.length; i++) {
+            cells[tiles[i]] = i;
+        }
+        return cells;
+    }
+
+    /**
+     * Worker searches shorter replacements for a range of windows.
+     */
+    private final class Worker implements Callable<Void> {
+
+        /**
+         * Moves.
+         */
+        private final int[] path;
+
+        /**
+         * Length of the first window.
+         */
+        private final int offset;
+
+        /**
+         * Found replacements by windows.
+         */
+        private final int[][] replacements;
+
+        /**
+         * First window.
+         */
+        private final int from;
+
+        /**
+         * Window after the last one.
+         */
+        private final int to;
+
+        /**
+         * Elements by cells.
+         */
+        private int[] tiles;
+
+        /**
+         * Cells of elements at the end of the window.
+         */
+        private int[] goal;
+
+        /**
+         * Moves of the current search.
+         */
+        private final int[] moves = new int[window];
+
+        /**
+         * Remaining cost of searched states.
+         */
+        private final TranspositionTable table = new TranspositionTable(TABLE_BITS);
+
+        /**
+         * Empty cell at the end of the window.
+         */
+        private int goalBlank;
+
+        /**
+         * Count of searched nodes.
+         */
+        private int nodes;
+
+        Worker(int[] path, int offset, int[][] replacements, int from, int to) {
+            this.path = path;
+            this.offset = offset;
+            this.replacements = replacements;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Void call() {
+            tiles = start.clone();
+            int[] cells = cellsOf(tiles);
+            int begin = windowStart(from, offset);
+            for (int i = 0; i < begin; i++) {
+                move(cells, path[i]);
+            }
+            goal = cells.clone();
+            for (int w = from; w < to; w++) {
+                int first = windowStart(w, offset);
+                int last = Math.min(path.length, windowStart(w + 1, offset));
+                // Move goal to the end of the window
+                for (int i = first; i < last; i++) {
+                    int element = path[i];
+                    int cell = goal[element];
+                    goal[element] = goal[0];
+                    goal[0] = cell;
+                }
+                goalBlank = goal[0];
+                if (last - first > 2 && !isStopped()) {
+                    int length = search(cells[0], distance(cells, path, first, last), last - first - 2);
+                    if (length >= 0) {
+                        replacements[w] = Arrays.copyOf(moves, length);
+                    }
+                }
+                for (int i = first; i < last; i++) {
+                    move(cells, path[i]);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns Manhattan distance of elements moved in the window.
+         * @param cells cells by elements
+         * @param path moves
+         * @param first first move of the window
+         * @param last move after the window
+         * @return distance
+         */
+        private int distance(int[] cells, int[] path, int first, int last) {
+            int h = 0;
+            for (int i = first; i < last; i++) {
+                int element = path[i];
+                boolean counted = false;
+                for (int j = first; j < i && !counted; j++) {
+                    counted = path[j] == element;
+                }
+                if (!counted) {
+                    h += distance(cells[element], goal[element]);
+                }
+            }
+            return h;
+        }
+
+        /**
+         * Searches optimal moves to the goal not longer than the limit.
+         * @param blank empty cell
+         * @param h Manhattan distance to the goal
+         * @param limit maximal number of moves
+         * @return number of moves, -1 if not found
+         */
+        private int search(int blank, int h, int limit) {
+            nodes = 0;
+            table.clear();
+            // Hashes relative to the window start are enough for the table
+            for (int bound = h; bound <= limit; bound += 2) {
+                int length = search(blank, -1, 0, bound, h, 0L);
+                if (length != -1) {
+                    return length < 0 ? -1 : length;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Depth-first search bounded by the cost.
+         * @param blank empty cell
+         * @param previous previous empty cell
+         * @param depth number of moves made
+         * @param bound maximal cost
+         * @param h Manhattan distance to the goal
+         * @param hash hash of the state
+         * @return number of moves, -1 if not found, -2 if node limit is reached
+         */
+        private int search(int blank, int previous, int depth, int bound, int h, long hash) {
+            if (h == 0 && blank == goalBlank) {
+                return depth;
+            }
+            if (depth + h > bound) {
+                return -1;
+            }
+            // The state was already searched with at least the same remaining cost
+            int remaining = bound - depth;
+            if (table.get(hash) >= remaining) {
+                return -1;
+            }
+            table.put(hash, remaining);
+            if (++nodes > nodeLimit) {
+                return -2;
+            }
+            int row = blank / cols;
+            int col = blank % cols;
+            for (int d = 0; d < 4; d++) {
+                int cell;
+                if (d == 0 && row > 0) {
+                    cell = blank - cols;
+                } else if (d == 1 && row < rows - 1) {
+                    cell = blank + cols;
+                } else if (d == 2 && col > 0) {
+                    cell = blank - 1;
+                } else if (d == 3 && col < cols - 1) {
+                    cell = blank + 1;
+                } else {
+                    continue;
+                }
+                if (cell == previous) {
+                    continue;
+                }
+                int element = tiles[cell];
+                int target = goal[element];
+                int next = h - distance(cell, target) + distance(blank, target);
+                tiles[blank] = element;
+                tiles[cell] = 0;
+                moves[depth] = element;
+                int result = search(cell, blank, depth + 1, bound, next,
+                        Zobrist.move(hash, element, cell, blank));
+                tiles[cell] = element;
+                tiles[blank] = 0;
+                if (result != -1) {
+                    return result;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Moves element on the worker board.
+         * @param cells cells by elements
+         * @param element element
+         */
+        private void move(int[] cells, int element) {
+            int cell = cells[element];
+            int blank = cells[0];
+            tiles[blank] = element;
+            tiles[cell] = 0;
+            cells[element] = blank;
+            cells[0] = cell;
+        }
+
+        /**
+         * Returns Manhattan distance between cells.
+         * @param a cell
+         * @param b cell
+         * @return distance
+         */
+        private int distance(int a, int b) {
+            return Math.abs(a / cols - b / cols) + Math.abs(a % cols - b % cols);
+        }
+
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.staspavlov.taggame.solver;
+
+/**
+ * Solver of positions given as elements by cells.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public interface PositionSolver {
+
+    /**
+     * Finds solution of the position.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param tiles elements by cells, not modified
+     * @return solution
+     */
+    Solution solve(int rows, int cols, int[] tiles);
+
+}
@@ -0,0 +1,17 @@
+package com.staspavlov.taggame.solver;
+
+/**
+ * ProgressListener receives improvements of a running search.
+ * It is called from the thread of the search.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public interface ProgressListener {
+
+    /**
+     * Reports the best solution found so far.
+     * @param length number of moves of the best solution
+     * @param lowerBound proven lower bound of the number of moves
+     */
+    public void progress(int length, int lowerBound);
+
+}
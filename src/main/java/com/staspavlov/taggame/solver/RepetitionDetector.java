@@ -0,0 +1,97 @@
+package com.staspavlov.taggame.solver;
+
+import java.util.Arrays;
+
+/**
+ * RepetitionDetector finds states repeated along a path of moves.
+ * States are identified by Zobrist hashes, see {@link com.staspavlov.taggame.game.Game#getHash()}.
+ * The path can be cut back, so cycles are removed as soon as they appear.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class RepetitionDetector {
+
+    /**
+     * Hashes of states along the path.
+     */
+    private long[] hashes;
+
+    /**
+     * Positions of hashes along the path, may contain positions of cut states.
+     */
+    private final LongIntMap positions;
+
+    /**
+     * Number of states in the path.
+     */
+    private int length;
+
+    /**
+     * Creates detector instance.
+     * @param expected expected number of states
+     */
+    public RepetitionDetector(int expected) {
+        hashes = new long[Math.max(expected, 16)];
+        positions = new LongIntMap(expected);
+    }
+
+    /**
+     * Returns position of the state in the path.
+     * @param hash hash of the state
+     * @return position, -1 if the state is not in the path
+     */
+    public int indexOf(long hash) {
+        int position = positions.get(hash);
+        // Positions above the length are left from cut states
+        if (position >= 0 && position < length && hashes[position] == hash) {
+            return position;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the state to the end of the path.
+     * @param hash hash of the state
+     * @return position of the same state added before, -1 if the state is new
+     */
+    public int push(long hash) {
+        int position = indexOf(hash);
+        if (position >= 0) {
+            return position;
+        }
+        if (length == hashes.length) {
+            hashes = Arrays.copyOf(hashes, length * 2);
+        }
+        hashes[length] = hash;
+        positions.put(hash, length);
+        length++;
+        return -1;
+    }
+
+    /**
+     * Cuts the path.
+     * @param length new number of states
+     */
+    public void truncate(int length) {
+        if (length < 0 || length > this.length) {
+            throw new IllegalArgumentException("Wrong length");
+        }
+        this.length = length;
+    }
+
+    /**
+     * Returns number of states in the path.
+     * @return number of states
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Removes all states.
+     */
+    public void clear() {
+        positions.clear();
+        length = 0;
+    }
+
+}
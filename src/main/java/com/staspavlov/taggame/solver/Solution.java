@@ -0,0 +1,84 @@
+package com.staspavlov.taggame.solver;
+
+/**
+ * Result of a search.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public final class Solution {
+
+    /**
+     * Elements to move, null if no solution is found.
+     */
+    private final int[] moves;
+
+    /**
+     * Proven lower bound of the number of moves.
+     */
+    private final int lowerBound;
+
+    /**
+     * Count of expanded nodes.
+     */
+    private final long nodes;
+
+    /**
+     * Creates solution instance.
+     * @param moves elements to move, null if no solution is found
+     * @param lowerBound proven lower bound of the number of moves
+     * @param nodes count of expanded nodes
+     */
+    public Solution(int[] moves, int lowerBound, long nodes) {
+        this.moves = moves;
+        this.lowerBound = lowerBound;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Checks if solution is found.
+     * @return true if found
+     */
+    public boolean isFound() {
+        return moves != null;
+    }
+
+    /**
+     * Returns elements to move.
+     * @return copy of moves, empty if no solution is found
+     */
+    public int[] getMoves() {
+        return moves == null ? new int[0] : moves.clone();
+    }
+
+    /**
+     * Returns number of moves.
+     * @return number of moves, -1 if no solution is found
+     */
+    public int getLength() {
+        return moves == null ? -1 : moves.length;
+    }
+
+    /**
+     * Returns proven lower bound of the number of moves.
+     * @return lower bound
+     */
+    public int getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * Returns count of expanded nodes.
+     * @return count of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Checks if solution is proven to be the shortest one.
+     * @return true if optimal
+     */
+    public boolean isOptimal() {
+        return moves != null && moves.length == lowerBound;
+    }
+
+}
@@ -0,0 +1,621 @@
+package com.staspavlov.taggame.solver;
+
+import com.staspavlov.taggame.game.Zobrist;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SolutionCache remembers solutions of a solver by positions.
+ * Square positions are stored in canonical form: the least of the
+ * position and its transposition with elements renamed to keep the goal
+ * state, so mirrored positions share one entry. The cache is split into
+ * segments by hashes, each with its own lock and W-TinyLFU eviction:
+ * new entries enter a small LRU window, entries leaving the window
+ * replace the oldest probation entry of the main space only if they are
+ * used more often by a frequency sketch, entries used again in probation
+ * are protected. Found solutions and unsolvable positions are cached,
+ * searches stopped by limits are not.
+ * Optionally entries are appended to a memory-mapped log file, which is
+ * loaded by the next instance and compacted when it is full.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class SolutionCache implements PositionSolver, Closeable {
+
+    /**
+     * Maximal number of segments.
+     */
+    private static final int MAX_SEGMENTS = 16;
+
+    /**
+     * Minimal number of entries per segment.
+     */
+    private static final int MIN_SEGMENT = 64;
+
+    /**
+     * Mark of the log file.
+     */
+    private static final int MAGIC = 0x54474331;
+
+    /**
+     * Size of the log file header: mark, reserved and used length.
+     */
+    private static final int HEADER = 16;
+
+    /**
+     * Solver of missing positions.
+     */
+    private final PositionSolver solver;
+
+    private final Segment[] segments;
+
+    /**
+     * Mapped log file, null if the cache is not persisted.
+     */
+    private final MappedByteBuffer file;
+
+    /**
+     * Lock of the log file.
+     */
+    private final Object fileLock = new Object();
+
+    /**
+     * Creates cache in memory.
+     * @param solver solver of missing positions
+     * @param capacity maximal number of entries
+     */
+    public SolutionCache(PositionSolver solver, int capacity) {
+        this(solver, capacity, (MappedByteBuffer) null);
+    }
+
+    /**
+     * Creates cache persisted to the log file and loads its entries.
+     * @param solver solver of missing positions
+     * @param capacity maximal number of entries
+     * @param path log file
+     * @param fileSize size of the log file in bytes
+     * @throws IOException if the file can not be mapped or is not a log
+     */
+    public SolutionCache(PositionSolver solver, int capacity, Path path, int fileSize) throws IOException {
+        this(solver, capacity, map(path, fileSize));
+        load();
+    }
+
+    private SolutionCache(PositionSolver solver, int capacity, MappedByteBuffer file) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Wrong cache capacity");
+        }
+        int count = 1;
+        while (count < MAX_SEGMENTS && capacity / (count * 2) >= MIN_SEGMENT) {
+            count *= 2;
+        }
+        this.solver = solver;
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment((capacity + count - 1) / count);
+        }
+        this.file = file;
+    }
+
+    /**
+     * Returns cached solution or solves the position and caches it.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param tiles elements by cells, not modified
+     * @return solution
+     */
+    @Override
+    public Solution solve(int rows, int cols, int[] tiles) {
+        Solution solution = get(rows, cols, tiles);
+        if (solution == null) {
+            solution = solver.solve(rows, cols, tiles);
+            put(rows, cols, tiles, solution);
+        }
+        return solution;
+    }
+
+    /**
+     * Returns cached solution.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param tiles elements by cells, not modified
+     * @return solution without expanded nodes, null if not cached
+     * @throws IllegalArgumentException if elements are wrong
+     */
+    public Solution get(int rows, int cols, int[] tiles) {
+        Boards.checkTiles(rows, cols, tiles);
+        int[] canonical = canonical(rows, cols, tiles);
+        long hash = hash(rows, cols, canonical);
+        Solution solution = segment(hash).get(hash, rows, cols, canonical);
+        if (solution == null || canonical == tiles || !solution.isFound()) {
+            return solution;
+        }
+        return new Solution(transpose(rows, solution.getMoves()), solution.getLowerBound(), 0);
+    }
+
+    /**
+     * Caches solution of the position.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param tiles elements by cells, not modified
+     * @param solution solution, ignored if stopped by limits
+     * @throws IllegalArgumentException if elements are wrong
+     */
+    public void put(int rows, int cols, int[] tiles, Solution solution) {
+        Boards.checkTiles(rows, cols, tiles);
+        if (!solution.isFound() && solution.getLowerBound() != Integer.MAX_VALUE) {
+            return;
+        }
+        int[] canonical = canonical(rows, cols, tiles);
+        int[] moves = null;
+        if (solution.isFound()) {
+            moves = canonical == tiles ? solution.getMoves() : transpose(rows, solution.getMoves());
+        }
+        if (canonical == tiles) {
+            canonical = tiles.clone();
+        }
+        store(rows, cols, canonical, moves, solution.getLowerBound());
+        if (file != null) {
+            synchronized (fileLock) {
+                if (!append(rows, cols, canonical, moves, solution.getLowerBound(), file.capacity())) {
+                    compact();
+                    append(rows, cols, canonical, moves, solution.getLowerBound(), file.capacity());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns number of cached entries.
+     * @return number of entries
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.nodes.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns number of lookups answered by the cache.
+     * @return number of hits
+     */
+    public long getHitCount() {
+        long hits = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                hits += segment.hits;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Returns number of lookups not answered by the cache.
+     * @return number of misses
+     */
+    public long getMissCount() {
+        long misses = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                misses += segment.misses;
+            }
+        }
+        return misses;
+    }
+
+    /**
+     * Returns share of lookups answered by the cache.
+     * @return hit rate from 0 to 1, 0 before the first lookup
+     */
+    public double getHitRate() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Returns number of entries evicted or rejected by the policy.
+     * @return number of evictions
+     */
+    public long getEvictionCount() {
+        long evictions = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                evictions += segment.evictions;
+            }
+        }
+        return evictions;
+    }
+
+    /**
+     * Writes the log file to the storage.
+     */
+    @Override
+    public void close() {
+        if (file != null) {
+            synchronized (fileLock) {
+                file.force();
+            }
+        }
+    }
+
+    private Segment segment(long hash) {
+        return segments[(int) (hash >>> 40) & (segments.length - 1)];
+    }
+
+    private void store(int rows, int cols, int[] canonical, int[] moves, int lowerBound) {
+        long hash = hash(rows, cols, canonical);
+        segment(hash).put(hash, rows, cols, canonical, moves, lowerBound);
+    }
+
+    /**
+     * Appends entry to the log file.
+     * @return false if the entry does not fit before the limit
+     */
+    private boolean append(int rows, int cols, int[] tiles, int[] moves, int lowerBound, int limit) {
+        long used = file.getLong(8);
+        long length = 16 + 4L * (tiles.length + (moves == null ? 0 : moves.length));
+        if (used + length > limit) {
+            return false;
+        }
+        int position = (int) used;
+        file.putInt(position, rows);
+        file.putInt(position + 4, cols);
+        file.putInt(position + 8, lowerBound);
+        file.putInt(position + 12, moves == null ? -1 : moves.length);
+        position += 16;
+        for (int element : tiles) {
+            file.putInt(position, element);
+            position += 4;
+        }
+        if (moves != null) {
+            for (int element : moves) {
+                file.putInt(position, element);
+                position += 4;
+            }
+        }
+        // Length is updated after the entry, so a torn entry is never read
+        file.putLong(8, position);
+        return true;
+    }
+
+    /**
+     * Rewrites the log file with cached entries, filling at most half of
+     * it to leave room for further appends.
+     */
+    private void compact() {
+        file.putLong(8, HEADER);
+        for (Segment segment : segments) {
+            for (Node node : segment.snapshot()) {
+                if (!append(node.rows, node.cols, node.tiles, node.moves, node.lowerBound, file.capacity() / 2)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads entries of the log file.
+     * @throws IOException if the file is not a log
+     */
+    private void load() throws IOException {
+        int magic = file.getInt(0);
+        if (magic == 0) {
+            file.putInt(0, MAGIC);
+            file.putLong(8, HEADER);
+            return;
+        }
+        if (magic != MAGIC) {
+            throw new IOException("Wrong solution cache file");
+        }
+        long used = Math.min(file.getLong(8), file.capacity());
+        int position = HEADER;
+        while (position + 16 <= used) {
+            int rows = file.getInt(position);
+            int cols = file.getInt(position + 4);
+            int lowerBound = file.getInt(position + 8);
+            int count = file.getInt(position + 12);
+            if (rows < 1 || cols < 1 || count < -1
+                    || position + 16 + 4L * ((long) rows * cols + Math.max(count, 0)) > used) {
+                throw new IOException("Wrong solution cache file");
+            }
+            position += 16;
+            int[] tiles = new int[rows * cols];
+            for (int i = 0; i < tiles.length; i++) {
+                tiles[i] = file.getInt(position);
+                position += 4;
+            }
+            int[] moves = count < 0 ? null : new int[count];
+            for (int i = 0; i < count; i++) {
+                moves[i] = file.getInt(position);
+                position += 4;
+            }
+            store(rows, cols, tiles, moves, lowerBound);
+        }
+    }
+
+    private static MappedByteBuffer map(Path path, int fileSize) throws IOException {
+        if (fileSize < HEADER) {
+            throw new IllegalArgumentException("Wrong file size");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(fileSize, channel.size()));
+        }
+    }
+
+    /**
+     * Returns the least of the position and its transposition.
+     * @return the same array or a new one
+     */
+    private static int[] canonical(int rows, int cols, int[] tiles) {
+        if (tiles.length != rows * cols) {
+            throw new IllegalArgumentException("Wrong number of elements");
+        }
+        if (rows != cols) {
+            return tiles;
+        }
+        int[] transposed = new int[tiles.length];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                transposed[c * rows + r] = rename(rows, tiles[r * cols + c]);
+            }
+        }
+        for (int i = 0; i < tiles.length; i++) {
+            if (transposed[i] != tiles[i]) {
+                return transposed[i] < tiles[i] ? transposed : tiles;
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Renames moves between a square position and its transposition.
+     */
+    private static int[] transpose(int size, int[] moves) {
+        int[] result = new int[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            result[i] = rename(size, moves[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns element with the transposed goal cell.
+     */
+    private static int rename(int size, int element) {
+        if (element == 0) {
+            return 0;
+        }
+        int goal = element - 1;
+        return goal % size * size + goal / size + 1;
+    }
+
+    private static long hash(int rows, int cols, int[] tiles) {
+        return Zobrist.hash(tiles) ^ Zobrist.key(rows, cols);
+    }
+
+    /**
+     * Cached entry, a node of a region list.
+     */
+    private static final class Node {
+
+        /**
+         * Regions of the segment.
+         */
+        static final int WINDOW = 0;
+        static final int PROBATION = 1;
+        static final int PROTECTED = 2;
+
+        final long hash;
+
+        final int rows;
+
+        final int cols;
+
+        final int[] tiles;
+
+        int[] moves;
+
+        int lowerBound;
+
+        int region;
+
+        Node prev;
+
+        Node next;
+
+        /**
+         * Creates list head.
+         */
+        Node() {
+            this(0, 0, 0, null, null, 0);
+        }
+
+        Node(long hash, int rows, int cols, int[] tiles, int[] moves, int lowerBound) {
+            this.hash = hash;
+            this.rows = rows;
+            this.cols = cols;
+            this.tiles = tiles;
+            this.moves = moves;
+            this.lowerBound = lowerBound;
+            this.prev = this;
+            this.next = this;
+        }
+
+        boolean matches(int rows, int cols, int[] tiles) {
+            return this.rows == rows && this.cols == cols && Arrays.equals(this.tiles, tiles);
+        }
+
+        /**
+         * Moves the node to the tail of the list.
+         */
+        void linkBefore(Node head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = this;
+            next = this;
+        }
+
+    }
+
+    /**
+     * Part of the cache with its own lock and eviction policy.
+     */
+    private static final class Segment {
+
+        /**
+         * Maximal numbers of entries by regions.
+         */
+        private final int windowMax;
+
+        private final int mainMax;
+
+        private final int protectedMax;
+
+        private final Map<Long, Node> nodes = new HashMap<>();
+
+        /**
+         * Heads of region lists, the least recently used entry is the first.
+         */
+        private final Node window = new Node();
+
+        private final Node probation = new Node();
+
+        private final Node protect = new Node();
+
+        private int windowCount;
+
+        private int probationCount;
+
+        private int protectedCount;
+
+        private final FrequencySketch sketch;
+
+        private long hits;
+
+        private long misses;
+
+        private long evictions;
+
+        Segment(int capacity) {
+            this.windowMax = Math.max(1, capacity / 100);
+            this.mainMax = Math.max(1, capacity - windowMax);
+            this.protectedMax = mainMax * 4 / 5;
+            this.sketch = new FrequencySketch(capacity);
+        }
+
+        synchronized Solution get(long hash, int rows, int cols, int[] tiles) {
+            sketch.increment(hash);
+            Node node = nodes.get(hash);
+            if (node == null || !node.matches(rows, cols, tiles)) {
+                misses++;
+                return null;
+            }
+            hits++;
+            touch(node);
+            return new Solution(node.moves, node.lowerBound, 0);
+        }
+
+        synchronized void put(long hash, int rows, int cols, int[] tiles, int[] moves, int lowerBound) {
+            Node node = nodes.get(hash);
+            if (node != null) {
+                if (node.matches(rows, cols, tiles)) {
+                    node.moves = moves;
+                    node.lowerBound = lowerBound;
+                    touch(node);
+                    return;
+                }
+                // Other position with the same hash
+                remove(node);
+            }
+            node = new Node(hash, rows, cols, tiles, moves, lowerBound);
+            nodes.put(hash, node);
+            node.region = Node.WINDOW;
+            node.linkBefore(window);
+            windowCount++;
+            if (windowCount <= windowMax) {
+                return;
+            }
+            Node candidate = window.next;
+            candidate.unlink();
+            windowCount--;
+            candidate.region = Node.PROBATION;
+            candidate.linkBefore(probation);
+            probationCount++;
+            if (probationCount + protectedCount <= mainMax) {
+                return;
+            }
+            Node victim = probation.next != candidate ? probation.next : protect.next;
+            remove(sketch.frequency(candidate.hash) > sketch.frequency(victim.hash) ? victim : candidate);
+            evictions++;
+        }
+
+        synchronized List<Node> snapshot() {
+            List<Node> copies = new ArrayList<>(nodes.size());
+            for (Node node : nodes.values()) {
+                copies.add(new Node(node.hash, node.rows, node.cols, node.tiles, node.moves, node.lowerBound));
+            }
+            return copies;
+        }
+
+        /**
+         * Registers access of the entry.
+         */
+        private void touch(Node node) {
+            node.unlink();
+            if (node.region == Node.WINDOW) {
+                node.linkBefore(window);
+            } else if (node.region == Node.PROTECTED) {
+                node.linkBefore(protect);
+            } else {
+                probationCount--;
+                node.region = Node.PROTECTED;
+                node.linkBefore(protect);
+                protectedCount++;
+                if (protectedCount > protectedMax) {
+                    Node demoted = protect.next;
+                    demoted.unlink();
+                    protectedCount--;
+                    demoted.region = Node.PROBATION;
+                    demoted.linkBefore(probation);
+                    probationCount++;
+                }
+            }
+        }
+
+        private void remove(Node node) {
+            node.unlink();
+            if (node.region == Node.WINDOW) {
+                windowCount--;
+            } else if (node.region == Node.PROBATION) {
+                probationCount--;
+            } else {
+                protectedCount--;
+            }
+            nodes.remove(node.hash);
+        }
+
+    }
+
+}
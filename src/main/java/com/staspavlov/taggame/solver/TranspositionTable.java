@@ -0,0 +1,75 @@
+package com.staspavlov.taggame.solver;
+
+import java.util.Arrays;
+
+/**
+ * TranspositionTable remembers values of searched states by Zobrist hashes.
+ * The table has fixed size and is lossy: a new state replaces the old one
+ * stored in the same slot, so memory never grows during a search.
+ * @author Stanislav Pavlov <mail@staspavlov.com>
+ */
+public class TranspositionTable {
+
+    /**
+     * Hashes of stored states.
+     */
+    private final long[] hashes;
+
+    /**
+     * Values plus one, zero marks empty slot.
+     */
+    private final int[] values;
+
+    /**
+     * Creates table instance.
+     * @param bits base-2 logarithm of the number of slots
+     */
+    public TranspositionTable(int bits) {
+        if (bits < 1 || bits > 30) {
+            throw new IllegalArgumentException("Wrong table size");
+        }
+        hashes = new long[1 << bits];
+        values = new int[1 << bits];
+    }
+
+    /**
+     * Returns stored value of the state.
+     * @param hash hash of the state
+     * @return value, -1 if the state is not stored
+     */
+    public int get(long hash) {
+        int slot = slot(hash);
+        if (values[slot] != 0 && hashes[slot] == hash) {
+            return values[slot] - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Stores value of the state.
+     * @param hash hash of the state
+     * @param value non-negative value
+     */
+    public void put(long hash, int value) {
+        int slot = slot(hash);
+        hashes[slot] = hash;
+        values[slot] = value + 1;
+    }
+
+    /**
+     * Removes all states.
+     */
+    public void clear() {
+        Arrays.fill(values, 0);
+    }
+
+    /**
+     * Returns slot of the state.
+     * @param hash hash of the state
+     * @return slot index
+     */
+    private int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & (values.length - 1);
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.staspavlov.taggame.batch;
+
+import com.staspavlov.taggame.game.GameSnapshot;
+import com.staspavlov.taggame.solver.IdaStarSolver;
+import com.staspavlov.taggame.solver.SolutionCache;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BatchSolverTest {
+
+    @Test
+    public void testTextInput() throws IOException, InterruptedException {
+        StringBuilder input = new StringBuilder("# puzzles\n");
+        for (int i = 0; i < 50; i++) {
+            input.append(i % 10 == 3 ? "3 3 2 1 3 4 5 6 7 8 0\r\n" : "3 3 1 2 3 4 5 6 0 7 8\r\n");
+        }
+        input.append("\n3 3 1 2 x\n2 2 1 2 3\n3,3,1,2,3,4,5,6,7,8,0");
+        String[] lines = run(input.toString(), false, 3);
+        assertEquals(BatchSolver.HEADER, lines[0]);
+        assertEquals(54, lines.length);
+        for (int i = 0; i < 50; i++) {
+            String[] fields = lines[i + 1].split("\t", -1);
+            assertEquals(String.valueOf(i + 2), fields[0]);
+            if (i % 10 == 3) {
+                assertEquals("unsolvable", fields[1]);
+            } else {
+                assertEquals("ok", fields[1]);
+                assertEquals("2", fields[2]);
+                assertEquals("7 8", fields[5]);
+            }
+        }
+        assertTrue(lines[51].startsWith("53\terror\t\t\t\tLine 53: wrong number format"));
+        assertTrue(lines[52].startsWith("54\terror\t\t\t\tLine 54: wrong number of elements"));
+        assertTrue(lines[53].startsWith("55\tok\t0\t0\t"));
+    }
+
+    @Test
+    public void testCache() throws IOException, InterruptedException {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            input.append(i % 10 == 3 ? "3 3 2 1 3 4 5 6 7 8 0\n" : "3 3 1 2 3 4 5 6 0 7 8\n");
+        }
+        SolutionCache cache = new SolutionCache(IdaStarSolver.positionSolver(1000000), 100);
+        String[] lines = run(input.toString(), false, new BatchSolver(1, cache));
+        assertEquals(51, lines.length);
+        for (int i = 0; i < 50; i++) {
+            String[] fields = lines[i + 1].split("\t", -1);
+            assertEquals(i % 10 == 3 ? "unsolvable" : "ok", fields[1]);
+        }
+        // Each position is solved once
+        assertEquals(2, cache.getMissCount());
+        assertEquals(48, cache.getHitCount());
+    }
+
+    @Test
+    public void testBinaryInput() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("puzzles", ".bin");
+        try {
+            Files.write(file, new byte[]{2, 2, 1, 2, 0, 3, 2, 3, 1, 2, 3, 4, 0, 5});
+            try (PuzzleReader reader = new PuzzleReader(file, true)) {
+                assertEquals(new GameSnapshot(2, 2, new int[]{1, 2, 0, 3}), reader.next());
+                assertEquals(new GameSnapshot(2, 3, new int[]{1, 2, 3, 4, 0, 5}), reader.next());
+                assertNull(reader.next());
+                assertEquals(2, reader.getLine());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testReorderBuffer() throws InterruptedException {
+        ReorderBuffer<Integer> buffer = new ReorderBuffer<>(3);
+        long a = buffer.reserve();
+        long b = buffer.reserve();
+        long c = buffer.reserve();
+        buffer.put(c, 3);
+        buffer.put(a, 1);
+        buffer.put(b, 2);
+        assertEquals(1, (int) buffer.take());
+        assertEquals(3, buffer.reserve());
+        assertEquals(2, (int) buffer.take());
+        assertEquals(3, (int) buffer.take());
+    }
+
+    private static String[] run(String input, boolean binary, int threads) throws IOException, InterruptedException {
+        return run(input, binary, new BatchSolver(threads, 1000000));
+    }
+
+    private static String[] run(String input, boolean binary, BatchSolver solver)
+            throws IOException, InterruptedException {
+        Path file = Files.createTempFile("puzzles", ".txt");
+        try {
+            Files.write(file, input.getBytes(StandardCharsets.US_ASCII));
+            StringWriter output = new StringWriter();
+            try (PuzzleReader reader = new PuzzleReader(file, binary)) {
+                solver.run(reader, output);
+            }
+            return output.toString().split("\n");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
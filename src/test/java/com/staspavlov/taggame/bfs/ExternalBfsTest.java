@@ -0,0 +1,143 @@
+package com.staspavlov.taggame.bfs;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ExternalBfsTest {
+
+    @Test
+    public void testRank() {
+        PuzzleSpace space = new PuzzleSpace(2, 3);
+        int[] tiles = new int[6];
+        for (long rank = 0; rank < space.getSize(); rank++) {
+            space.unrank(rank, tiles);
+            assertEquals(rank, space.rank(tiles));
+        }
+        assertEquals(space.rank(new int[]{1, 2, 3, 4, 5, 0}), space.getGoal());
+    }
+
+    @Test
+    public void testDistances() throws IOException {
+        Path directory = Files.createTempDirectory("bfs");
+        try {
+            PuzzleSpace space = new PuzzleSpace(2, 3);
+            ExternalBfs bfs = new ExternalBfs(space, directory, ExternalBfs.MIN_MEMORY);
+            assertTrue(bfs.run());
+            int[] expected = distances(space);
+            assertArrayEquals(layerSizes(expected), bfs.getLayerSizes());
+            try (DistanceTable table = new DistanceTable(space, bfs.getDistanceFile())) {
+                for (long rank = 0; rank < space.getSize(); rank++) {
+                    assertEquals(expected[(int) rank], table.getDistance(rank));
+                }
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        Path directory = Files.createTempDirectory("bfs");
+        try {
+            PuzzleSpace space = new PuzzleSpace(3, 3);
+            // Small budget forces many runs and merge passes
+            ExternalBfs bfs = new ExternalBfs(space, directory, ExternalBfs.MIN_MEMORY);
+            assertFalse(bfs.run(12));
+            assertEquals(13, bfs.getLayerSizes().length);
+            // Files of an interrupted layer
+            Files.write(directory.resolve("run-0.tmp"), new byte[]{1, 2, 3});
+            Files.write(directory.resolve("layer-13.bin"), new byte[]{1, 2, 3});
+            bfs = new ExternalBfs(space, directory, ExternalBfs.MIN_MEMORY * 4);
+            assertTrue(bfs.run());
+            assertFalse(Files.exists(directory.resolve("run-0.tmp")));
+            int[] expected = distances(space);
+            long[] sizes = bfs.getLayerSizes();
+            assertArrayEquals(layerSizes(expected), sizes);
+            assertEquals(32, sizes.length);
+            assertEquals(181440, sum(sizes));
+            try (DistanceTable table = new DistanceTable(space, bfs.getDistanceFile())) {
+                for (long rank = 0; rank < space.getSize(); rank += 97) {
+                    assertEquals(expected[(int) rank], table.getDistance(rank));
+                }
+            }
+            // Finished search is not repeated
+            assertTrue(new ExternalBfs(space, directory, ExternalBfs.MIN_MEMORY).run());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOtherSpace() throws IOException {
+        Path directory = Files.createTempDirectory("bfs");
+        try {
+            new ExternalBfs(new PuzzleSpace(2, 3), directory, ExternalBfs.MIN_MEMORY).run(1);
+            new ExternalBfs(new PuzzleSpace(2, 2), directory, ExternalBfs.MIN_MEMORY).run(1);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    /**
+     * Finds distances by breadth-first search in memory.
+     */
+    private static int[] distances(StateSpace space) {
+        int[] distances = new int[(int) space.getSize()];
+        Arrays.fill(distances, -1);
+        int[] queue = new int[distances.length];
+        long[] neighbors = new long[space.getDegree()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = (int) space.getGoal();
+        distances[(int) space.getGoal()] = 0;
+        while (head < tail) {
+            int state = queue[head++];
+            int n = space.getNeighbors(state, neighbors);
+            for (int i = 0; i < n; i++) {
+                int next = (int) neighbors[i];
+                if (distances[next] < 0) {
+                    distances[next] = distances[state] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return distances;
+    }
+
+    private static long[] layerSizes(int[] distances) {
+        int max = 0;
+        for (int distance : distances) {
+            max = Math.max(max, distance);
+        }
+        long[] sizes = new long[max + 1];
+        for (int distance : distances) {
+            if (distance >= 0) {
+                sizes[distance]++;
+            }
+        }
+        return sizes;
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+}
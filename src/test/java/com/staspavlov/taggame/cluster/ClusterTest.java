@@ -0,0 +1,211 @@
+package com.staspavlov.taggame.cluster;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameImpl;
+import com.staspavlov.taggame.game.GameSnapshot;
+import com.staspavlov.taggame.solver.IdaStarSolver;
+import com.staspavlov.taggame.solver.Solution;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ClusterTest {
+
+    @Test(timeout = 60000)
+    public void testSolve() throws IOException, InterruptedException {
+        Coordinator coordinator = new Coordinator(0);
+        try {
+            List<Thread> threads = startWorkers(coordinator, 3);
+            for (long seed = 1; seed <= 3; seed++) {
+                int[] tiles = scramble(4, 4, 60, seed);
+                Solution solution = coordinator.solve(4, 4, tiles);
+                assertTrue(solution.isFound());
+                assertEquals(new IdaStarSolver(4, 4, tiles).solve().getLength(), solution.getLength());
+                assertSolves(tiles, solution);
+            }
+            assertFalse(coordinator.solve(3, 3, new int[]{2, 1, 3, 4, 5, 6, 7, 8, 0}).isFound());
+            coordinator.close();
+            for (Thread thread : threads) {
+                thread.join(10000);
+                assertFalse(thread.isAlive());
+            }
+        } finally {
+            coordinator.close();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testCrashedWorker() throws IOException, InterruptedException {
+        Coordinator coordinator = new Coordinator(0, 16);
+        try {
+            // Worker takes a unit and disconnects without result
+            final Coordinator searching = coordinator;
+            Socket crashed = new Socket(InetAddress.getLoopbackAddress(), coordinator.getPort());
+            DataOutputStream out = new DataOutputStream(crashed.getOutputStream());
+            DataInputStream in = new DataInputStream(crashed.getInputStream());
+            out.writeByte(Protocol.REQUEST);
+            out.flush();
+            final int[] tiles = scramble(4, 4, 60, 11);
+            final Solution[] result = new Solution[1];
+            Thread search = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        result[0] = searching.solve(4, 4, tiles);
+                    } catch (InterruptedException ex) {
+                        // Test is failed by the missing result
+                    }
+                }
+            });
+            search.start();
+            assertEquals(Protocol.UNIT, in.readByte());
+            crashed.close();
+            List<Thread> threads = startWorkers(coordinator, 2);
+            search.join();
+            assertNotNull(result[0]);
+            assertEquals(new IdaStarSolver(4, 4, tiles).solve().getLength(), result[0].getLength());
+            assertSolves(tiles, result[0]);
+            assertTrue(coordinator.getRestartedCount() >= 1);
+            coordinator.close();
+            for (Thread thread : threads) {
+                thread.join(10000);
+            }
+        } finally {
+            coordinator.close();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testInterruptedSearch() throws IOException, InterruptedException {
+        Coordinator coordinator = new Coordinator(0, 16);
+        try {
+            // Worker takes a unit, all other units wait in its queue
+            Socket worker = new Socket(InetAddress.getLoopbackAddress(), coordinator.getPort());
+            DataOutputStream out = new DataOutputStream(worker.getOutputStream());
+            DataInputStream in = new DataInputStream(worker.getInputStream());
+            out.writeByte(Protocol.REQUEST);
+            out.flush();
+            final int[] tiles = scramble(4, 4, 60, 11);
+            Thread search = startSearch(coordinator, tiles);
+            int iteration = readUnit(in);
+            search.interrupt();
+            search.join();
+            // The searched unit is cancelled, queued ones are dropped
+            assertEquals(Protocol.CANCEL, in.readByte());
+            assertEquals(iteration, in.readInt());
+            out.writeByte(Protocol.REQUEST);
+            out.flush();
+            startSearch(coordinator, tiles);
+            assertTrue(readUnit(in) > iteration);
+            worker.close();
+        } finally {
+            coordinator.close();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testWorkStealing() throws IOException, InterruptedException {
+        Coordinator coordinator = new Coordinator(0, 256);
+        try {
+            List<Thread> threads = startWorkers(coordinator, 4);
+            while (coordinator.getWorkersCount() < 4) {
+                Thread.sleep(10);
+            }
+            int[] tiles = scramble(4, 4, 80, 5);
+            Solution solution = coordinator.solve(4, 4, tiles);
+            assertSolves(tiles, solution);
+            assertTrue(coordinator.getStolenCount() > 0);
+            coordinator.close();
+            for (Thread thread : threads) {
+                thread.join(10000);
+            }
+        } finally {
+            coordinator.close();
+        }
+    }
+
+    private static List<Thread> startWorkers(Coordinator coordinator, int count) {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Thread thread = new Thread(new Worker("localhost", coordinator.getPort()));
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        return threads;
+    }
+
+    /**
+     * Starts search which ends by interruption or with the coordinator.
+     */
+    private static Thread startSearch(final Coordinator coordinator, final int[] tiles) {
+        Thread search = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    coordinator.solve(4, 4, tiles);
+                } catch (InterruptedException | IllegalStateException ex) {
+                    // Search is stopped by the test
+                }
+            }
+        });
+        search.setDaemon(true);
+        search.start();
+        return search;
+    }
+
+    /**
+     * Reads a unit message.
+     * @return iteration of the unit
+     */
+    private static int readUnit(DataInputStream in) throws IOException {
+        assertEquals(Protocol.UNIT, in.readByte());
+        in.readInt();
+        int iteration = in.readInt();
+        in.readInt();
+        in.readInt();
+        in.readInt();
+        Protocol.readArray(in);
+        return iteration;
+    }
+
+    private static void assertSolves(int[] tiles, Solution solution) {
+        Game game = new GameImpl(new GameSnapshot(4, 4, tiles));
+        for (int element : solution.getMoves()) {
+            assertTrue(game.makeMove(element));
+        }
+        assertTrue(game.isCompleted());
+    }
+
+    /**
+     * Scrambles the goal state by a random walk of the empty cell.
+     */
+    static int[] scramble(int rows, int cols, int length, long seed) {
+        int size = rows * cols;
+        int[] tiles = new int[size];
+        for (int i = 0; i < size - 1; i++) {
+            tiles[i] = i + 1;
+        }
+        int blank = size - 1;
+        Random random = new Random(seed);
+        for (int i = 0; i < length; i++) {
+            int[] cells = {blank - cols, blank + cols,
+                blank % cols > 0 ? blank - 1 : -1, blank % cols < cols - 1 ? blank + 1 : -1};
+            int cell = cells[random.nextInt(4)];
+            if (cell >= 0 && cell < size) {
+                tiles[blank] = tiles[cell];
+                tiles[cell] = 0;
+                blank = cell;
+            }
+        }
+        return tiles;
+    }
+
+}
@@ -0,0 +1,207 @@
+package com.staspavlov.taggame.controller;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameImpl;
+import com.staspavlov.taggame.model.ElementSize;
+import com.staspavlov.taggame.model.Model;
+import java.util.Locale;
+import java.util.Random;
+import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Measures moves and re-initialization of the game area.
+ * Not a part of the regular tests, run it headless with
+ * mvn test -P ui-benchmark. Boards, moves and re-initializations are set by
+ * benchmark.sizes, benchmark.moves and benchmark.reinits properties.
+ */
+public class GameControllerBenchmark {
+
+    private static final String GAME_FXML = "/fxml/Game.fxml";
+
+    @BeforeClass
+    public static void startToolkit() throws InterruptedException {
+        Launcher.started = new CountDownLatch(1);
+        Thread launcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Application.launch(Launcher.class);
+            }
+        }, "fx-launcher");
+        launcher.setDaemon(true);
+        launcher.start();
+        Launcher.started.await();
+        Platform.setImplicitExit(false);
+    }
+
+    @Test
+    public void benchmark() throws Exception {
+        final int moves = Integer.getInteger("benchmark.moves", 500);
+        final int reinits = Integer.getInteger("benchmark.reinits", 5);
+        System.out.println("size\tnodes\treinit ms\tresize ms\tmove ms");
+        for (String side : System.getProperty("benchmark.sizes", "4,10,30,100,300").split(",")) {
+            final int n = Integer.parseInt(side.trim());
+            Result result = onFx(new Callable<Result>() {
+                @Override
+                public Result call() throws Exception {
+                    return measure(n, moves(n, moves), reinits);
+                }
+            });
+            assertTrue(result.nodes > n * n);
+            System.out.printf(Locale.ROOT, "%dx%d\t%d\t%.2f\t%.2f\t%.4f%n",
+                    n, n, result.nodes, result.reinitMillis, result.resizeMillis, result.moveMillis);
+        }
+    }
+
+    /**
+     * Measures board of the size, must be called by the FX thread.
+     */
+    private static Result measure(int n, int moves, int reinits) throws Exception {
+        Model model = new Model(newGame(n), new Locale("en"), ElementSize.SMALL);
+        Stage stage = new Stage();
+        Stage wizardStage = new Stage();
+        FXMLLoader loader = new FXMLLoader();
+        loader.setLocation(GameControllerBenchmark.class.getResource(GAME_FXML));
+        loader.setResources(ResourceBundle.getBundle("bundle.Locale", model.getLocale()));
+        GameController controller = new GameController(model, stage, wizardStage);
+        loader.setController(controller);
+        Parent root = loader.load();
+        stage.setScene(new Scene(root));
+        stage.show();
+        try {
+            Result result = new Result();
+            layout(root);
+
+            long started = System.nanoTime();
+            for (int i = 0; i < reinits; i++) {
+                model.setGame(newGame(n));
+                layout(root);
+            }
+            result.reinitMillis = (System.nanoTime() - started) / 1e6 / reinits;
+
+            ElementSize[] sizes = ElementSize.values();
+            started = System.nanoTime();
+            for (int i = 0; i < reinits; i++) {
+                model.setElementSize(sizes[(i + 1) % sizes.length]);
+                layout(root);
+            }
+            result.resizeMillis = (System.nanoTime() - started) / 1e6 / reinits;
+            result.nodes = countNodes(root);
+
+            Random random = new Random(n);
+            started = System.nanoTime();
+            for (int i = 0; i < moves; i++) {
+                controller.queueInput(adjacentElement(model.getGame(), random));
+                controller.processInput();
+                layout(root);
+            }
+            result.moveMillis = (System.nanoTime() - started) / 1e6 / moves;
+            return result;
+        } finally {
+            controller.cleanUp();
+            stage.close();
+        }
+    }
+
+    /**
+     * Applies styles and layout as the next pulse would do.
+     */
+    private static void layout(Parent root) {
+        root.applyCss();
+        root.layout();
+    }
+
+    private static Game newGame(int n) {
+        Game game = new GameImpl(n, n);
+        game.shuffle();
+        return game;
+    }
+
+    /**
+     * Keeps moves of the largest boards within a few minutes.
+     */
+    private static int moves(int n, int moves) {
+        return n >= 100 ? Math.max(1, moves / 10) : moves;
+    }
+
+    /**
+     * Returns random element next to the empty cell.
+     */
+    private static int adjacentElement(Game game, Random random) {
+        while (true) {
+            int row = game.getRowOf(0);
+            int col = game.getColOf(0);
+            switch (random.nextInt(4)) {
+                case 0:
+                    row--;
+                    break;
+                case 1:
+                    row++;
+                    break;
+                case 2:
+                    col--;
+                    break;
+                default:
+                    col++;
+            }
+            if (row >= 0 && row < game.getRows() && col >= 0 && col < game.getCols()) {
+                return game.getElement(row, col);
+            }
+        }
+    }
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        if (node instanceof Parent) {
+            for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+                count += countNodes(child);
+            }
+        }
+        return count;
+    }
+
+    private static <T> T onFx(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<>(callable);
+        Platform.runLater(task);
+        return task.get();
+    }
+
+    private static class Result {
+
+        int nodes;
+
+        double reinitMillis;
+
+        double resizeMillis;
+
+        double moveMillis;
+
+    }
+
+    /**
+     * Starts the toolkit.
+     */
+    public static class Launcher extends Application {
+
+        static CountDownLatch started;
+
+        @Override
+        public void start(Stage stage) {
+            started.countDown();
+        }
+
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.staspavlov.taggame.controller;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class InputQueueTest {
+
+    @Test
+    public void testOfferAndPoll() {
+        InputQueue queue = new InputQueue(3);
+        assertEquals(0, queue.poll());
+        for (int round = 0; round < 10; round++) {
+            assertTrue(queue.offer(1));
+            assertTrue(queue.offer(-2));
+            assertTrue(queue.offer(3));
+            assertTrue(queue.offer(4));
+            // Capacity is rounded up to four
+            assertFalse(queue.offer(5));
+            assertEquals(1, queue.poll());
+            assertEquals(-2, queue.poll());
+            assertEquals(3, queue.poll());
+            assertEquals(4, queue.poll());
+            assertEquals(0, queue.poll());
+        }
+        queue.offer(7);
+        queue.clear();
+        assertEquals(0, queue.poll());
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        final InputQueue queue = new InputQueue(64);
+        final int perThread = 20000;
+        Thread[] producers = new Thread[3];
+        for (int t = 0; t < producers.length; t++) {
+            final int input = t + 1;
+            producers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        while (!queue.offer(input)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            producers[t].start();
+        }
+        int[] counts = new int[producers.length + 1];
+        for (int received = 0; received < perThread * producers.length;) {
+            int input = queue.poll();
+            if (input == 0) {
+                Thread.yield();
+            } else {
+                counts[input]++;
+                received++;
+            }
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        for (int t = 1; t < counts.length; t++) {
+            assertEquals(perThread, counts[t]);
+        }
+        assertEquals(0, queue.poll());
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.staspavlov.taggame.controller;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SlideAnimatorTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testSlide() {
+        SlideAnimator animator = new SlideAnimator(100, 4);
+        animator.reset(9);
+        Recorder recorder = new Recorder(9);
+        // Element 5 moved one cell up
+        animator.moved(5, -1, 0, 0);
+        assertTrue(animator.update(0, recorder));
+        assertEquals(1, recorder.rows[5], DELTA);
+        assertEquals(0, recorder.cols[5], DELTA);
+        assertTrue(animator.update(50, recorder));
+        assertEquals(0.25, recorder.rows[5], DELTA);
+        assertEquals(0.25, animator.getRowOffset(5), DELTA);
+        // Finished slide is reported with zero offset once
+        assertFalse(animator.update(100, recorder));
+        assertEquals(0, recorder.rows[5], DELTA);
+        assertEquals(3, recorder.calls);
+        assertFalse(animator.update(200, recorder));
+        assertEquals(3, recorder.calls);
+        assertEquals(0, animator.getActiveCount());
+    }
+
+    @Test
+    public void testMerge() {
+        SlideAnimator animator = new SlideAnimator(100, 4);
+        animator.reset(16);
+        Recorder recorder = new Recorder(16);
+        animator.moved(2, 0, 1, 0);
+        animator.update(50, recorder);
+        assertEquals(-0.25, recorder.cols[2], DELTA);
+        // Next move continues from the shown offset
+        animator.moved(2, 0, 1, 50);
+        animator.moved(3, 1, 0, 50);
+        assertEquals(2, animator.getActiveCount());
+        animator.update(50, recorder);
+        assertEquals(-1.25, recorder.cols[2], DELTA);
+        assertEquals(-1, recorder.rows[3], DELTA);
+        animator.update(150, recorder);
+        assertEquals(0, animator.getActiveCount());
+        assertEquals(0, recorder.cols[2], DELTA);
+        assertEquals(0, recorder.rows[3], DELTA);
+    }
+
+    @Test
+    public void testSkip() {
+        SlideAnimator animator = new SlideAnimator(100, 2);
+        animator.reset(9);
+        Recorder recorder = new Recorder(9);
+        animator.moved(1, 1, 0, 0);
+        animator.moved(2, 0, 1, 0);
+        // Third move in a pulse is too fast to show
+        animator.moved(3, 0, -1, 0);
+        assertFalse(animator.update(10, recorder));
+        assertEquals(0, recorder.rows[1], DELTA);
+        assertEquals(0, recorder.cols[2], DELTA);
+        assertEquals(2, recorder.calls);
+        // Limit is per pulse
+        animator.moved(4, 1, 0, 20);
+        assertTrue(animator.update(20, recorder));
+        assertEquals(-1, recorder.rows[4], DELTA);
+        animator.reset(9);
+        assertEquals(0, animator.getActiveCount());
+        assertEquals(0, animator.getRowOffset(4), DELTA);
+    }
+
+    private static class Recorder implements SlideAnimator.Target {
+
+        private final double[] rows;
+
+        private final double[] cols;
+
+        private int calls;
+
+        Recorder(int size) {
+            rows = new double[size];
+            cols = new double[size];
+        }
+
+        @Override
+        public void offset(int element, double rows, double cols) {
+            this.rows[element] = rows;
+            this.cols[element] = cols;
+            calls++;
+        }
+
+    }
+
+}
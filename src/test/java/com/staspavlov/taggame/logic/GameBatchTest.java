@@ -0,0 +1,104 @@
+package com.staspavlov.taggame.logic;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameBatch;
+import com.staspavlov.taggame.game.GameImpl;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class GameBatchTest {
+
+    @Test
+    public void testStepsMatchGame() {
+        int count = 20;
+        GameBatch batch = new GameBatch(3, 4, count, 1);
+        Game[] games = new Game[count];
+        Random random = new Random(2);
+        for (int board = 0; board < count; board++) {
+            games[board] = new GameImpl(3, 4);
+            for (int i = 0; i < 50; i++) {
+                int blank = games[board].getRowOf(0) * 4 + games[board].getColOf(0);
+                int cell = blank + (random.nextBoolean() ? 1 : -1) * (random.nextBoolean() ? 1 : 4);
+                if (cell >= 0 && cell < 12 && (cell / 4 == blank / 4 || cell % 4 == blank % 4)) {
+                    games[board].makeMove(games[board].getElement(cell / 4, cell % 4));
+                }
+            }
+            int[] elements = new int[12];
+            for (int cell = 0; cell < 12; cell++) {
+                elements[cell] = games[board].getElement(cell / 4, cell % 4);
+            }
+            batch.setBoard(board, elements);
+            assertEquals(games[board].getManhattanDistance(), batch.getManhattanDistance(board));
+        }
+        int[] actions = new int[count];
+        int[] rewards = new int[count];
+        for (int step = 0; step < 500; step++) {
+            for (int board = 0; board < count; board++) {
+                actions[board] = random.nextInt(4);
+            }
+            int[] before = new int[count];
+            for (int board = 0; board < count; board++) {
+                before[board] = batch.getManhattanDistance(board);
+            }
+            int completed = batch.step(actions, rewards);
+            for (int board = 0; board < count; board++) {
+                Game game = games[board];
+                if (game.isCompleted() || game.getManhattanDistance() == 0) {
+                    assertEquals(0, rewards[board]);
+                    continue;
+                }
+                int row = game.getRowOf(0) + (actions[board] == GameBatch.UP ? -1 : actions[board] == GameBatch.DOWN ? 1 : 0);
+                int col = game.getColOf(0) + (actions[board] == GameBatch.LEFT ? -1 : actions[board] == GameBatch.RIGHT ? 1 : 0);
+                if (row < 0 || row >= 3 || col < 0 || col >= 4) {
+                    assertEquals(GameBatch.ILLEGAL_REWARD, rewards[board]);
+                    continue;
+                }
+                assertTrue(game.makeMove(game.getElement(row, col)));
+                assertEquals(game.getManhattanDistance(), batch.getManhattanDistance(board));
+                assertEquals(before[board] - game.getManhattanDistance(), rewards[board]);
+                assertEquals(game.isCompleted(), batch.isDone(board));
+                if (game.isCompleted()) {
+                    completed--;
+                }
+                for (int cell = 0; cell < 12; cell++) {
+                    assertEquals(game.getElement(cell / 4, cell % 4), batch.getElement(board, cell));
+                }
+            }
+            assertEquals(0, completed);
+        }
+    }
+
+    @Test
+    public void testReset() {
+        GameBatch batch = new GameBatch(4, 4, 100, 7);
+        for (int board = 0; board < 100; board++) {
+            assertTrue(batch.isDone(board));
+        }
+        batch.resetAll(200);
+        int done = 0;
+        for (int board = 0; board < 100; board++) {
+            done += batch.isDone(board) ? 1 : 0;
+            assertEquals(0, batch.getMovesCount(board));
+            // Distance is consistent with elements
+            int distance = 0;
+            for (int cell = 0; cell < 16; cell++) {
+                int element = batch.getElement(board, cell);
+                if (element != 0) {
+                    distance += batch.getShape().distance(element, cell);
+                } else {
+                    assertEquals(cell, batch.getBlank(board));
+                }
+            }
+            assertEquals(distance, batch.getManhattanDistance(board));
+        }
+        assertEquals(done, batch.resetDone(200));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsolvableBoard() {
+        GameBatch batch = new GameBatch(3, 3, 1, 1);
+        batch.setBoard(0, new int[]{2, 1, 3, 4, 5, 6, 7, 8, 0});
+    }
+
+}
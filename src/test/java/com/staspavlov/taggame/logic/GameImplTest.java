@@ -2,9 +2,12 @@ package com.staspavlov.taggame.logic;
 
 import com.staspavlov.taggame.game.GameImpl;
 import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameSnapshot;
+import com.staspavlov.taggame.game.Zobrist;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Random;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -97,6 +100,126 @@ public class GameImplTest {
         assertTrue(checkSequence(g, seq));
     }
 
+    @Test
+    public void testHash() {
+        Game g = new GameImpl(3, 4);
+        long initial = g.getHash();
+        GameSnapshot snapshot = g.getSnapshot();
+        assertEquals(initial, snapshot.getHash());
+        assertEquals(Zobrist.hash(snapshot.toArray()), initial);
+
+        // Hash changes with move
+        assertTrue(g.makeMove(8));
+        assertNotEquals(initial, g.getHash());
+        assertEquals(Zobrist.hash(g.getSnapshot().toArray()), g.getHash());
+        assertNotEquals(snapshot, g.getSnapshot());
+
+        // Hash returns with the state
+        assertTrue(g.makeMove(8));
+        assertEquals(initial, g.getHash());
+        assertEquals(snapshot, g.getSnapshot());
+        assertEquals(snapshot.hashCode(), g.getSnapshot().hashCode());
+
+        // Shuffle rebuilds hash
+        g.shuffle();
+        assertEquals(Zobrist.hash(g.getSnapshot().toArray()), g.getHash());
+    }
+
+    @Test
+    public void testSnapshot() {
+        Game g = new GameImpl(3, 3);
+        GameSnapshot snapshot = new GameSnapshot(3, 3, new int[]{1, 2, 3, 4, 5, 6, 7, 8, 0});
+        assertEquals(snapshot, g.getSnapshot());
+        assertEquals(8, snapshot.getElement(2, 1));
+        assertNotEquals(snapshot, new GameImpl(3, 4).getSnapshot());
+    }
+
+    @Test
+    public void testDistances() {
+        Game g = new GameImpl(4, 5);
+        assertEquals(0, g.getManhattanDistance());
+        assertEquals(19, g.getElementsInPlace());
+        assertEquals(0, g.getLinearConflicts());
+
+        // Elements 14, 15 and 19 are moved out of place
+        assertTrue(g.makeMove(19));
+        assertTrue(g.makeMove(14));
+        assertTrue(g.makeMove(15));
+        assertTrue(g.makeMove(19));
+        assertEquals(4, g.getManhattanDistance());
+        assertEquals(16, g.getElementsInPlace());
+        assertEquals(0, g.getLinearConflicts());
+        assertEquals(4, g.getDistanceBound());
+
+        // Pairs 14, 15 and 18, 19 are swapped in their goal rows
+        for (int element : new int[]{14, 18, 13, 15, 19, 14, 18, 19}) {
+            assertTrue(g.makeMove(element));
+        }
+        assertEquals(2, g.getLinearConflicts());
+        assertEquals(g.getManhattanDistance() + 4, g.getDistanceBound());
+
+        // Random moves keep incremental values exact
+        Random random = new Random(5);
+        for (int i = 0; i < 2000; i++) {
+            int[] pos = g.getPosition(0);
+            int r = Math.min(3, Math.max(0, pos[0] + random.nextInt(3) - 1));
+            int c = Math.min(4, Math.max(0, pos[1] + random.nextInt(3) - 1));
+            g.makeMove(g.getElement(r, c));
+            if (i % 10 == 0) {
+                checkDistances(g);
+            }
+        }
+        g.shuffle();
+        checkDistances(g);
+    }
+
+    private void checkDistances(Game g) {
+        int rows = g.getRows();
+        int cols = g.getCols();
+        int manhattan = 0;
+        int inPlace = 0;
+        int conflicts = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int e = g.getElement(r, c);
+                if (e != 0) {
+                    manhattan += Math.abs((e - 1) / cols - r) + Math.abs((e - 1) % cols - c);
+                    inPlace += e - 1 == r * cols + c ? 1 : 0;
+                }
+            }
+        }
+        for (int line = 0; line < rows + cols; line++) {
+            boolean isRow = line < rows;
+            int length = isRow ? cols : rows;
+            int[] goals = new int[length];
+            int count = 0;
+            for (int i = 0; i < length; i++) {
+                int e = isRow ? g.getElement(line, i) : g.getElement(i, line - rows);
+                if (e != 0 && isRow && (e - 1) / cols == line) {
+                    goals[count++] = (e - 1) % cols;
+                } else if (e != 0 && !isRow && (e - 1) % cols == line - rows) {
+                    goals[count++] = (e - 1) / cols;
+                }
+            }
+            // Longest increasing subsequence, quadratic
+            int[] best = new int[count];
+            int longest = 0;
+            for (int i = 0; i < count; i++) {
+                best[i] = 1;
+                for (int j = 0; j < i; j++) {
+                    if (goals[j] < goals[i]) {
+                        best[i] = Math.max(best[i], best[j] + 1);
+                    }
+                }
+                longest = Math.max(longest, best[i]);
+            }
+            conflicts += count - longest;
+        }
+        assertEquals(manhattan, g.getManhattanDistance());
+        assertEquals(inPlace, g.getElementsInPlace());
+        assertEquals(conflicts, g.getLinearConflicts());
+    }
+
     private boolean checkSequence(Game game, int[][] seq) {
         for (int r = 0; r < seq.length; r++) {
             for (int c = 0; c < seq[r].length; c++) {
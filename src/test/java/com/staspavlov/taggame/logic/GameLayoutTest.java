@@ -0,0 +1,109 @@
+package com.staspavlov.taggame.logic;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameImpl;
+import com.staspavlov.taggame.game.GameLayout;
+import com.staspavlov.taggame.game.GameSnapshot;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class GameLayoutTest {
+
+    @Test
+    public void testLayouts() {
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6, 7, 8, 0}, GameLayout.classic(3, 3).toArray());
+        assertArrayEquals(new int[]{0, 0, 1, 2, 3, 4, 5, 6, 7}, GameLayout.blankFirst(3, 3, 2).toArray());
+        assertArrayEquals(new int[]{1, 2, 3, 6, 5, 4, 7, 0, 0}, GameLayout.snake(3, 3, 2).toArray());
+        assertSame(GameLayout.classic(3, 4), GameLayout.ascending(3, 4, 1));
+        assertSame(GameLayout.snake(3, 3, 2), GameLayout.snake(3, 3, 2));
+        int[] goal = {2, 1, 3, 4, 5, 6, 7, 8, 0};
+        assertNotSame(GameLayout.of(3, 3, goal), GameLayout.of(3, 3, goal));
+        assertTrue(GameLayout.classic(3, 4).isClassic());
+        assertTrue(GameLayout.of(3, 3, new int[]{1, 2, 3, 4, 5, 6, 7, 8, 0}).isClassic());
+        assertFalse(GameLayout.ascending(3, 4, 2).isClassic());
+        assertFalse(GameLayout.blankFirst(3, 4, 1).isClassic());
+        GameLayout layout = GameLayout.snake(3, 3, 2);
+        assertEquals(2, layout.getBlanks());
+        assertEquals(7, layout.getElements());
+        assertEquals(5, layout.goalCell(4));
+        assertEquals(1, layout.goalRow(4));
+        assertEquals(2, layout.goalCol(4));
+        assertEquals(3, layout.distance(4, 6));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoBlank() {
+        GameLayout.of(2, 2, new int[]{1, 2, 3, 4});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRepeatedElement() {
+        GameLayout.of(2, 2, new int[]{1, 1, 0, 0});
+    }
+
+    @Test
+    public void testClassicGame() {
+        Game g = new GameImpl(GameLayout.classic(3, 4));
+        assertEquals(new GameImpl(3, 4).getSnapshot(), g.getSnapshot());
+        assertEquals(11, g.getElementsInPlace());
+        assertTrue(g.isClassicGoal());
+    }
+
+    @Test
+    public void testBlankFirstGame() {
+        Game g = new GameImpl(GameLayout.blankFirst(3, 3, 1));
+        assertEquals(0, g.getElement(0, 0));
+        assertFalse(g.isClassicGoal());
+        assertArrayEquals(new int[]{2, 2}, g.getPosition(8));
+        assertTrue(g.makeMove(1));
+        assertEquals(1, g.getManhattanDistance());
+        assertEquals(7, g.getElementsInPlace());
+        assertTrue(g.makeMove(1));
+        assertTrue(g.isCompleted());
+    }
+
+    @Test
+    public void testMultipleBlanks() {
+        GameImpl g = new GameImpl(GameLayout.snake(3, 3, 2));
+        assertTrue(g.makeMove(7));
+        assertTrue(g.makeMove(4));
+        assertArrayEquals(new int[]{2, 2}, g.getPosition(4));
+        assertTrue(g.makeMove(4));
+        assertEquals(6, g.getElementsInPlace());
+        assertFalse(g.makeMove(1));
+        assertFalse(g.makeMove(8));
+        // Element 7 is between two empty cells, the empty cell of the last move goes first
+        assertTrue(g.makeMove(7));
+        assertEquals(7, g.getElement(2, 2));
+        assertArrayEquals(new int[]{2, 1}, g.getPosition(0));
+        assertFalse(g.makeMove(7, 0));
+        assertTrue(g.makeMove(7, 2));
+        assertFalse(g.makeMove(7, 1));
+        assertTrue(g.makeMove(7, 2));
+        assertTrue(g.isCompleted());
+        assertEquals(6, g.getMovesCount());
+    }
+
+    @Test
+    public void testSameDistancesAsRebuilt() {
+        Random random = new Random(3);
+        GameLayout layout = GameLayout.snake(4, 5, 3);
+        GameImpl g = new GameImpl(layout);
+        g.shuffle();
+        for (int i = 0; i < 2000; i++) {
+            g.makeMove(1 + random.nextInt(layout.getElements()));
+            Game rebuilt = new GameImpl(layout, g.getSnapshot());
+            assertEquals(rebuilt.getManhattanDistance(), g.getManhattanDistance());
+            assertEquals(rebuilt.getElementsInPlace(), g.getElementsInPlace());
+            assertEquals(rebuilt.getLinearConflicts(), g.getLinearConflicts());
+            assertEquals(rebuilt.getHash(), g.getHash());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongBlanksInSnapshot() {
+        new GameImpl(GameLayout.snake(3, 3, 2), new GameImpl(3, 3).getSnapshot());
+    }
+
+}
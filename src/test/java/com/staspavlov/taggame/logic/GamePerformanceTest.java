@@ -0,0 +1,180 @@
+package com.staspavlov.taggame.logic;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameBatch;
+import com.staspavlov.taggame.game.GameImpl;
+import com.staspavlov.taggame.game.GameLayout;
+import java.lang.management.ManagementFactory;
+import org.junit.Assume;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Guards allocation-free and constant time moves of the engine.
+ */
+public class GamePerformanceTest {
+
+    private static final int WARMUP_MOVES = 200000;
+
+    private static final int MEASURED_MOVES = 100000;
+
+    /**
+     * State of the move generator.
+     */
+    private long seed = 42;
+
+    @Test
+    public void testNoAllocation() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        Game[] games = {new GameImpl(50, 50), new GameImpl(GameLayout.snake(50, 50, 3))};
+        for (Game game : games) {
+            game.shuffle();
+            walk(game, WARMUP_MOVES);
+            // Cost of the measurement itself
+            long overhead = bean.getThreadAllocatedBytes(thread);
+            overhead = bean.getThreadAllocatedBytes(thread) - overhead;
+
+            long before = bean.getThreadAllocatedBytes(thread);
+            int checksum = walk(game, MEASURED_MOVES);
+            long allocated = bean.getThreadAllocatedBytes(thread) - before - overhead;
+            assertTrue(checksum != 0);
+            assertEquals("Bytes allocated by " + MEASURED_MOVES + " moves", 0, allocated);
+        }
+    }
+
+    @Test
+    public void testBatchStepNoAllocation() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        GameBatch batch = new GameBatch(4, 4, 1000, 1);
+        int[] actions = new int[1000];
+        int[] rewards = new int[1000];
+        batch.resetAll(100);
+        stepBatch(batch, actions, rewards, 1000);
+        long overhead = bean.getThreadAllocatedBytes(thread);
+        overhead = bean.getThreadAllocatedBytes(thread) - overhead;
+
+        long before = bean.getThreadAllocatedBytes(thread);
+        stepBatch(batch, actions, rewards, 100);
+        long allocated = bean.getThreadAllocatedBytes(thread) - before - overhead;
+        assertEquals("Bytes allocated by batch steps", 0, allocated);
+    }
+
+    /**
+     * Makes random steps and resets completed boards.
+     */
+    private void stepBatch(GameBatch batch, int[] actions, int[] rewards, int steps) {
+        for (int step = 0; step < steps; step++) {
+            for (int i = 0; i < actions.length; i++) {
+                seed ^= seed << 13;
+                seed ^= seed >>> 7;
+                seed ^= seed << 17;
+                actions[i] = (int) (seed >>> 62);
+            }
+            batch.step(actions, rewards);
+            batch.resetDone(100);
+        }
+    }
+
+    @Test
+    public void testMoveTimeDoesNotGrowWithSize() {
+        long small = nanosPerMove(10);
+        long large = nanosPerMove(1000);
+        // Linear moves would be ten thousand times slower, caches are allowed
+        assertTrue("Move time " + small + " ns on 10x10, " + large + " ns on 1000x1000",
+                large < small * 8 + 100);
+    }
+
+    @Test
+    public void testVariantMoveTime() {
+        Game[] games = {new GameImpl(100, 100), new GameImpl(GameLayout.blankFirst(100, 100, 4))};
+        long[] best = {Long.MAX_VALUE, Long.MAX_VALUE};
+        for (Game game : games) {
+            game.shuffle();
+            walk(game, WARMUP_MOVES);
+        }
+        // Alternate runs, so both games are measured with the same compiled code
+        for (int run = 0; run < 10; run++) {
+            for (int i = 0; i < games.length; i++) {
+                long started = System.nanoTime();
+                walk(games[i], MEASURED_MOVES);
+                best[i] = Math.min(best[i], (System.nanoTime() - started) / MEASURED_MOVES);
+            }
+        }
+        long classic = best[0];
+        long variant = best[1];
+        // Same tables and at most four more lookups for a move next to another empty cell
+        assertTrue("Move time " + classic + " ns classic, " + variant + " ns with four empty cells",
+                variant * 4 <= classic * 5 + 20);
+    }
+
+    /**
+     * Returns the best time of a move over several runs.
+     */
+    private long nanosPerMove(int side) {
+        return nanosPerMove(new GameImpl(side, side));
+    }
+
+    /**
+     * Returns the best time of a move of the game over several runs.
+     */
+    private long nanosPerMove(Game game) {
+        game.shuffle();
+        walk(game, WARMUP_MOVES);
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long started = System.nanoTime();
+            walk(game, MEASURED_MOVES);
+            best = Math.min(best, (System.nanoTime() - started) / MEASURED_MOVES);
+        }
+        return best;
+    }
+
+    /**
+     * Makes random moves of elements next to the empty cell and queries
+     * positions and state of the game.
+     * @return checksum of the queries
+     */
+    private int walk(Game game, int moves) {
+        int checksum = 0;
+        for (int i = 0; i < moves; i++) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 7;
+            seed ^= seed << 17;
+            int row = game.getRowOf(0);
+            int col = game.getColOf(0);
+            switch ((int) (seed >>> 62)) {
+                case 0:
+                    row--;
+                    break;
+                case 1:
+                    row++;
+                    break;
+                case 2:
+                    col--;
+                    break;
+                default:
+                    col++;
+            }
+            if (row < 0 || row >= game.getRows() || col < 0 || col >= game.getCols()) {
+                continue;
+            }
+            int element = game.getElement(row, col);
+            if (game.makeMove(element) && !game.isCompleted()) {
+                checksum += game.getRowOf(element) + game.getColOf(element) + game.getManhattanDistance()
+                        + game.getElementsInPlace();
+            }
+        }
+        return checksum;
+    }
+
+}
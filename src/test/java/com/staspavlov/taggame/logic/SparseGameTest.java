@@ -0,0 +1,109 @@
+package com.staspavlov.taggame.logic;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameImpl;
+import com.staspavlov.taggame.game.GameSnapshot;
+import com.staspavlov.taggame.game.SparseGame;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SparseGameTest {
+
+    @Test
+    public void testInit() {
+        Game g = new SparseGame(3, 4);
+        assertEquals(3, g.getRows());
+        assertEquals(4, g.getCols());
+        assertEquals(12, g.getSize());
+        assertArrayEquals(new int[]{1, 2}, g.getPosition(7));
+        assertEquals(0, g.getElement(2, 3));
+        assertEquals(11, g.getElementsInPlace());
+        assertTrue(g.isClassicGoal());
+        assertFalse(g.isCompleted());
+        assertEquals(new GameImpl(3, 4).getSnapshot(), g.getSnapshot());
+        assertEquals(new GameImpl(3, 4).getHash(), g.getHash());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInitWrongRows() {
+        new SparseGame(2, 3);
+    }
+
+    @Test
+    public void testSameAsGameImpl() {
+        Random random = new Random(5);
+        for (int round = 0; round < 20; round++) {
+            GameImpl dense = new GameImpl(4, 5);
+            dense.shuffle();
+            SparseGame sparse = new SparseGame(dense.getSnapshot());
+            assertSameState(dense, sparse);
+            for (int i = 0; i < 500 && !dense.isCompleted(); i++) {
+                int element = 1 + random.nextInt(dense.getSize() - 1);
+                assertEquals(dense.makeMove(element), sparse.makeMove(element));
+                assertSameState(dense, sparse);
+            }
+        }
+    }
+
+    @Test
+    public void testCompleted() {
+        SparseGame g = new SparseGame(3, 3);
+        g.makeMove(8);
+        assertEquals(7, g.getElementsInPlace());
+        assertFalse(g.makeMove(1));
+        assertTrue(g.makeMove(8));
+        assertTrue(g.isCompleted());
+        assertFalse(g.makeMove(8));
+        assertEquals(2, g.getMovesCount());
+    }
+
+    @Test(timeout = 10000)
+    public void testHugeGame() {
+        SparseGame g = new SparseGame(5000, 5000);
+        Random random = new Random(8);
+        int[] moves = new int[10000];
+        int count = 0;
+        while (count < moves.length) {
+            int row = g.getRowOf(0);
+            int col = g.getColOf(0);
+            if (random.nextBoolean()) {
+                row += random.nextBoolean() ? 1 : -1;
+            } else {
+                col += random.nextBoolean() ? 1 : -1;
+            }
+            if (row >= 0 && row < g.getRows() && col >= 0 && col < g.getCols()) {
+                moves[count] = g.getElement(row, col);
+                assertTrue(g.makeMove(moves[count++]));
+            }
+        }
+        assertFalse(g.isCompleted());
+        assertTrue(g.getDistanceBound() >= g.getManhattanDistance());
+        // Moves undone in the reverse order complete the game
+        for (int i = count - 1; i >= 0; i--) {
+            assertTrue(g.makeMove(moves[i]));
+        }
+        assertTrue(g.isCompleted());
+        assertEquals(20000, g.getMovesCount());
+        g = new SparseGame(5000, 5000);
+        g.scramble(20000, new Random(7));
+        assertTrue(g.getElementsInPlace() >= g.getSize() - 1 - 20000);
+        assertTrue(g.getManhattanDistance() > 0);
+        assertEquals(0, g.getMovesCount());
+    }
+
+    private static void assertSameState(Game expected, Game actual) {
+        assertEquals(expected.getSnapshot(), actual.getSnapshot());
+        assertEquals(expected.getHash(), actual.getHash());
+        assertEquals(expected.isCompleted(), actual.isCompleted());
+        assertEquals(expected.getMovesCount(), actual.getMovesCount());
+        assertEquals(expected.getManhattanDistance(), actual.getManhattanDistance());
+        assertEquals(expected.getElementsInPlace(), actual.getElementsInPlace());
+        assertEquals(expected.getLinearConflicts(), actual.getLinearConflicts());
+        for (int element = 0; element < expected.getSize(); element++) {
+            assertEquals(expected.getRowOf(element), actual.getRowOf(element));
+            assertEquals(expected.getColOf(element), actual.getColOf(element));
+        }
+    }
+
+}
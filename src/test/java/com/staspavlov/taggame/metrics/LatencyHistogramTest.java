@@ -0,0 +1,68 @@
+package com.staspavlov.taggame.metrics;
+
+import java.io.IOException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram(1000000000L);
+        assertEquals(0, h.getValueAtPercentile(50));
+        for (long v = 1; v <= 10000; v++) {
+            h.record(v * 1000);
+        }
+        assertEquals(10000, h.getTotalCount());
+        assertEquals(1000, h.getMin());
+        assertEquals(10000000, h.getMax());
+        assertEquals(5000500.0, h.getMean(), 0.001);
+        // Relative error of buckets is below 3%
+        for (double p : new double[]{1, 10, 50, 90, 99, 99.9}) {
+            double expected = p * 100000;
+            assertEquals(expected, h.getValueAtPercentile(p), expected * 0.03);
+        }
+        assertEquals(10000000, h.getValueAtPercentile(100));
+        assertEquals(1000, h.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void testSmallAndClampedValues() {
+        LatencyHistogram h = new LatencyHistogram(1000);
+        for (int v = 0; v < 64; v++) {
+            h.record(v);
+        }
+        // Small values are exact
+        assertEquals(31, h.getValueAtPercentile(50));
+        h.record(-5);
+        h.record(5000);
+        assertEquals(0, h.getMin());
+        assertEquals(1000, h.getMax());
+        h.reset();
+        assertEquals(0, h.getTotalCount());
+        assertEquals(0, h.getMax());
+    }
+
+    @Test
+    public void testFrameStats() throws IOException {
+        FrameStats stats = new FrameStats(4);
+        long ms = 1000000L;
+        stats.pulseStarted(0 + 1);
+        stats.pulseFinished(2 * ms);
+        stats.inputQueued(5 * ms);
+        for (int i = 1; i < 80; i++) {
+            stats.pulseStarted(i * 16 * ms);
+            stats.pulseFinished(i * 16 * ms + ms);
+        }
+        assertEquals(79, stats.getFrameTimes().getTotalCount());
+        assertEquals(80, stats.getPulseTimes().getTotalCount());
+        // Input is applied by the second pulse and painted before the third one
+        assertEquals(1, stats.getInputLatencies().getTotalCount());
+        assertEquals(27 * ms, stats.getInputLatencies().getMax());
+        assertEquals(62.5, stats.getFramesPerSecond(), 1.0);
+        StringBuilder out = new StringBuilder();
+        stats.writeTo(out);
+        assertTrue(out.toString().contains("# Input to paint latency, ms\n# count=1 min=27.000"));
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.staspavlov.taggame.shared;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameImpl;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SharedBoardTest {
+
+    @Test
+    public void testPublish() throws IOException {
+        Path file = Files.createTempFile("board", ".bin");
+        try (BoardPublisher publisher = new BoardPublisher(file, 9);
+                BoardReader reader = new BoardReader(file)) {
+            assertFalse(reader.poll());
+            assertNull(reader.toGameSnapshot());
+            Game game = new GameImpl(3, 3);
+            game.shuffle();
+            publisher.publish(game);
+            assertTrue(reader.poll());
+            assertFalse(reader.poll());
+            assertEquals(game.getSnapshot(), reader.toGameSnapshot());
+            Random random = new Random(1);
+            while (!move(game, publisher, random)) {
+                // Retry moves out of the game area
+            }
+            assertTrue(reader.poll());
+            assertEquals(game.getSnapshot(), reader.toGameSnapshot());
+            assertEquals(game.getMovesCount(), reader.getMovesCount());
+            assertEquals(publisher.getSequence(), reader.getSequence());
+            // File grows for a bigger game
+            game = new GameImpl(5, 6);
+            game.shuffle();
+            publisher.publish(game);
+            assertTrue(reader.poll());
+            assertEquals(game.getSnapshot(), reader.toGameSnapshot());
+            assertEquals(5, reader.getRows());
+            assertEquals(6, reader.getCols());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testWrongFile() throws IOException {
+        Path file = Files.createTempFile("board", ".bin");
+        try {
+            Files.write(file, new byte[100]);
+            new BoardReader(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testConsistentSnapshots() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("board", ".bin");
+        try (BoardPublisher publisher = new BoardPublisher(file, 16)) {
+            final Game game = new GameImpl(4, 4);
+            game.shuffle();
+            publisher.publish(game);
+            final AtomicBoolean stopped = new AtomicBoolean();
+            final AtomicReference<String> error = new AtomicReference<>();
+            final Path shared = file;
+            final long[] snapshots = new long[1];
+            Thread spectator = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try (BoardReader reader = new BoardReader(shared)) {
+                        int[] tiles = new int[16];
+                        while (!stopped.get()) {
+                            if (reader.poll()) {
+                                snapshots[0]++;
+                                reader.copyTiles(tiles);
+                                boolean[] seen = new boolean[16];
+                                for (int element : tiles) {
+                                    if (seen[element]) {
+                                        error.set("Torn snapshot " + reader.getSequence());
+                                        return;
+                                    }
+                                    seen[element] = true;
+                                }
+                            }
+                        }
+                    } catch (IOException ex) {
+                        error.set(ex.toString());
+                    }
+                }
+            });
+            spectator.start();
+            Random random = new Random(2);
+            for (int i = 0; i < 500000; i++) {
+                move(game, publisher, random);
+            }
+            stopped.set(true);
+            spectator.join();
+            assertNull(error.get());
+            assertTrue(snapshots[0] > 0);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Moves random element next to the empty cell and publishes the move.
+     * @return true if moved
+     */
+    private static boolean move(Game game, BoardPublisher publisher, Random random) {
+        int row = game.getRowOf(0);
+        int col = game.getColOf(0);
+        switch (random.nextInt(4)) {
+            case 0: row--; break;
+            case 1: row++; break;
+            case 2: col--; break;
+            default: col++; break;
+        }
+        if (row < 0 || row >= game.getRows() || col < 0 || col >= game.getCols()) {
+            return false;
+        }
+        int element = game.getElement(row, col);
+        if (game.makeMove(element)) {
+            int cols = game.getCols();
+            publisher.move(element, game.getRowOf(element) * cols + game.getColOf(element),
+                    game.getRowOf(0) * cols + game.getColOf(0), game.getMovesCount(), game.isCompleted());
+            return true;
+        }
+        return false;
+    }
+
+}
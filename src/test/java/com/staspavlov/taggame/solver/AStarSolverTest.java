@@ -0,0 +1,93 @@
+package com.staspavlov.taggame.solver;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameImpl;
+import com.staspavlov.taggame.game.GameLayout;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class AStarSolverTest {
+
+    @Test
+    public void testSameLengthAsIdaStar() {
+        for (long seed = 1; seed <= 10; seed++) {
+            Game game = new GameImpl(3, 4);
+            ConstructiveSolverTest.scramble(game, 60, seed);
+            int expected = new IdaStarSolver(game).solve().getLength();
+            for (boolean bidirectional : new boolean[]{false, true}) {
+                AStarSolver solver = new AStarSolver(game);
+                Solution solution = solver.solve(bidirectional, AStarSolver.DEFAULT_MAX_STATES);
+                assertFalse(solver.isFallback());
+                assertTrue(solution.isOptimal());
+                assertEquals(expected, solution.getLength());
+                assertCompletes(game, solution);
+            }
+        }
+    }
+
+    @Test
+    public void testFewerNodesThanIdaStar() {
+        long idaStarNodes = 0;
+        long aStarNodes = 0;
+        for (long seed = 1; seed <= 10; seed++) {
+            Game game = new GameImpl(3, 4);
+            ConstructiveSolverTest.scramble(game, 80, seed);
+            IdaStarSolver idaStar = new IdaStarSolver(game);
+            idaStar.solve();
+            AStarSolver aStar = new AStarSolver(game);
+            aStar.solve();
+            idaStarNodes += idaStar.getNodes();
+            aStarNodes += aStar.getNodes();
+        }
+        // Each state is expanded once instead of once per path and iteration
+        assertTrue("A* " + aStarNodes + " nodes, IDA* " + idaStarNodes, aStarNodes * 2 < idaStarNodes);
+    }
+
+    @Test
+    public void testSolved() {
+        Game game = new GameImpl(3, 3);
+        assertEquals(0, new AStarSolver(game).solve().getLength());
+        assertEquals(0, new AStarSolver(game).solve(false, 10).getLength());
+    }
+
+    @Test
+    public void testFallback() {
+        Game game = new GameImpl(3, 3);
+        ConstructiveSolverTest.scramble(game, 40, 3);
+        int expected = new IdaStarSolver(game).solve().getLength();
+        for (boolean bidirectional : new boolean[]{false, true}) {
+            AStarSolver solver = new AStarSolver(game);
+            Solution solution = solver.solve(bidirectional, 50);
+            assertTrue(solver.isFallback());
+            assertTrue(solution.isOptimal());
+            assertEquals(expected, solution.getLength());
+            assertCompletes(game, solution);
+        }
+    }
+
+    @Test
+    public void testUnsolvable() {
+        Solution solution = new AStarSolver(2, 2, new int[]{2, 1, 3, 0}).solve();
+        assertFalse(solution.isFound());
+        assertEquals(Integer.MAX_VALUE, solution.getLowerBound());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooBig() {
+        new AStarSolver(new GameImpl(4, 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOtherGoal() {
+        new AStarSolver(new GameImpl(GameLayout.snake(3, 3, 2)));
+    }
+
+    private static void assertCompletes(Game game, Solution solution) {
+        Game copy = new GameImpl(game.getSnapshot());
+        for (int element : solution.getMoves()) {
+            assertTrue(copy.makeMove(element));
+        }
+        assertTrue(copy.isCompleted());
+    }
+
+}
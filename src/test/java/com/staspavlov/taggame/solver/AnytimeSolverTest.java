@@ -0,0 +1,94 @@
+package com.staspavlov.taggame.solver;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameImpl;
+import com.staspavlov.taggame.game.GameLayout;
+import com.staspavlov.taggame.game.GameSnapshot;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class AnytimeSolverTest {
+
+    @Test
+    public void testImproves() {
+        int improved = 0;
+        for (int size = 6; size <= 10; size += 2) {
+            Game game = ConstructiveSolverTest.scramble(new GameImpl(size, size), 100000, size);
+            GameSnapshot snapshot = game.getSnapshot();
+            int constructive = ConstructiveSolverTest.solve(game).size();
+            final List<Integer> lengths = new ArrayList<>();
+            long begin = System.nanoTime();
+            Solution solution = new AnytimeSolver(game).solve(200, TimeUnit.MILLISECONDS, new ProgressListener() {
+                @Override
+                public void progress(int length, int lowerBound) {
+                    lengths.add(length);
+                }
+            });
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+            assertTrue("Took " + elapsed + " ms", elapsed < 1000);
+            assertTrue(solution.isFound());
+            assertEquals(game.getDistanceBound(), solution.getLowerBound());
+            assertTrue(solution.getLength() >= solution.getLowerBound());
+            assertTrue(solution.getLength() <= constructive);
+            assertEquals(constructive, (int) lengths.get(0));
+            assertEquals(solution.getLength(), (int) lengths.get(lengths.size() - 1));
+            for (int i = 1; i < lengths.size(); i++) {
+                assertTrue(lengths.get(i) < lengths.get(i - 1));
+            }
+            assertTrue(apply(new GameImpl(snapshot), solution.getMoves()));
+            if (solution.getLength() < constructive) {
+                improved++;
+            }
+        }
+        assertTrue("No size improved on the constructive solution", improved > 0);
+    }
+
+    @Test
+    public void testOptimal() {
+        Game game = ConstructiveSolverTest.scramble(new GameImpl(4, 4), 30, 3);
+        Solution optimal = new IdaStarSolver(game).solve();
+        Solution solution = new AnytimeSolver(game).solve(5, TimeUnit.SECONDS, null);
+        assertTrue(solution.getLength() >= optimal.getLength());
+        assertTrue(apply(new GameImpl(game.getSnapshot()), solution.getMoves()));
+    }
+
+    @Test(timeout = 10000)
+    public void testStart() throws InterruptedException, ExecutionException {
+        Game game = ConstructiveSolverTest.scramble(new GameImpl(8, 8), 100000, 4);
+        Future<Solution> future = new AnytimeSolver(game).start(100, TimeUnit.MILLISECONDS, null);
+        Solution solution = future.get();
+        assertTrue(apply(new GameImpl(game.getSnapshot()), solution.getMoves()));
+        // Cancelled search still returns the constructive solution
+        AnytimeSolver solver = new AnytimeSolver(game);
+        solver.cancel();
+        solution = solver.solve(1, TimeUnit.MINUTES, null);
+        assertEquals(ConstructiveSolverTest.solve(game).size(), solution.getLength());
+    }
+
+    @Test
+    public void testUnsolvable() {
+        Game game = new GameImpl(new GameSnapshot(3, 3, new int[] {2, 1, 3, 4, 5, 6, 7, 8, 0}));
+        Solution solution = new AnytimeSolver(game).solve(10, TimeUnit.MILLISECONDS, null);
+        assertFalse(solution.isFound());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOtherGoal() {
+        new AnytimeSolver(new GameImpl(GameLayout.blankFirst(3, 3, 1)), 1);
+    }
+
+    private static boolean apply(Game game, int[] moves) {
+        for (int element : moves) {
+            if (!game.makeMove(element)) {
+                return false;
+            }
+        }
+        return game.isCompleted();
+    }
+
+}
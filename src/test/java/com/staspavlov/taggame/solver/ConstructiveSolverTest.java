@@ -0,0 +1,140 @@
+package com.staspavlov.taggame.solver;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameImpl;
+import com.staspavlov.taggame.game.GameLayout;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ConstructiveSolverTest {
+
+    @Test
+    public void testSolveSmall() {
+        for (int seed = 0; seed < 50; seed++) {
+            Game g = scramble(new GameImpl(3, 3), 200, seed);
+            assertTrue(apply(g, solve(g)));
+        }
+    }
+
+    @Test
+    public void testSolveShapes() {
+        int[][] shapes = {{3, 7}, {7, 3}, {4, 4}, {5, 9}, {9, 5}, {12, 11}};
+        for (int[] shape : shapes) {
+            for (int seed = 0; seed < 5; seed++) {
+                Game g = scramble(new GameImpl(shape[0], shape[1]), 3000, seed);
+                assertTrue(apply(g, solve(g)));
+            }
+        }
+    }
+
+    @Test
+    public void testSolveCompleted() {
+        Game g = new GameImpl(4, 4);
+        assertTrue(solve(g).isEmpty());
+    }
+
+    @Test
+    public void testStop() {
+        Game g = scramble(new GameImpl(6, 6), 1000, 1);
+        final List<Integer> moves = new ArrayList<>();
+        boolean result = new ConstructiveSolver(g).solve(new MoveConsumer() {
+            @Override
+            public boolean accept(int element) {
+                moves.add(element);
+                return moves.size() < 3;
+            }
+        });
+        assertFalse(result);
+        assertEquals(3, moves.size());
+    }
+
+    @Test
+    public void testReducer() {
+        final List<Integer> moves = new ArrayList<>();
+        MoveReducer reducer = new MoveReducer(new MoveConsumer() {
+            @Override
+            public boolean accept(int element) {
+                moves.add(element);
+                return true;
+            }
+        }, 2);
+        for (int element : new int[]{1, 2, 3, 3, 2, 4, 5, 6, 6, 7}) {
+            assertTrue(reducer.accept(element));
+        }
+        assertTrue(reducer.flush());
+        assertEquals(Arrays.asList(1, 4, 5, 7), moves);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsolvable() {
+        Game g = new GameImpl(3, 3);
+        // Swapping two elements makes the game unsolvable
+        int[] tiles = Boards.toArray(g);
+        assertTrue(Boards.isSolvable(tiles, 3));
+        tiles[0] = 2;
+        tiles[1] = 1;
+        assertFalse(Boards.isSolvable(tiles, 3));
+        g.shuffle();
+        while (Boards.isSolvable(Boards.toArray(g), 3)) {
+            g = new GameImpl(3, 3);
+            g.shuffle();
+        }
+        solve(g);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOtherGoal() {
+        new ConstructiveSolver(new GameImpl(GameLayout.snake(3, 3, 2)));
+    }
+
+    static Game scramble(Game game, int moves, long seed) {
+        Random random = new Random(seed);
+        int rows = game.getRows();
+        int cols = game.getCols();
+        int last = 0;
+        for (int i = 0; i < moves; i++) {
+            int[] pos = game.getPosition(0);
+            int r = pos[0];
+            int c = pos[1];
+            switch (random.nextInt(4)) {
+                case 0: r--; break;
+                case 1: r++; break;
+                case 2: c--; break;
+                default: c++; break;
+            }
+            // Skip moves back, completed game can't be moved any more
+            if (r >= 0 && r < rows && c >= 0 && c < cols && game.getElement(r, c) != last) {
+                last = game.getElement(r, c);
+                game.makeMove(last);
+            }
+        }
+        assertFalse(game.isCompleted());
+        return game;
+    }
+
+    static List<Integer> solve(Game game) {
+        final List<Integer> moves = new ArrayList<>();
+        assertTrue(new ConstructiveSolver(game).solve(new MoveConsumer() {
+            @Override
+            public boolean accept(int element) {
+                moves.add(element);
+                return true;
+            }
+        }));
+        return moves;
+    }
+
+    static boolean apply(Game game, List<Integer> moves) {
+        for (int element : moves) {
+            if (!game.makeMove(element)) {
+                return false;
+            }
+        }
+        return game.isCompleted();
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.staspavlov.taggame.solver;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameImpl;
+import com.staspavlov.taggame.game.GameLayout;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class GameAnalyzerTest {
+
+    @Test
+    public void testDistances() {
+        for (int threads = 1; threads <= 3; threads++) {
+            Game game = new GameImpl(3, 3);
+            ConstructiveSolverTest.scramble(game, 30, threads);
+            int[] start = Boards.toArray(game);
+            int[] moves = play(game, 40, threads);
+            GameAnalysis analysis = new GameAnalyzer(3, 3, start, Long.MAX_VALUE, threads).analyze(moves);
+            assertEquals(moves.length, analysis.getMovesCount());
+            int[] tiles = start.clone();
+            Game replay = new GameImpl(3, 3);
+            int wasted = 0;
+            for (int step = 0; step <= moves.length; step++) {
+                assertTrue(analysis.isExact(step));
+                int expected = new IdaStarSolver(3, 3, tiles).solve().getLength();
+                assertEquals(expected, analysis.getDistance(step));
+                if (step < moves.length) {
+                    tiles = apply(tiles, moves[step]);
+                    int next = new IdaStarSolver(3, 3, tiles).solve().getLength();
+                    GameAnalysis.Verdict verdict = next < expected ? GameAnalysis.Verdict.GOOD
+                            : GameAnalysis.Verdict.WASTED;
+                    assertEquals(verdict, analysis.getVerdict(step));
+                    if (verdict == GameAnalysis.Verdict.WASTED) {
+                        wasted++;
+                    }
+                }
+            }
+            assertEquals(0, analysis.getDistance(moves.length));
+            assertEquals(2 * wasted, analysis.getInefficiency());
+            assertEquals(moves.length - analysis.getDistance(0), analysis.getInefficiency());
+        }
+    }
+
+    @Test
+    public void testLongGame() {
+        Game game = new GameImpl(4, 4);
+        ConstructiveSolverTest.scramble(game, 200, 5);
+        int[] start = Boards.toArray(game);
+        int[] moves = play(game, 500, 5);
+        assertTrue("Game of " + moves.length + " moves", moves.length >= 500);
+        long started = System.nanoTime();
+        GameAnalysis analysis = new GameAnalyzer(4, 4, start, GameAnalyzer.DEFAULT_NODE_LIMIT,
+                Runtime.getRuntime().availableProcessors()).analyze(moves);
+        long millis = (System.nanoTime() - started) / 1000000;
+        assertEquals(0, analysis.count(GameAnalysis.Verdict.UNKNOWN));
+        assertEquals(moves.length - analysis.getDistance(0), analysis.getInefficiency());
+        assertTrue("Analysis took " + millis + " ms", millis < 20000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalMove() {
+        Game game = new GameImpl(3, 3);
+        new GameAnalyzer(game).analyze(new int[]{8, 1});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOtherGoal() {
+        new GameAnalyzer(new GameImpl(GameLayout.snake(3, 3, 2)));
+    }
+
+    /**
+     * Plays the game with random detours until it is completed.
+     * Near the goal detours are moves there and back, so the game is not
+     * completed by chance.
+     */
+    private static int[] play(Game game, int minMoves, long seed) {
+        Random random = new Random(seed);
+        List<Integer> moves = new ArrayList<>();
+        while (!game.isCompleted()) {
+            for (int i = 0; i < 4 && moves.size() < minMoves;) {
+                int row = game.getRowOf(0) + random.nextInt(3) - 1;
+                int col = game.getColOf(0);
+                if (row == game.getRowOf(0)) {
+                    col += random.nextBoolean() ? 1 : -1;
+                }
+                if (row >= 0 && row < game.getRows() && col >= 0 && col < game.getCols()) {
+                    int element = game.getElement(row, col);
+                    assertTrue(game.makeMove(element));
+                    moves.add(element);
+                    if (game.getManhattanDistance() < 8) {
+                        assertTrue(game.makeMove(element));
+                        moves.add(element);
+                    }
+                    i++;
+                }
+            }
+            int[] solution = new IdaStarSolver(game).solve().getMoves();
+            int count = moves.size() < minMoves ? Math.min(2, solution.length - 2) : solution.length;
+            for (int i = 0; i < count; i++) {
+                assertTrue(game.makeMove(solution[i]));
+                moves.add(solution[i]);
+            }
+        }
+        int[] result = new int[moves.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = moves.get(i);
+        }
+        return result;
+    }
+
+    private static int[] apply(int[] tiles, int element) {
+        int[] next = tiles.clone();
+        int blank = 0;
+        int cell = 0;
+        for (int i = 0; i < next.length; i++) {
+            if (next[i] == 0) {
+                blank = i;
+            } else if (next[i] == element) {
+                cell = i;
+            }
+        }
+        next[blank] = element;
+        next[cell] = 0;
+        return next;
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.staspavlov.taggame.solver;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameImpl;
+import com.staspavlov.taggame.game.GameLayout;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class IdaStarSolverTest {
+
+    @Test
+    public void testOptimal() {
+        for (long seed = 1; seed <= 20; seed++) {
+            Game game = new GameImpl(3, 3);
+            ConstructiveSolverTest.scramble(game, 40, seed);
+            int[] tiles = Boards.toArray(game);
+            Solution solution = new IdaStarSolver(game).solve();
+            assertTrue(solution.isOptimal());
+            assertEquals(distance(tiles, 3), solution.getLength());
+            for (int element : solution.getMoves()) {
+                assertTrue(game.makeMove(element));
+            }
+            assertTrue(game.isCompleted());
+        }
+    }
+
+    @Test
+    public void testLimits() {
+        Game game = new GameImpl(4, 4);
+        ConstructiveSolverTest.scramble(game, 200, 7);
+        Solution solution = new IdaStarSolver(game).solve(1000, Integer.MAX_VALUE);
+        assertFalse(solution.isFound());
+        assertEquals(-1, solution.getLength());
+        assertTrue(solution.getLowerBound() >= game.getDistanceBound());
+        assertEquals(0, solution.getMoves().length);
+    }
+
+    @Test
+    public void testUnsolvable() {
+        Solution solution = new IdaStarSolver(2, 2, new int[]{2, 1, 3, 0}).solve();
+        assertFalse(solution.isFound());
+        assertEquals(Integer.MAX_VALUE, solution.getLowerBound());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOtherGoal() {
+        new IdaStarSolver(new GameImpl(GameLayout.blankFirst(3, 3, 1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTwoBlanks() {
+        new IdaStarSolver(3, 3, new int[]{1, 2, 3, 4, 5, 6, 7, 0, 0});
+    }
+
+    /**
+     * Finds distance to the goal by breadth-first search.
+     */
+    private static int distance(int[] start, int cols) {
+        int[] goal = new int[start.length];
+        for (int i = 0; i < goal.length - 1; i++) {
+            goal[i] = i + 1;
+        }
+        Map<String, Integer> depth = new HashMap<>();
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        depth.put(Arrays.toString(start), 0);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            int[] tiles = queue.poll();
+            int d = depth.get(Arrays.toString(tiles));
+            if (Arrays.equals(tiles, goal)) {
+                return d;
+            }
+            int blank = 0;
+            while (tiles[blank] != 0) {
+                blank++;
+            }
+            int[] cells = {blank - cols, blank + cols,
+                blank % cols > 0 ? blank - 1 : -1, blank % cols < cols - 1 ? blank + 1 : -1};
+            for (int cell : cells) {
+                if (cell >= 0 && cell < tiles.length) {
+                    int[] next = tiles.clone();
+                    next[blank] = next[cell];
+                    next[cell] = 0;
+                    String key = Arrays.toString(next);
+                    if (!depth.containsKey(key)) {
+                        depth.put(key, d + 1);
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.staspavlov.taggame.solver;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameImpl;
+import com.staspavlov.taggame.game.GameLayout;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PathOptimizerTest {
+
+    @Test
+    public void testRemoveCycles() {
+        Game g = new GameImpl(3, 3);
+        // Empty cell goes around the 2x2 block and returns to the start
+        int[] tiles = Boards.toArray(g);
+        int[] offsets = {-3, -1, 3, 1};
+        int[] moves = new int[12 * offsets.length];
+        int blank = 8;
+        for (int i = 0; i < moves.length; i++) {
+            int cell = blank + offsets[i % offsets.length];
+            moves[i] = tiles[cell];
+            tiles[blank] = tiles[cell];
+            tiles[cell] = 0;
+            blank = cell;
+        }
+        assertArrayEquals(Boards.toArray(g), tiles);
+        assertEquals(0, new PathOptimizer(g).optimize(moves).length);
+    }
+
+    @Test
+    public void testRandomWalk() {
+        Game g = ConstructiveSolverTest.scramble(new GameImpl(4, 4), 100, 7);
+        Random random = new Random(3);
+        int[] tiles = Boards.toArray(g);
+        int[] moves = walk(tiles, 4, 4, 5000, random);
+        int[] optimized = new PathOptimizer(g).optimize(moves);
+        assertTrue(optimized.length < moves.length);
+        assertArrayEquals(tiles, replay(Boards.toArray(g), 4, optimized));
+    }
+
+    @Test
+    public void testSolution() {
+        Game g = ConstructiveSolverTest.scramble(new GameImpl(6, 7), 5000, 11);
+        List<Integer> solution = ConstructiveSolverTest.solve(g);
+        int[] moves = new int[solution.size()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = solution.get(i);
+        }
+        int[] optimized = new PathOptimizer(g).optimize(moves);
+        assertTrue(optimized.length < moves.length);
+        List<Integer> list = new ArrayList<>();
+        for (int element : optimized) {
+            list.add(element);
+        }
+        assertTrue(ConstructiveSolverTest.apply(g, list));
+    }
+
+    @Test
+    public void testDeadline() {
+        Game g = ConstructiveSolverTest.scramble(new GameImpl(3, 3), 100, 5);
+        int[] tiles = Boards.toArray(g);
+        int[] moves = walk(tiles, 3, 3, 40, new Random(4));
+        PathOptimizer optimizer = new PathOptimizer(g);
+        // Only cycles are cut after the deadline
+        int[] optimized = optimizer.optimize(moves, 0, TimeUnit.SECONDS);
+        assertArrayEquals(tiles, replay(Boards.toArray(g), 3, optimized));
+        assertTrue(new PathOptimizer(g).optimize(moves).length <= optimized.length);
+        optimizer.cancel();
+        assertArrayEquals(optimized, optimizer.optimize(moves, 1, TimeUnit.MINUTES));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalMove() {
+        new PathOptimizer(new GameImpl(3, 3)).optimize(new int[]{1});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOtherGoal() {
+        new PathOptimizer(new GameImpl(GameLayout.blankFirst(3, 3, 1)));
+    }
+
+    private static int[] walk(int[] tiles, int rows, int cols, int count, Random random) {
+        int[] moves = new int[count];
+        int blank = 0;
+        while (tiles[blank] != 0) {
+            blank++;
+        }
+        int length = 0;
+        while (length < count) {
+            int r = blank / cols;
+            int c = blank % cols;
+            switch (random.nextInt(4)) {
+                case 0: r--; break;
+                case 1: r++; break;
+                case 2: c--; break;
+                default: c++; break;
+            }
+            if (r >= 0 && r < rows && c >= 0 && c < cols) {
+                int cell = r * cols + c;
+                moves[length++] = tiles[cell];
+                tiles[blank] = tiles[cell];
+                tiles[cell] = 0;
+                blank = cell;
+            }
+        }
+        return moves;
+    }
+
+    private static int[] replay(int[] tiles, int cols, int[] moves) {
+        for (int element : moves) {
+            int cell = 0;
+            int blank = 0;
+            for (int i = 0; i < tiles.length; i++) {
+                if (tiles[i] == element) {
+                    cell = i;
+                } else if (tiles[i] == 0) {
+                    blank = i;
+                }
+            }
+            int diff = Math.abs(cell - blank);
+            assertTrue(diff == cols || (diff == 1 && cell / cols == blank / cols));
+            tiles[blank] = element;
+            tiles[cell] = 0;
+        }
+        return tiles;
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.staspavlov.taggame.solver;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RepetitionDetectorTest {
+
+    @Test
+    public void testPushAndTruncate() {
+        RepetitionDetector d = new RepetitionDetector(2);
+        for (long hash = 10; hash < 100; hash++) {
+            assertEquals(-1, d.push(hash));
+        }
+        assertEquals(90, d.length());
+        assertEquals(5, d.push(15));
+        assertEquals(90, d.length());
+
+        // Cut states are forgotten
+        d.truncate(6);
+        assertEquals(-1, d.indexOf(50));
+        assertEquals(-1, d.push(50));
+        assertEquals(6, d.indexOf(50));
+        assertEquals(7, d.length());
+    }
+
+    @Test
+    public void testTranspositionTable() {
+        TranspositionTable t = new TranspositionTable(4);
+        assertEquals(-1, t.get(42));
+        t.put(42, 7);
+        assertEquals(7, t.get(42));
+        // Colliding state replaces the old one
+        t.put(42 + 16, 3);
+        assertEquals(-1, t.get(42));
+        assertEquals(3, t.get(42 + 16));
+        t.clear();
+        assertEquals(-1, t.get(42 + 16));
+    }
+
+}
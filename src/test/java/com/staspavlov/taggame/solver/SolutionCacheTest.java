@@ -0,0 +1,178 @@
+package com.staspavlov.taggame.solver;
+
+import com.staspavlov.taggame.game.Game;
+import com.staspavlov.taggame.game.GameImpl;
+import com.staspavlov.taggame.game.GameSnapshot;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SolutionCacheTest {
+
+    @Test
+    public void testTransposedHit() {
+        CountingSolver solver = new CountingSolver();
+        SolutionCache cache = new SolutionCache(solver, 1000);
+        Game game = new GameImpl(4, 4);
+        ConstructiveSolverTest.scramble(game, 80, 3);
+        int[] tiles = Boards.toArray(game);
+        Solution solution = cache.solve(4, 4, tiles);
+        assertEquals(1, solver.calls);
+        assertArrayEquals(solution.getMoves(), cache.solve(4, 4, tiles).getMoves());
+        int[] transposed = transpose(4, tiles);
+        Solution mirrored = cache.solve(4, 4, transposed);
+        assertEquals(1, solver.calls);
+        assertEquals(solution.getLength(), mirrored.getLength());
+        assertSolves(4, transposed, mirrored);
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2.0 / 3, cache.getHitRate(), 1e-9);
+        // Hit takes microseconds
+        long started = System.nanoTime();
+        for (int i = 0; i < 10000; i++) {
+            cache.get(4, 4, tiles);
+        }
+        assertTrue((System.nanoTime() - started) / 10000 < 100000);
+    }
+
+    @Test
+    public void testPositionSolvers() {
+        Game game = new GameImpl(3, 4);
+        ConstructiveSolverTest.scramble(game, 60, 7);
+        int[] tiles = Boards.toArray(game);
+        int expected = new IdaStarSolver(game).solve().getLength();
+        PositionSolver[] solvers = {IdaStarSolver.positionSolver(Long.MAX_VALUE),
+            AStarSolver.positionSolver(AStarSolver.DEFAULT_MAX_STATES)};
+        for (PositionSolver solver : solvers) {
+            SolutionCache cache = new SolutionCache(solver, 10);
+            assertEquals(expected, cache.solve(3, 4, tiles).getLength());
+            assertEquals(expected, cache.solve(3, 4, tiles).getLength());
+            assertEquals(1, cache.getHitCount());
+        }
+    }
+
+    @Test
+    public void testUnsolvable() {
+        CountingSolver solver = new CountingSolver();
+        SolutionCache cache = new SolutionCache(solver, 10);
+        int[] tiles = {2, 1, 3, 4, 5, 6, 7, 8, 0};
+        assertFalse(cache.solve(3, 3, tiles).isFound());
+        assertFalse(cache.solve(3, 3, tiles).isFound());
+        assertEquals(1, solver.calls);
+        // Searches stopped by limits are not cached
+        cache.put(2, 3, new int[]{1, 2, 3, 4, 0, 5}, new Solution(null, 5, 100));
+        assertNull(cache.get(2, 3, new int[]{1, 2, 3, 4, 0, 5}));
+    }
+
+    @Test
+    public void testEviction() {
+        SolutionCache cache = new SolutionCache(new CountingSolver(), 100);
+        int[] hot = {1, 2, 3, 4, 5, 0};
+        cache.put(2, 3, hot, new Solution(new int[0], 0, 0));
+        for (int i = 0; i < 20; i++) {
+            assertNotNull(cache.get(2, 3, hot));
+        }
+        // Scan of positions used once does not push out the frequent one
+        Random random = new Random(1);
+        for (int i = 0; i < 2000; i++) {
+            int[] tiles = permutation(random, 9);
+            if (cache.get(3, 3, tiles) == null) {
+                cache.put(3, 3, tiles, new Solution(new int[]{1}, 1, 0));
+            }
+            assertTrue(cache.size() <= 100);
+        }
+        assertNotNull(cache.get(2, 3, hot));
+        assertTrue(cache.getEvictionCount() > 1000);
+    }
+
+    @Test
+    public void testPersistence() throws IOException {
+        Path file = Files.createTempFile("solutions", ".bin");
+        try {
+            Random random = new Random(2);
+            int[][] positions = new int[200][];
+            // File holds about 40 entries, so it is compacted many times
+            try (SolutionCache cache = new SolutionCache(new CountingSolver(), 50, file, 4096)) {
+                for (int i = 0; i < positions.length; i++) {
+                    positions[i] = permutation(random, 16);
+                    cache.put(4, 4, positions[i], new Solution(new int[]{i % 16 + 1, 0}, 2, 0));
+                }
+            }
+            CountingSolver solver = new CountingSolver();
+            try (SolutionCache cache = new SolutionCache(solver, 50, file, 4096)) {
+                int last = positions.length - 1;
+                Solution solution = cache.get(4, 4, positions[last]);
+                assertNotNull(solution);
+                assertArrayEquals(new int[]{last % 16 + 1, 0}, solution.getMoves());
+                assertTrue(cache.size() > 10);
+                assertEquals(0, solver.calls);
+            }
+            Files.write(file, new byte[]{1, 2, 3, 4});
+            try {
+                new SolutionCache(solver, 50, file, 4096);
+                fail();
+            } catch (IOException ex) {
+                // Not a cache file
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTwoBlanks() {
+        new SolutionCache(new CountingSolver(), 10).solve(3, 3, new int[]{0, 0, 1, 2, 3, 4, 5, 6, 7});
+    }
+
+    /**
+     * Solver counting its calls.
+     */
+    private static class CountingSolver implements PositionSolver {
+
+        int calls;
+
+        @Override
+        public Solution solve(int rows, int cols, int[] tiles) {
+            calls++;
+            return new IdaStarSolver(rows, cols, tiles).solve();
+        }
+
+    }
+
+    private static int[] transpose(int size, int[] tiles) {
+        int[] transposed = new int[tiles.length];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int element = tiles[r * size + c];
+                if (element != 0) {
+                    int goal = element - 1;
+                    element = goal % size * size + goal / size + 1;
+                }
+                transposed[c * size + r] = element;
+            }
+        }
+        return transposed;
+    }
+
+    private static int[] permutation(Random random, int size) {
+        int[] tiles = new int[size];
+        for (int i = 0; i < size; i++) {
+            int j = random.nextInt(i + 1);
+            tiles[i] = tiles[j];
+            tiles[j] = i;
+        }
+        return tiles;
+    }
+
+    private static void assertSolves(int size, int[] tiles, Solution solution) {
+        Game game = new GameImpl(new GameSnapshot(size, size, tiles));
+        for (int element : solution.getMoves()) {
+            assertTrue(game.makeMove(element));
+        }
+        assertTrue(game.isCompleted());
+    }
+
+}